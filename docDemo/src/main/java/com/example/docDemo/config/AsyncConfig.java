@@ -0,0 +1,93 @@
+package com.example.docDemo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig implements WebMvcConfigurer {
+
+    @Value("${docdemo.web.async.threads:8}")
+    private int mvcAsyncThreads;
+
+    @Value("${docdemo.web.async.queue-capacity:16}")
+    private int mvcAsyncQueueCapacity;
+
+    @Value("${spring.mvc.async.request-timeout:PT30S}")
+    private Duration mvcAsyncTimeout;
+
+    /**
+     * Runs document ingestion off the request thread. Jobs wait in the lanes of the
+     * {@link com.example.docDemo.service.IngestionScheduler}, which hands this executor no
+     * more than it can start at once, so up to {@code spring.task.execution.pool.max-size}
+     * threads are kept ready and idle ones time out.
+     * <p>
+     * With {@code spring.threads.virtual.enabled} on Java 21+, the workers are virtual threads
+     * and up to {@code docdemo.ingestion.virtual.max-concurrent-jobs} jobs may run at once, since
+     * they mostly wait on file and JDBC I/O. The CPU-bound extraction still runs on the
+     * bounded per-format extractor pools.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor ingestionExecutor(ThreadPoolTaskExecutorBuilder builder, Environment environment,
+                                                    @Value("${docdemo.ingestion.virtual.max-concurrent-jobs:200}") int maxVirtualJobs) {
+        ThreadPoolTaskExecutor executor = builder.build();
+        if (Threading.VIRTUAL.isActive(environment)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor(executor.getThreadNamePrefix()).getVirtualThreadFactory());
+            executor.setCorePoolSize(maxVirtualJobs);
+            executor.setMaxPoolSize(maxVirtualJobs);
+        } else {
+            // A pool only grows past its core size when the queue is full, which the scheduler never lets happen
+            executor.setCorePoolSize(executor.getMaxPoolSize());
+            executor.setAllowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * CPU-bound text extraction for batch ingestion, one thread per core by default.
+     * Callers bound the number of tasks in flight, so the queue never grows past that window.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor extractionExecutor(@Value("${docdemo.ingestion.batch.extraction-threads:0}") int threads) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("doc-extract-");
+        return executor;
+    }
+
+    /**
+     * Spring MVC async work, i.e. writing {@code StreamingResponseBody} responses (export,
+     * document content). Declaring the executors above makes Boot's
+     * {@code applicationTaskExecutor} back off, which would leave MVC on an unbounded
+     * {@code SimpleAsyncTaskExecutor}. When all threads are busy and the queue is full, the
+     * request is rejected and answered with 503.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mvcAsyncThreads);
+        executor.setMaxPoolSize(mvcAsyncThreads);
+        executor.setQueueCapacity(mvcAsyncQueueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+        configurer.setDefaultTimeout(mvcAsyncTimeout.toMillis());
+    }
+}
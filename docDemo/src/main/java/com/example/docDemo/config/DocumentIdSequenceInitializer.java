@@ -0,0 +1,44 @@
+package com.example.docDemo.config;
+
+import com.example.docDemo.entity.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rows written while {@code files.id} was an IDENTITY column are not known to the
+ * {@code files_seq} table that Hibernate creates on MySQL, which starts at 1. Before the
+ * first insert, move the sequence past the highest existing ID so new IDs cannot collide.
+ * Depends on the EntityManagerFactory so that schema update has already run.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class DocumentIdSequenceInitializer implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentIdSequenceInitializer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM files", Long.class);
+            if (maxId == null || maxId == 0) return;
+            // The pooled optimizer hands out the block below next_val, so leave a whole block of headroom
+            long floor = maxId + Document.ID_ALLOCATION_SIZE + 1;
+            int updated = jdbcTemplate.update("UPDATE files_seq SET next_val = ? WHERE next_val < ?", floor, floor);
+            if (updated > 0) {
+                log.info("Advanced files_seq to {} past existing document IDs (max ID {}).", floor, maxId);
+            }
+        } catch (DataAccessException e) {
+            // Databases with native sequences have no files_seq table to adjust
+            log.debug("files_seq not adjusted: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.docDemo.config;
+
+import com.example.docDemo.service.ReadYourWrites;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sends connections for read-only transactions to the replica pool and everything else to
+ * the primary, unless {@link ReadYourWrites} says the reader must see its own recent writes.
+ * It must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the transaction manager asks for a connection before the transaction is marked read-only,
+ * and the proxy defers the lookup to the first statement. If the replica cannot hand out a
+ * connection, the read falls back to the primary.
+ * <p>
+ * Each lookup counts towards {@code docdemo.datasource.connections}, tagged with the role.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    public enum Role {
+        PRIMARY, REPLICA;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final DataSource primary;
+    private final ReadYourWrites readYourWrites;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter replicaFallbacks;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReadYourWrites readYourWrites, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.readYourWrites = readYourWrites;
+        setTargetDataSources(Map.of(Role.PRIMARY, primary, Role.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        primaryConnections = meterRegistry.counter("docdemo.datasource.connections", "role", Role.PRIMARY.tag());
+        replicaConnections = meterRegistry.counter("docdemo.datasource.connections", "role", Role.REPLICA.tag());
+        replicaFallbacks = meterRegistry.counter("docdemo.datasource.replica.fallbacks");
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Role determineCurrentLookupKey() {
+        boolean replicaRead = TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !readYourWrites.mustReadPrimary();
+        return replicaRead ? Role.REPLICA : Role.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Role.PRIMARY) {
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = super.getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            log.warn("No replica connection ({}); reading from the primary", e.getMessage());
+            replicaFallbacks.increment();
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.docDemo.config;
+
+import com.example.docDemo.search.SnippetGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchConfig {
+
+    @Bean
+    public SnippetGenerator snippetGenerator(@Value("${docdemo.snippet.fragment-size:150}") int fragmentSize,
+                                             @Value("${docdemo.snippet.max-fragments:3}") int maxFragments,
+                                             @Value("${docdemo.snippet.pre-tag:<em>}") String preTag,
+                                             @Value("${docdemo.snippet.post-tag:</em>}") String postTag) {
+        return new SnippetGenerator(fragmentSize, maxFragments, preTag, postTag);
+    }
+}
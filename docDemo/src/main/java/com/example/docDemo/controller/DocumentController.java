@@ -1,12 +1,22 @@
 package com.example.docDemo.controller;
 
+import com.example.docDemo.dto.BatchIngestionResultDTO;
+import com.example.docDemo.dto.CursorPageDTO;
 import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.dto.FacetsDTO;
+import com.example.docDemo.dto.IngestionJobDTO;
 import com.example.docDemo.dto.QAResponseDTO;
-import com.example.docDemo.exception.CustomExceptions;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.service.BatchIngestionService;
+import com.example.docDemo.service.DocumentExportService;
 import com.example.docDemo.service.DocumentService;
+import com.example.docDemo.service.FacetService;
+import com.example.docDemo.service.IngestionJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
@@ -17,11 +27,13 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -29,10 +41,14 @@ import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 
 @RestController
@@ -42,51 +58,68 @@ import java.util.concurrent.ExecutionException;
 public class DocumentController {
 
     private static final Logger log = LoggerFactory.getLogger(DocumentController.class);
+    private static final int MAX_SCROLL_SIZE = 100;
+    private static final int MAX_FACET_VALUES = 1000;
 
     @Autowired
     private DocumentService documentService;
 
-    @Operation(summary = "Ingest a new document (PDF, DOCX, TXT)", description = "Uploads a document file (PDF, DOCX, or TXT). Extracts text content and stores it asynchronously. Other types are rejected.")
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    @Autowired
+    private BatchIngestionService batchIngestionService;
+
+    @Autowired
+    private DocumentExportService documentExportService;
+
+    @Autowired
+    private FacetService facetService;
+
+    @Operation(summary = "Ingest a new document (PDF, DOCX, TXT)", description = "Uploads a document file (PDF, DOCX, or TXT) and queues it for text extraction and storage. Returns 202 with an ingestion job to poll; 429 if the ingestion queue is full.")
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<DocumentMetadataDTO> ingestDocument(
+    public ResponseEntity<IngestionJobDTO> ingestDocument(
             @Parameter(description = "Document file to upload (PDF, DOCX, TXT)", required = true) @RequestPart("file") MultipartFile file,
-            @Parameter(description = "Author of the document") @RequestParam(value = "author", required = false) String author) {
+            @Parameter(description = "Author of the document") @RequestParam(value = "author", required = false) String author) throws IOException {
 
         if (file == null || file.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File is required for ingestion/blank file.");
         }
-        log.info("Received ingestion request for file: {}, Author: {}, Content-Type: {}", file.getOriginalFilename(), author, file.getContentType());
-
-        try {
-            DocumentMetadataDTO result = documentService.ingestDocument(file, author).get(); // Wait for async completion
-            log.info("Async ingestion completed for file: {}. Returning result.", file.getOriginalFilename());
-            return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
-        } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
-            log.error("Async ingestion failed for file {}: {}", file.getOriginalFilename(), cause != null ? cause.getMessage() : e.getMessage(), cause);
-
-            // Handle specific exceptions from the async task cause
-            if (cause instanceof CustomExceptions.UnsupportedDocumentTypeException udte) {
-                throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, udte.getMessage(), udte);
-            } else if (cause instanceof CustomExceptions.TextExtractionException tee) {
-                // Treat extraction failures as internal errors generally
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to process document content: " + tee.getMessage(), tee);
-            } else if (cause instanceof IOException ioe) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read document file: " + ioe.getMessage(), ioe);
-            } else if (cause instanceof ResponseStatusException rse) {
-                throw rse; // Re-throw if already a web exception
-            } else {
-                // General fallback for other execution errors
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Ingestion failed: " + (cause != null ? cause.getMessage() : e.getMessage()), e);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Ingestion interrupted for file {}: {}", file.getOriginalFilename(), e.getMessage());
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Ingestion process was interrupted.", e);
+        log.debug("Received ingestion request for file: {}, Author: {}, Content-Type: {}", file.getOriginalFilename(), author, file.getContentType());
+
+        IngestionJobDTO job = ingestionJobService.submit(file, author);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/documents/jobs/" + job.getJobId()))
+                .body(job);
+    }
+
+    @Operation(summary = "Ingest many documents in one request", description = "Accepts several files and/or a zip archive of PDF, DOCX and TXT files. Extraction runs in parallel and documents are stored in batched inserts. Files that fail are listed in the result; the others are still stored. Oversized archive entries fail, and archives with too many or too large entries in total are read only up to the limit.")
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Callable<ResponseEntity<BatchIngestionResultDTO>> ingestBatch(
+            @Parameter(description = "Document files to upload (PDF, DOCX, TXT)") @RequestPart(value = "files", required = false) List<MultipartFile> files,
+            @Parameter(description = "Zip archive of document files") @RequestPart(value = "archive", required = false) MultipartFile archive,
+            @Parameter(description = "Author of the documents") @RequestParam(value = "author", required = false) String author) {
+
+        boolean noFiles = files == null || files.stream().allMatch(MultipartFile::isEmpty);
+        if (noFiles && (archive == null || archive.isEmpty())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one file or a zip archive is required for batch ingestion.");
         }
+        log.info("Received batch ingestion request: {} files, archive: {}, Author: {}",
+                files == null ? 0 : files.size(), archive != null ? archive.getOriginalFilename() : null, author);
+
+        // Processed on the MVC async executor, so the request thread is free once the multipart is parsed
+        Callable<BatchIngestionResultDTO> batch = batchIngestionService.ingestLater(files, archive, author);
+        return () -> ResponseEntity.ok(batch.call());
     }
 
-    @Operation(summary = "Search documents by keyword (Q&A)", description = "Retrieves documents containing the specified keyword in their content. Uses basic case-insensitive matching (LIKE).")
+    @Operation(summary = "Get ingestion job status", description = "Returns the status of an ingestion job, with the stored document's metadata once it has completed or the error if it failed.")
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJobDTO> getIngestionJob(
+            @Parameter(description = "Ingestion job ID returned by the upload endpoint", required = true) @PathVariable String jobId) {
+        return ResponseEntity.ok(ingestionJobService.getJob(jobId));
+    }
+
+    @Operation(summary = "Search documents by keyword (Q&A)", description = "Retrieves documents containing the specified keyword in their content. Served from a case-insensitive inverted index: words must match whole, except the last which may be a prefix; several words match as a phrase.")
     @GetMapping("/search")
     public ResponseEntity<Page<QAResponseDTO>> searchDocuments(
             @Parameter(description = "Keyword to search", required = true) @RequestParam @NotBlank @Size(min = 1) String query,
@@ -97,19 +130,113 @@ public class DocumentController {
         return ResponseEntity.ok(results);
     }
 
+    @Operation(summary = "Search documents ranked by relevance", description = "Returns the best matches first, scored with BM25. Words must all match unless joined with OR (which binds looser than the implicit AND), \"quoted words\" match as a phrase and a trailing * matches a prefix, e.g. invoice \"due date\" OR receipt*. Each hit carries its score; the sort parameter is ignored.")
+    @GetMapping("/search/ranked")
+    public ResponseEntity<Page<QAResponseDTO>> rankedSearch(
+            @Parameter(description = "Query", required = true) @RequestParam @NotBlank @Size(min = 1) String query,
+            @Parameter(description = "Pagination") @PageableDefault(size = 10) Pageable pageable) {
+
+        log.debug("Received ranked search request for query: '{}', Pageable: {}", query, pageable);
+        return ResponseEntity.ok(documentService.rankedSearch(query, pageable));
+    }
+
+    @Operation(summary = "Search documents by keyword with a cursor", description = "Like /search, but keyset-paginated by upload time and ID: pass the returned nextCursor as cursor for the next page. No total count is computed and deep pages cost the same as the first.")
+    @GetMapping("/search/scroll")
+    public ResponseEntity<CursorPageDTO<QAResponseDTO>> scrollSearch(
+            @Parameter(description = "Keyword to search", required = true) @RequestParam @NotBlank @Size(min = 1) String query,
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") @Min(1) @Max(MAX_SCROLL_SIZE) int size,
+            @Parameter(description = "Upload order") @RequestParam(defaultValue = "ASC") Sort.Direction direction) {
+
+        log.debug("Received scroll search request for query: '{}', size: {}, direction: {}", query, size, direction);
+        return ResponseEntity.ok(documentService.scrollSearch(query, cursor, size, direction));
+    }
 
     @Operation(summary = "Filter and list documents", description = "Retrieves a paginated list of documents based on optional metadata filters.")
     @GetMapping
     public ResponseEntity<Page<DocumentMetadataDTO>> findDocuments(
-            @Parameter(description = "Filter by author") @RequestParam(required = false) String author,
-            @Parameter(description = "Filter by content type") @RequestParam(required = false) String contentType,
-            @Parameter(description = "Filter by upload date")
+            @Parameter(description = "Filter by author, ignoring case; a trailing * matches a prefix") @RequestParam(required = false) String author,
+            @Parameter(description = "Filter by content type; a trailing * matches a prefix, e.g. text/*") @RequestParam(required = false) String contentType,
+            @Parameter(description = "Only documents uploaded on or after this date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedFrom,
+            @Parameter(description = "Only documents uploaded on or before this date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedTo,
+            @Parameter(description = "Older name for uploadedFrom", deprecated = true)
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadTimestamp,
             @Parameter(description = "Pagination and sorting parameters")
             @PageableDefault(size = 20, sort = "uploadTimestamp", direction = Sort.Direction.DESC) Pageable pageable) {
 
-        log.debug("Received find request with filters - Author: {}, Type: {}, uploadTimestamp: {}, Pageable: {}", author, contentType, uploadTimestamp, pageable);
-        Page<DocumentMetadataDTO> results = documentService.findDocuments(author, contentType, LocalDate.from(uploadTimestamp.atStartOfDay()), pageable);
+        LocalDate from = uploadedFrom != null ? uploadedFrom : uploadTimestamp;
+        log.debug("Received find request with filters - Author: {}, Type: {}, uploaded {} to {}, Pageable: {}", author, contentType, from, uploadedTo, pageable);
+        Page<DocumentMetadataDTO> results = documentService.findDocuments(author, contentType, from, uploadedTo, pageable);
         return ResponseEntity.ok(results);
     }
+
+    @Operation(summary = "Count documents per author, content type and upload day", description = "Returns, for the same filters as the listing, the number of matching documents and the top values of each facet with their counts. Each facet is counted under the other filters, so a value's count is how many documents selecting it would list. Served from in-memory aggregates; 503 while they are being built at startup.")
+    @GetMapping("/facets")
+    public ResponseEntity<FacetsDTO> facets(
+            @Parameter(description = "Filter by author, ignoring case; a trailing * matches a prefix") @RequestParam(required = false) String author,
+            @Parameter(description = "Filter by content type; a trailing * matches a prefix, e.g. text/*") @RequestParam(required = false) String contentType,
+            @Parameter(description = "Only documents uploaded on or after this date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedFrom,
+            @Parameter(description = "Only documents uploaded on or before this date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedTo,
+            @Parameter(description = "Values per facet: authors and content types with the most documents, the latest upload days")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(MAX_FACET_VALUES) int limit) {
+
+        log.debug("Received facets request with filters - Author: {}, Type: {}, uploaded {} to {}, limit: {}", author, contentType, uploadedFrom, uploadedTo, limit);
+        return ResponseEntity.ok(facetService.facets(author, contentType, uploadedFrom, uploadedTo, limit));
+    }
+
+    @Operation(summary = "Filter and list documents with a cursor", description = "Like the paged listing, but keyset-paginated by upload time and ID: pass the returned nextCursor as cursor for the next page. No total count is computed and deep pages cost the same as the first.")
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPageDTO<DocumentMetadataDTO>> scrollDocuments(
+            @Parameter(description = "Filter by author, ignoring case; a trailing * matches a prefix") @RequestParam(required = false) String author,
+            @Parameter(description = "Filter by content type; a trailing * matches a prefix, e.g. text/*") @RequestParam(required = false) String contentType,
+            @Parameter(description = "Only documents uploaded on or after this date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedFrom,
+            @Parameter(description = "Only documents uploaded on or before this date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedTo,
+            @Parameter(description = "Older name for uploadedFrom", deprecated = true)
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadTimestamp,
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") @Min(1) @Max(MAX_SCROLL_SIZE) int size,
+            @Parameter(description = "Upload order") @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+
+        LocalDate from = uploadedFrom != null ? uploadedFrom : uploadTimestamp;
+        log.debug("Received scroll request with filters - Author: {}, Type: {}, uploaded {} to {}, size: {}, direction: {}", author, contentType, from, uploadedTo, size, direction);
+        return ResponseEntity.ok(documentService.scrollDocuments(author, contentType, from, uploadedTo, cursor, size, direction));
+    }
+
+    @Operation(summary = "Download a document's extracted text", description = "Streams the full extracted text as UTF-8 plain text. Very large documents are stored in chunks and streamed chunk by chunk, without being loaded into memory whole.")
+    @GetMapping(value = "/{id}/content", produces = "text/plain;charset=UTF-8")
+    public ResponseEntity<StreamingResponseBody> streamContent(
+            @Parameter(description = "Document ID", required = true) @PathVariable Long id) {
+
+        // Looked up before streaming starts, so an unknown ID is still a 404
+        Document document = documentService.getDocument(id);
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(out -> documentService.writeContent(document, out));
+    }
+
+    @Operation(summary = "Export documents with their full text", description = "Streams every document matching the optional filters as NDJSON, one JSON object per line in ID order, including the full extracted text. Rows are read from the database in fetch-size batches and written as they arrive, so exports of any size use constant memory.")
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportDocuments(
+            @Parameter(description = "Filter by author, ignoring case; a trailing * matches a prefix") @RequestParam(required = false) String author,
+            @Parameter(description = "Filter by content type; a trailing * matches a prefix, e.g. text/*") @RequestParam(required = false) String contentType,
+            @Parameter(description = "Only documents uploaded on or after this date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedFrom,
+            @Parameter(description = "Only documents uploaded on or before this date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadedTo,
+            @Parameter(description = "Older name for uploadedFrom", deprecated = true)
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate uploadTimestamp) {
+
+        LocalDate from = uploadedFrom != null ? uploadedFrom : uploadTimestamp;
+        log.info("Received export request with filters - Author: {}, Type: {}, uploaded {} to {}", author, contentType, from, uploadedTo);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"documents.ndjson\"")
+                .body(out -> documentExportService.exportNdjson(author, contentType, from, uploadedTo, out));
+    }
 }
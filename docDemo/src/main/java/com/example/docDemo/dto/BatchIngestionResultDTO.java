@@ -0,0 +1,31 @@
+package com.example.docDemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchIngestionResultDTO {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FileError {
+        private String filename;
+        private String error;
+    }
+
+    private int total;
+
+    private int succeeded;
+
+    private int failed;
+
+    private List<DocumentMetadataDTO> documents;
+
+    private List<FileError> errors;
+}
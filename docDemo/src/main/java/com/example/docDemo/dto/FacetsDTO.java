@@ -0,0 +1,33 @@
+package com.example.docDemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Document counts for the listing filters: {@code total} matches all of them, and each
+ * facet is counted under the other filters, so a value's count is what selecting it lists.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetsDTO {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private long count;
+    }
+
+    private long total;
+
+    private List<FacetCount> authors;
+
+    private List<FacetCount> contentTypes;
+
+    private List<FacetCount> uploadDays;
+}
@@ -0,0 +1,31 @@
+package com.example.docDemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionJobDTO {
+
+    public enum Status { QUEUED, PROCESSING, COMPLETED, FAILED }
+
+    private String jobId;
+
+    private Status status;
+
+    private String filename;
+
+    private LocalDateTime submittedAt;
+
+    private LocalDateTime finishedAt;
+
+    // Set once the job has COMPLETED
+    private DocumentMetadataDTO document;
+
+    // Set once the job has FAILED
+    private String error;
+}
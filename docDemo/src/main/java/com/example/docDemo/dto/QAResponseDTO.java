@@ -1,10 +1,12 @@
 package com.example.docDemo.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -20,4 +22,11 @@ public class QAResponseDTO {
     private String author;
 
     private LocalDate uploadTimestamp;
-}
\ No newline at end of file
+
+    // Fragments around the matches, with the matched terms wrapped in highlight tags
+    private List<String> highlights;
+
+    // BM25 relevance, only set by ranked search
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double score;
+}
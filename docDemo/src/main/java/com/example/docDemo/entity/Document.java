@@ -1,12 +1,20 @@
 package com.example.docDemo.entity;
 
+import com.example.docDemo.storage.ChunkedTextSpool;
+import jakarta.persistence.Basic;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -14,18 +22,29 @@ import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDate;
+import java.util.Locale;
 
 
 @Entity
-@Table(name = "files")
+// (upload_timestamp, id) serves the default sort and keyset pagination over it; the normalized
+// filter columns lead the other two, so an exact or prefix filter plus a date range is one index range scan
+@Table(name = "files", indexes = {
+        @Index(name = "idx_files_upload_timestamp_id", columnList = "upload_timestamp, id"),
+        @Index(name = "idx_files_author_upload", columnList = "author_normalized, upload_timestamp, id"),
+        @Index(name = "idx_files_content_type_upload", columnList = "content_type_normalized, upload_timestamp, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Document {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled sequence IDs (a table on MySQL) keep Hibernate JDBC batching available; IDENTITY disables it
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "files_seq")
+    @SequenceGenerator(name = "files_seq", sequenceName = "files_seq", allocationSize = Document.ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -38,10 +57,61 @@ public class Document {
     @Column
     private String author; // Metadata
 
+    // Trimmed, lower-cased author and content type (without parameters such as charset), kept in
+    // sync on every write, so filters compare the plain indexed columns instead of lower(...)
+    @Column(name = "author_normalized")
+    private String authorNormalized;
+
+    @Column(name = "content_type_normalized")
+    private String contentTypeNormalized;
+
+    // SHA-256 of the uploaded file; unique, so the text of identical files is stored once
+    @Column(name = "content_hash", length = 64, unique = true)
+    private String contentHash;
+
+    // Set when this upload was a copy of an already stored file; the text lives on that document
+    @Column(name = "duplicate_of_id")
+    private Long duplicateOfId;
+
     @Lob // Large Object
     @Column(name = "content", columnDefinition = "TEXT", nullable = false)
     private String content; // Plain text content ONLY
+
+    // Text compressed by DocumentContentService when a storage codec is configured; content is then empty.
+    // Lazy (through build-time enhancement), so loading a Document never reads it; see DocumentContentService.contentOf
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "compressed_content", columnDefinition = "LONGBLOB")
+    private byte[] compressedContent;
+
+    // ContentCodec name for compressed_content (or for the chunks), or null when the text is in content
+    @Column(name = "content_codec", length = 8)
+    private String contentCodec;
+
+    // Set when the text is too large for one row and is stored in document_chunks instead; content is then empty
+    @Column(name = "chunk_count")
+    private Integer chunkCount;
+
+    // Extracted text waiting to be written to document_chunks when this document is saved
+    @Transient
+    private ChunkedTextSpool chunkSpool;
+
     @CreationTimestamp
     @Column(name = "upload_timestamp", nullable = false, updatable = false)
     private LocalDate uploadTimestamp;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeMetadata() {
+        authorNormalized = normalizeAuthor(author);
+        contentTypeNormalized = normalizeContentType(contentType);
+    }
+
+    public static String normalizeAuthor(String author) {
+        return author == null ? null : author.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static String normalizeContentType(String contentType) {
+        return contentType == null ? null : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+    }
 }
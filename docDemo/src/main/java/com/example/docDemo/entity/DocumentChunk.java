@@ -0,0 +1,55 @@
+package com.example.docDemo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * One piece of the extracted text of a very large document, in order by {@code chunkIndex}.
+ * Rows are written and read with plain JDBC by DocumentContentService, one chunk at a time;
+ * the entity only defines the table.
+ */
+@Entity
+@Table(name = "document_chunks")
+@IdClass(DocumentChunk.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentChunk {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Id
+    @Column(name = "chunk_index")
+    private Integer chunkIndex;
+
+    // Plain text of the chunk, or null when the document's codec compresses it into compressed_content
+    @Lob
+    @Column(name = "content", columnDefinition = "MEDIUMTEXT")
+    private String content;
+
+    @Lob
+    @Column(name = "compressed_content", columnDefinition = "LONGBLOB")
+    private byte[] compressedContent;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long documentId;
+        private Integer chunkIndex;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.docDemo.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.time.Duration;
 import java.util.List;
 
 public class CustomExceptions {
@@ -31,4 +32,47 @@ public class CustomExceptions {
             super("Extraction error for file '" + filename + "': " + message, cause);
         }
     }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public static class InvalidCursorException extends RuntimeException {
+        public InvalidCursorException(String cursor) {
+            super("Invalid or malformed cursor: " + cursor);
+        }
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class SearchUnavailableException extends RuntimeException {
+        public SearchUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public static class IngestionJobNotFoundException extends RuntimeException {
+        public IngestionJobNotFoundException(String jobId) {
+            super("Could not find ingestion job with ID: " + jobId);
+        }
+    }
+
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public static class IngestionQueueFullException extends RuntimeException {
+        public IngestionQueueFullException(String filename, Throwable cause) {
+            super("Ingestion queue is full; file '" + filename + "' was not accepted. Retry later.", cause);
+        }
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class ExtractionOverloadedException extends RuntimeException {
+        public ExtractionOverloadedException(String filename, String extractor, Throwable cause) {
+            super("Too many " + extractor + " files are waiting for extraction; file '" + filename + "' was not extracted. Retry later.", cause);
+        }
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class IngestionCommitTimeoutException extends RuntimeException {
+        public IngestionCommitTimeoutException(String filename, Duration timeout, boolean withdrawn) {
+            super("File '" + filename + "' was not committed within " + timeout.toSeconds() + "s; "
+                    + (withdrawn ? "it was not stored." : "it may still be stored.") + " Retry later.");
+        }
+    }
 }
@@ -1,9 +1,14 @@
 package com.example.docDemo.exception;
 
 import com.example.docDemo.dto.ErrorResponseDTO;
+import com.example.docDemo.service.PipelineMetrics;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -22,18 +27,81 @@ public class GlobalExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    @Autowired
+    private PipelineMetrics metrics;
+
     // Keep DocumentNotFoundException handler
     @ExceptionHandler(CustomExceptions.DocumentNotFoundException.class)
     public ResponseEntity<ErrorResponseDTO> handleDocumentNotFound(CustomExceptions.DocumentNotFoundException ex, HttpServletRequest request) {
         log.warn("DocumentNotFoundException: {}", ex.getMessage());
+        metrics.failure("request", ex);
+        ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.NOT_FOUND.value(), "Not Found", ex.getMessage(), request.getRequestURI());
+        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(CustomExceptions.IngestionJobNotFoundException.class)
+    public ResponseEntity<ErrorResponseDTO> handleIngestionJobNotFound(CustomExceptions.IngestionJobNotFoundException ex, HttpServletRequest request) {
+        log.warn("IngestionJobNotFoundException: {}", ex.getMessage());
+        metrics.failure("request", ex);
         ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.NOT_FOUND.value(), "Not Found", ex.getMessage(), request.getRequestURI());
         return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(CustomExceptions.IngestionQueueFullException.class)
+    public ResponseEntity<ErrorResponseDTO> handleIngestionQueueFull(CustomExceptions.IngestionQueueFullException ex, HttpServletRequest request) {
+        log.warn("IngestionQueueFullException: {}", ex.getMessage());
+        metrics.failure("request", ex);
+        ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests", ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    @ExceptionHandler(CustomExceptions.SearchUnavailableException.class)
+    public ResponseEntity<ErrorResponseDTO> handleSearchUnavailable(CustomExceptions.SearchUnavailableException ex, HttpServletRequest request) {
+        log.warn("SearchUnavailableException: {}", ex.getMessage());
+        metrics.failure("request", ex);
+        ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable", ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").body(error);
+    }
+
+    @ExceptionHandler(CustomExceptions.ExtractionOverloadedException.class)
+    public ResponseEntity<ErrorResponseDTO> handleExtractionOverloaded(CustomExceptions.ExtractionOverloadedException ex, HttpServletRequest request) {
+        log.warn("ExtractionOverloadedException: {}", ex.getMessage());
+        metrics.failure("request", ex);
+        ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable", ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    @ExceptionHandler(CustomExceptions.IngestionCommitTimeoutException.class)
+    public ResponseEntity<ErrorResponseDTO> handleIngestionCommitTimeout(CustomExceptions.IngestionCommitTimeoutException ex, HttpServletRequest request) {
+        log.warn("IngestionCommitTimeoutException: {}", ex.getMessage());
+        metrics.failure("request", ex);
+        ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable", ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").body(error);
+    }
+
+    // A streamed response found the MVC async executor and its queue full
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ErrorResponseDTO> handleTaskRejected(TaskRejectedException ex, HttpServletRequest request) {
+        log.warn("TaskRejectedException: {}", ex.getMessage());
+        metrics.failure("request", ex);
+        ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable",
+                "Too many responses are being streamed; please retry shortly.", request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    @ExceptionHandler(CustomExceptions.InvalidCursorException.class)
+    public ResponseEntity<ErrorResponseDTO> handleInvalidCursor(CustomExceptions.InvalidCursorException ex, HttpServletRequest request) {
+        log.warn("InvalidCursorException: {}", ex.getMessage());
+        metrics.failure("request", ex);
+        ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.BAD_REQUEST.value(), "Bad Request", ex.getMessage(), request.getRequestURI());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     // Keep/Update UnsupportedDocumentTypeException handler
     @ExceptionHandler(CustomExceptions.UnsupportedDocumentTypeException.class)
     public ResponseEntity<ErrorResponseDTO> handleUnsupportedDocumentType(CustomExceptions.UnsupportedDocumentTypeException ex, HttpServletRequest request) {
         log.warn("UnsupportedDocumentTypeException: {}", ex.getMessage());
+        metrics.failure("request", ex);
         ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), "Unsupported Media Type", ex.getMessage(), request.getRequestURI());
         return new ResponseEntity<>(error, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
     }
@@ -42,6 +110,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(CustomExceptions.TextExtractionException.class)
     public ResponseEntity<ErrorResponseDTO> handleTextExtraction(CustomExceptions.TextExtractionException ex, HttpServletRequest request) {
         log.error("TextExtractionException: {}", ex.getMessage(), ex.getCause());
+        metrics.failure("request", ex);
         ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.INTERNAL_SERVER_ERROR.value(), "Document Processing Error", ex.getMessage(), request.getRequestURI());
         return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
     }
@@ -73,6 +142,15 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    // Constraint annotations on request parameters (e.g. @NotBlank query, @Max size)
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<ErrorResponseDTO> handleConstraintViolation(ConstraintViolationException ex, HttpServletRequest request) {
+        String errors = ex.getConstraintViolations().stream().map(cv -> cv.getPropertyPath() + ": " + cv.getMessage()).collect(Collectors.joining(", "));
+        log.warn("Validation error: {}", errors);
+        ErrorResponseDTO error = new ErrorResponseDTO(LocalDate.now(), HttpStatus.BAD_REQUEST.value(), "Validation Failed", errors, request.getRequestURI());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<ErrorResponseDTO> handleMaxSizeException(MaxUploadSizeExceededException ex, HttpServletRequest request) {
         log.warn("File upload size limit exceeded: {}", ex.getMessage());
@@ -0,0 +1,44 @@
+package com.example.docDemo.extraction;
+
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Extracts plain text from one family of document formats. Implementations are Spring
+ * beans picked up by {@link ExtractorRegistry}; adding a format means adding a bean.
+ * <p>
+ * Extraction runs on the extractor's own pool and may be cancelled on timeout, so
+ * implementations should check {@link Thread#isInterrupted()} where they can.
+ */
+public interface DocumentExtractor {
+
+    /** Short, stable name used in configuration keys and metric tags, e.g. "pdf". */
+    String name();
+
+    /** Lower-case MIME types without parameters, e.g. "application/pdf". */
+    List<String> contentTypes();
+
+    /** Lower-case file extensions including the dot, used when no MIME type is given. */
+    List<String> fileExtensions();
+
+    /**
+     * Version of this extractor's output, part of the extraction cache key. Change it
+     * whenever the same file would now extract to different text, e.g. on a parser upgrade,
+     * so cached text from the old version is no longer used.
+     */
+    default String version() {
+        return "1";
+    }
+
+    String extract(Path file) throws Exception;
+
+    /**
+     * Writes the extracted text to {@code out} instead of returning it. Formats that can be
+     * read incrementally override this so very large documents are never held as one String;
+     * the default writes the result of {@link #extract(Path)}.
+     */
+    default void extract(Path file, Writer out) throws Exception {
+        out.write(extract(file));
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.docDemo.extraction;
+
+import org.apache.poi.Version;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts DOCX text. With {@code docdemo.extraction.docx.mode=streaming} (the default) the
+ * main document part, usually {@code word/document.xml}, is read straight out of the zip with
+ * StAX and its text written as it is parsed: no object model is built and no other part,
+ * embedded media included, is ever inflated. Paragraphs end in a newline, table cells in a
+ * tab, as with POI's extractor. Headers, footers and comments are not included.
+ * <p>
+ * Mode {@code dom} uses POI's {@link XWPFDocument} and {@link XWPFWordExtractor}; it is also
+ * the fallback for packages whose main part cannot be found.
+ */
+@Component
+public class DocxExtractor implements DocumentExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(DocxExtractor.class);
+
+    private static final String OFFICE_DOCUMENT_REL = "/officeDocument";
+    private static final String DEFAULT_MAIN_PART = "word/document.xml";
+    // Transitional and Strict OOXML
+    private static final Set<String> WORDPROCESSING_NS = Set.of(
+            "http://schemas.openxmlformats.org/wordprocessingml/2006/main",
+            "http://purl.oclc.org/ooxml/wordprocessingml/main");
+    private static final String MARKUP_COMPATIBILITY_NS = "http://schemas.openxmlformats.org/markup-compatibility/2006";
+    private static final int PARAGRAPHS_PER_INTERRUPT_CHECK = 256;
+
+    private static final XMLInputFactory XML = newXmlInputFactory();
+
+    @Value("${docdemo.extraction.docx.mode:streaming}")
+    private String mode = "streaming";
+
+    @Override
+    public String name() {
+        return "docx";
+    }
+
+    @Override
+    public String version() {
+        // Parser upgrades can change the extracted text, and the two modes lay out text differently
+        return isStreaming() ? "2-stax" : "1-poi-" + Version.getVersion();
+    }
+
+    @Override
+    public List<String> contentTypes() {
+        return List.of("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+    }
+
+    @Override
+    public List<String> fileExtensions() {
+        return List.of(".docx");
+    }
+
+    @Override
+    public String extract(Path file) throws Exception {
+        if (!isStreaming()) return extractWithPoi(file);
+        StringWriter text = new StringWriter();
+        extract(file, text);
+        return text.toString();
+    }
+
+    @Override
+    public void extract(Path file, Writer out) throws Exception {
+        if (!isStreaming()) {
+            out.write(extractWithPoi(file));
+            return;
+        }
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            ZipEntry main = zip.getEntry(mainPartName(zip));
+            if (main == null) {
+                log.debug("No main document part in {}; extracting with POI", file.getFileName());
+                out.write(extractWithPoi(file));
+                return;
+            }
+            try (InputStream in = zip.getInputStream(main)) {
+                writeText(in, out);
+            }
+        }
+    }
+
+    private boolean isStreaming() {
+        return !"dom".equalsIgnoreCase(mode);
+    }
+
+    private static String extractWithPoi(Path file) throws Exception {
+        // Opening the package from a file reads zip entries on demand instead of buffering the archive
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             XWPFDocument docx = new XWPFDocument(pkg);
+             XWPFWordExtractor extractor = new XWPFWordExtractor(docx) {
+                 @Override
+                 public void appendParagraphText(StringBuilder text, XWPFParagraph paragraph) {
+                     // Table cells come through here too, so a timeout's interrupt is seen at every paragraph
+                     TextFiles.checkInterrupted("DOCX");
+                     super.appendParagraphText(text, paragraph);
+                 }
+             }) {
+            return extractor.getText();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** The zip entry of the main document part, as named by the package relationships. */
+    private static String mainPartName(ZipFile zip) throws IOException, XMLStreamException {
+        ZipEntry rels = zip.getEntry("_rels/.rels");
+        if (rels == null) return DEFAULT_MAIN_PART;
+        try (InputStream in = zip.getInputStream(rels)) {
+            XMLStreamReader xml = XML.createXMLStreamReader(in);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(xml.getLocalName())
+                            && String.valueOf(xml.getAttributeValue(null, "Type")).endsWith(OFFICE_DOCUMENT_REL)) {
+                        String target = xml.getAttributeValue(null, "Target");
+                        return target.startsWith("/") ? target.substring(1) : target;
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        }
+        return DEFAULT_MAIN_PART;
+    }
+
+    private static void writeText(InputStream in, Writer out) throws XMLStreamException, IOException {
+        XMLStreamReader xml = XML.createXMLStreamReader(in);
+        try {
+            int tableCellDepth = 0;
+            // Paragraphs of one table cell are separated, not terminated, by newlines
+            boolean cellHasParagraph = false;
+            boolean inText = false;
+            // Depth inside mc:Fallback, which repeats the content of mc:Choice
+            int skipDepth = 0;
+            // w:tab also defines tab stops in paragraph properties; only tabs inside a run are text
+            boolean inRun = false;
+            int paragraphs = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (inText && skipDepth == 0) out.write(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) continue;
+
+                String name = xml.getLocalName();
+                String namespace = String.valueOf(xml.getNamespaceURI());
+                boolean start = event == XMLStreamConstants.START_ELEMENT;
+                if (MARKUP_COMPATIBILITY_NS.equals(namespace) && "Fallback".equals(name)) {
+                    skipDepth += start ? 1 : -1;
+                    continue;
+                }
+                if (skipDepth > 0 || !WORDPROCESSING_NS.contains(namespace)) continue;
+
+                if (start) {
+                    switch (name) {
+                        case "r" -> inRun = true;
+                        case "t" -> inText = true;
+                        case "tab" -> {
+                            if (inRun) out.write('\t');
+                        }
+                        case "br", "cr" -> {
+                            if (inRun) out.write('\n');
+                        }
+                        case "tc" -> {
+                            tableCellDepth++;
+                            cellHasParagraph = false;
+                        }
+                        case "p" -> {
+                            if (tableCellDepth > 0 && cellHasParagraph) out.write('\n');
+                            if (++paragraphs % PARAGRAPHS_PER_INTERRUPT_CHECK == 0 && Thread.currentThread().isInterrupted()) {
+                                throw new InterruptedIOException("DOCX extraction was interrupted");
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else {
+                    switch (name) {
+                        case "r" -> inRun = false;
+                        case "t" -> inText = false;
+                        case "p" -> {
+                            if (tableCellDepth > 0) cellHasParagraph = true;
+                            else out.write('\n');
+                        }
+                        case "tc" -> {
+                            tableCellDepth--;
+                            out.write('\t');
+                        }
+                        case "tr" -> out.write('\n');
+                        default -> {
+                        }
+                    }
+                }
+            }
+        } finally {
+            xml.close();
+        }
+    }
+
+    private static XMLInputFactory newXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Document parts never need a DTD; refusing them rules out entity expansion attacks
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+}
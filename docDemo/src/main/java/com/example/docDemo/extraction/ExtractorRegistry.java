@@ -0,0 +1,226 @@
+package com.example.docDemo.extraction;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Looks up {@link DocumentExtractor}s by content type or file extension and runs them,
+ * each format on its own fixed-size pool with its own timeout, so a slow or stuck format
+ * only uses up its own threads.
+ * <p>
+ * Pools and timeouts are configured per extractor name with
+ * {@code docdemo.extraction.<name>.threads}, {@code docdemo.extraction.<name>.queue-capacity},
+ * {@code docdemo.extraction.<name>.timeout} and {@code docdemo.extraction.<name>.cache}, falling back to
+ * {@code docdemo.extraction.default.*}. Every extraction is recorded in the
+ * {@code docdemo.extraction} timer, tagged by extractor and outcome.
+ */
+@Component
+public class ExtractorRegistry implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractorRegistry.class);
+
+    @Autowired
+    private List<DocumentExtractor> extractors;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, DocumentExtractor> byContentType = new LinkedHashMap<>();
+    private final Map<String, DocumentExtractor> byExtension = new HashMap<>();
+    private final Map<String, ThreadPoolExecutor> pools = new HashMap<>();
+    private final Map<String, Duration> timeouts = new HashMap<>();
+    private final Map<String, Boolean> cached = new HashMap<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        int defaultThreads = environment.getProperty("docdemo.extraction.default.threads", Integer.class, 0);
+        int defaultQueueCapacity = environment.getProperty("docdemo.extraction.default.queue-capacity", Integer.class, 100);
+        Duration defaultTimeout = environment.getProperty("docdemo.extraction.default.timeout", Duration.class, Duration.ofMinutes(2));
+        boolean defaultCache = environment.getProperty("docdemo.extraction.default.cache", Boolean.class, true);
+        for (DocumentExtractor extractor : extractors) {
+            String name = extractor.name();
+            extractor.contentTypes().forEach(type -> register(byContentType, type, extractor));
+            extractor.fileExtensions().forEach(extension -> register(byExtension, extension, extractor));
+
+            int threads = environment.getProperty("docdemo.extraction." + name + ".threads", Integer.class, defaultThreads);
+            int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+            int queueCapacity = environment.getProperty("docdemo.extraction." + name + ".queue-capacity", Integer.class, defaultQueueCapacity);
+            // Past the queue, extract() throws RejectedExecutionException rather than piling up waiting callers
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("extract-" + name + "-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            new ExecutorServiceMetrics(pool, "extraction." + name, Tags.of("extractor", name)).bindTo(meterRegistry);
+            pools.put(name, pool);
+            timeouts.put(name, environment.getProperty("docdemo.extraction." + name + ".timeout", Duration.class, defaultTimeout));
+            cached.put(name, environment.getProperty("docdemo.extraction." + name + ".cache", Boolean.class, defaultCache));
+            log.debug("Registered {} extractor: {} threads, queue {}, timeout {}", name, poolSize, queueCapacity, timeouts.get(name));
+        }
+    }
+
+    private static void register(Map<String, DocumentExtractor> registry, String key, DocumentExtractor extractor) {
+        DocumentExtractor previous = registry.put(key, extractor);
+        if (previous != null && previous != extractor) {
+            throw new IllegalStateException("Both " + previous.name() + " and " + extractor.name() + " extractors claim " + key);
+        }
+    }
+
+    /** Finds the extractor for a MIME type; parameters such as charset are ignored. */
+    public Optional<DocumentExtractor> forContentType(String contentType) {
+        if (contentType == null) return Optional.empty();
+        return Optional.ofNullable(byContentType.get(normalize(contentType)));
+    }
+
+    /** The primary content type of the extractor registered for the file's extension, or null. */
+    public String contentTypeForFilename(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) return null;
+        DocumentExtractor extractor = byExtension.get(filename.substring(dot).toLowerCase());
+        return extractor != null ? extractor.contentTypes().get(0) : null;
+    }
+
+    public List<String> supportedContentTypes() {
+        return new ArrayList<>(byContentType.keySet());
+    }
+
+    public Duration timeout(DocumentExtractor extractor) {
+        return timeouts.get(extractor.name());
+    }
+
+    /** Whether the extractor's output goes through the extraction cache; off for formats cheaper to parse than to read back. */
+    public boolean isCached(DocumentExtractor extractor) {
+        return cached.getOrDefault(extractor.name(), false);
+    }
+
+    public static String normalize(String contentType) {
+        return contentType.split(";")[0].trim().toLowerCase();
+    }
+
+    /**
+     * Runs an extraction on the extractor's pool and waits for it. The timeout starts once
+     * a pool thread picks the task up, so time spent queued behind other files of the same
+     * format does not count. On timeout the task is interrupted and {@link TimeoutException}
+     * is thrown; if the format's queue is full, {@link RejectedExecutionException} is thrown
+     * without waiting. Failures of the extractor itself are rethrown as they are.
+     */
+    public String extract(DocumentExtractor extractor, Path file) throws Exception {
+        return run(extractor, () -> extractor.extract(file));
+    }
+
+    /**
+     * Like {@link #extract(DocumentExtractor, Path)}, but the text is written to {@code out}
+     * as the extractor produces it. On timeout, {@code out} may hold partial text.
+     */
+    public void extract(DocumentExtractor extractor, Path file, Writer out) throws Exception {
+        run(extractor, () -> {
+            extractor.extract(file, out);
+            return null;
+        });
+    }
+
+    private String run(DocumentExtractor extractor, Callable<String> extraction) throws Exception {
+        String name = extractor.name();
+        ExtractionTask task = new ExtractionTask(extraction);
+        try {
+            pools.get(name).execute(task);
+        } catch (RejectedExecutionException e) {
+            Timer.builder("docdemo.extraction")
+                    .description("Time spent extracting text, per extractor")
+                    .tags("extractor", name, "outcome", "rejected")
+                    .register(meterRegistry)
+                    .record(0, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        Duration timeout = timeouts.get(name);
+        String outcome = "failure";
+        long started = 0;
+        try {
+            task.started.await();
+            started = System.nanoTime();
+            String text = task.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            outcome = "success";
+            return text;
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            task.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            outcome = "cancelled";
+            task.cancel(true);
+            throw e;
+        } catch (CancellationException e) {
+            outcome = "cancelled";
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw (Error) e.getCause();
+        } finally {
+            if (started != 0) {
+                Timer.builder("docdemo.extraction")
+                        .description("Time spent extracting text, per extractor")
+                        .tags("extractor", name, "outcome", outcome)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pools.values().forEach(ThreadPoolExecutor::shutdownNow);
+    }
+
+    private static final class ExtractionTask extends FutureTask<String> {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        ExtractionTask(Callable<String> extraction) {
+            super(extraction);
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            super.run();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // A task cancelled while still queued will never run, so release the waiting caller
+            started.countDown();
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.docDemo.extraction;
+
+import org.jsoup.Jsoup;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@Component
+public class HtmlExtractor implements DocumentExtractor {
+
+    @Override
+    public String name() {
+        return "html";
+    }
+
+    @Override
+    public List<String> contentTypes() {
+        return List.of("text/html", "application/xhtml+xml");
+    }
+
+    @Override
+    public List<String> fileExtensions() {
+        return List.of(".html", ".htm", ".xhtml");
+    }
+
+    @Override
+    public String extract(Path file) throws IOException {
+        // A null charset lets jsoup honour the document's own <meta charset>, defaulting to UTF-8.
+        // Parsing reads the file as it goes, so an interrupt stops it at the next read
+        try (InputStream in = TextFiles.interruptible(Files.newInputStream(file), "HTML")) {
+            return Jsoup.parse(in, null, file.toUri().toString()).text();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.docDemo.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown is already readable text; this only drops the markup that would otherwise
+ * be indexed and shown in snippets (headings, emphasis, link targets, code fences).
+ * Emphasis is only removed where its delimiters pair up, so a lone {@code *} as in
+ * {@code a*b} stays, and code, fenced or inline, is kept as written.
+ */
+@Component
+public class MarkdownExtractor implements DocumentExtractor {
+
+    // An unclosed fence runs to the end of the file
+    private static final Pattern FENCED_CODE = Pattern.compile("(?ms)^ {0,3}(`{3,}|~{3,})[^\\n]*\\n(.*?)(?:^ {0,3}\\1[`~]*[ \\t]*$|\\z)");
+    private static final Pattern LINK = Pattern.compile("!?\\[([^\\]]*)]\\([^)]*\\)");
+    private static final Pattern LINE_PREFIX = Pattern.compile("(?m)^\\s{0,3}(#{1,6}\\s+|>\\s?|[-*+]\\s+|\\d+[.)]\\s+)");
+    // Code spans, then *, _ and ~~ pairs; underscores inside words (snake_case) are not emphasis
+    private static final Pattern INLINE = Pattern.compile("(`+)(.+?)(?<!`)\\1(?!`)"
+            + "|(\\*{1,3})(?=\\S)(.+?)(?<=\\S)\\3"
+            + "|(?<![\\p{L}\\p{N}_])(_{1,3})(?=\\S)(.+?)(?<=\\S)\\5(?![\\p{L}\\p{N}_])"
+            + "|~~(?=\\S)(.+?)(?<=\\S)~~");
+
+    @Override
+    public String name() {
+        return "markdown";
+    }
+
+    @Override
+    public String version() {
+        // 2: emphasis is matched in delimiter pairs and code is left as written
+        return "2";
+    }
+
+    @Override
+    public List<String> contentTypes() {
+        return List.of("text/markdown", "text/x-markdown");
+    }
+
+    @Override
+    public List<String> fileExtensions() {
+        return List.of(".md", ".markdown");
+    }
+
+    @Override
+    public String extract(Path file) throws IOException {
+        String text = TextFiles.readUtf8(file);
+        StringBuilder plain = new StringBuilder(text.length());
+        Matcher fence = FENCED_CODE.matcher(text);
+        int end = 0;
+        while (fence.find()) {
+            plain.append(stripMarkup(text.substring(end, fence.start()))).append(fence.group(2));
+            end = fence.end();
+        }
+        return plain.append(stripMarkup(text.substring(end))).toString();
+    }
+
+    private static String stripMarkup(String text) {
+        text = LINK.matcher(text).replaceAll("$1");
+        text = LINE_PREFIX.matcher(text).replaceAll("");
+        return stripInline(text);
+    }
+
+    private static String stripInline(String text) {
+        return INLINE.matcher(text).replaceAll(match -> Matcher.quoteReplacement(
+                match.group(2) != null ? match.group(2)
+                        // Emphasis can nest, as in **bold _and italic_**
+                        : stripInline(match.group(4) != null ? match.group(4) : match.group(6) != null ? match.group(6) : match.group(7))));
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.docDemo.extraction;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.util.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Extracts PDF text with PDFBox. Documents with at least
+ * {@code docdemo.extraction.pdf.parallel-page-threshold} pages are split into page ranges
+ * that are extracted in parallel on a fork-join pool and stitched back together in order.
+ * PDDocument is not thread-safe, so every range opens its own copy of the file.
+ * <p>
+ * The page workers ({@code docdemo.extraction.pdf.parallelism}, by default the cores left
+ * over by the {@code pdf} extraction pool) are a budget shared by all PDFs: a document takes
+ * only the workers idle when it starts, and is extracted sequentially when there are none,
+ * so concurrent PDFs never fan out past the budget or queue behind each other's ranges.
+ */
+@Component
+public class PdfExtractor implements DocumentExtractor, InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfExtractor.class);
+
+    @Value("${docdemo.extraction.pdf.max-main-memory-bytes:16777216}")
+    private long maxMainMemoryBytes;
+
+    @Value("${docdemo.extraction.pdf.parallel-page-threshold:200}")
+    private int parallelPageThreshold;
+
+    @Value("${docdemo.extraction.pdf.parallelism:0}")
+    private int parallelism;
+
+    // Threads of the ExtractorRegistry pool that calls extract(), each extracting a first range itself
+    @Value("${docdemo.extraction.pdf.threads:${docdemo.extraction.default.threads:0}}")
+    private int extractionThreads;
+
+    private ForkJoinPool pagePool;
+    private Semaphore idleWorkers;
+
+    @Override
+    public void afterPropertiesSet() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int callers = extractionThreads > 0 ? extractionThreads : cores;
+        int workers = parallelism > 0 ? parallelism : Math.max(0, cores - callers);
+        idleWorkers = new Semaphore(workers);
+        if (workers == 0) return;
+        pagePool = new ForkJoinPool(workers, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("extract-pdf-pages-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @Override
+    public void destroy() {
+        if (pagePool != null) pagePool.shutdownNow();
+    }
+
+    @Override
+    public String name() {
+        return "pdf";
+    }
+
+    @Override
+    public String version() {
+        // Parser upgrades can change the extracted text
+        return "1-pdfbox-" + Version.getVersion();
+    }
+
+    @Override
+    public List<String> contentTypes() {
+        return List.of("application/pdf");
+    }
+
+    @Override
+    public List<String> fileExtensions() {
+        return List.of(".pdf");
+    }
+
+    @Override
+    public String extract(Path file) throws IOException {
+        StringWriter text = new StringWriter();
+        extract(file, text);
+        return text.toString();
+    }
+
+    /**
+     * Writes the text page by page as PDFBox strips it. Ranges extracted in parallel are
+     * held as Strings until the ranges before them have been written.
+     */
+    @Override
+    public void extract(Path file, Writer out) throws IOException {
+        try (PDDocument document = load(file)) {
+            if (document.isEncrypted()) {
+                log.warn("PDF document is encrypted. Text extraction might fail or be incomplete.");
+            }
+            int pages = document.getNumberOfPages();
+            int workers = parallelPageThreshold > 0 && pages >= parallelPageThreshold ? reserveWorkers(pages - 1) : 0;
+            if (workers == 0) {
+                new CancellableTextStripper(Thread.currentThread()::isInterrupted).writeText(document, out);
+                return;
+            }
+            extractInParallel(file, document, pages, workers, out);
+        }
+    }
+
+    /** Takes as many idle page workers as there are, up to {@code wanted}, without waiting. */
+    private int reserveWorkers(int wanted) {
+        for (int workers = Math.min(wanted, idleWorkers.availablePermits()); workers > 0; workers--) {
+            if (idleWorkers.tryAcquire(workers)) return workers;
+        }
+        return 0;
+    }
+
+    /**
+     * One range per reserved worker plus one for the calling thread, which extracts the first
+     * range from the copy it already has open. Each worker has to load its own copy of the
+     * document, so more, smaller ranges would cost more in loading than they gain in balance.
+     * Every worker task returns its reservation when it ends.
+     */
+    private void extractInParallel(Path file, PDDocument document, int pages, int workers, Writer out) throws IOException {
+        int ranges = workers + 1;
+        int pagesPerRange = (pages + ranges - 1) / ranges;
+        log.debug("Extracting {} PDF pages in {} ranges of up to {} pages", pages, ranges, pagesPerRange);
+
+        // Workers cannot see the caller's interrupt, so cancellation is passed on through this flag
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<ForkJoinTask<String>> tasks = new ArrayList<>(workers);
+        for (int start = 1 + pagesPerRange; start <= pages; start += pagesPerRange) {
+            int first = start;
+            int last = Math.min(pages, start + pagesPerRange - 1);
+            tasks.add(pagePool.submit(() -> {
+                try {
+                    if (cancelled.get()) return "";
+                    try (PDDocument copy = load(file)) {
+                        StringWriter range = new StringWriter();
+                        extractRange(copy, first, last, cancelled::get, range);
+                        return range.toString();
+                    }
+                } finally {
+                    idleWorkers.release();
+                }
+            }));
+        }
+        // Rounding can leave fewer ranges than reserved workers
+        idleWorkers.release(workers - tasks.size());
+        try {
+            extractRange(document, 1, pagesPerRange, Thread.currentThread()::isInterrupted, out);
+            for (ForkJoinTask<String> task : tasks) {
+                out.write(task.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PDF extraction cancelled");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            throw new IOException("PDF page extraction failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            // Not cancelled: a task that never ran would never return its worker
+            cancelled.set(true);
+        }
+    }
+
+    private static void extractRange(PDDocument document, int firstPage, int lastPage, BooleanSupplier cancelled, Writer out) throws IOException {
+        PDFTextStripper stripper = new CancellableTextStripper(cancelled);
+        stripper.setStartPage(firstPage);
+        stripper.setEndPage(lastPage);
+        stripper.writeText(document, out);
+    }
+
+    private PDDocument load(Path file) throws IOException {
+        // Parsed objects beyond the main-memory budget go to a scratch file instead of heap
+        MemoryUsageSetting memory = maxMainMemoryBytes > 0
+                ? MemoryUsageSetting.setupMixed(maxMainMemoryBytes)
+                : MemoryUsageSetting.setupTempFileOnly();
+        return PDDocument.load(file.toFile(), memory);
+    }
+
+    /** Stops between pages once the extraction has been cancelled. */
+    private static final class CancellableTextStripper extends PDFTextStripper {
+
+        private final BooleanSupplier cancelled;
+
+        CancellableTextStripper(BooleanSupplier cancelled) throws IOException {
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            if (cancelled.getAsBoolean()) {
+                throw new InterruptedIOException("PDF extraction cancelled at page " + getCurrentPageNo());
+            }
+            super.startPage(page);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.docDemo.extraction;
+
+import org.apache.poi.Version;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.sl.extractor.SlideShowExtractor;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFShape;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextParagraph;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+@Component
+public class PptxExtractor implements DocumentExtractor {
+
+    @Override
+    public String name() {
+        return "pptx";
+    }
+
+    @Override
+    public String version() {
+        // Parser upgrades can change the extracted text
+        return "1-poi-" + Version.getVersion();
+    }
+
+    @Override
+    public List<String> contentTypes() {
+        return List.of("application/vnd.openxmlformats-officedocument.presentationml.presentation");
+    }
+
+    @Override
+    public List<String> fileExtensions() {
+        return List.of(".pptx");
+    }
+
+    @Override
+    public String extract(Path file) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             XMLSlideShow slides = new XMLSlideShow(pkg);
+             SlideShowExtractor<XSLFShape, XSLFTextParagraph> extractor = new SlideShowExtractor<>(slides)) {
+            extractor.setNotesByDefault(true);
+            // Slide by slide, as getText() does, so a timeout's interrupt stops between slides
+            StringBuilder text = new StringBuilder();
+            for (XSLFSlide slide : slides.getSlides()) {
+                TextFiles.checkInterrupted("PPTX");
+                text.append(extractor.getText(slide));
+            }
+            return text.toString();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.docDemo.extraction;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class TextFiles {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private TextFiles() {
+    }
+
+    /**
+     * Decodes a UTF-8 file in fixed-size chunks, replacing malformed input. The result holds
+     * the whole text, so this is for files below the chunk threshold; see {@link #copyUtf8}.
+     */
+    static String readUtf8(Path file) throws IOException {
+        // UTF-8 never decodes to more chars than bytes, so this avoids regrowing the builder
+        StringBuilder text = new StringBuilder((int) Math.min(Files.size(file), Integer.MAX_VALUE - 8));
+        decodeUtf8(file, text::append);
+        return text.toString();
+    }
+
+    /** Like {@link #readUtf8}, but writes the text to {@code out} chunk by chunk. */
+    static void copyUtf8(Path file, Writer out) throws IOException {
+        decodeUtf8(file, out::write);
+    }
+
+    /**
+     * For parser callbacks that cannot throw checked exceptions: throws an
+     * {@link UncheckedIOException} around an {@link InterruptedIOException} once the extracting
+     * thread is interrupted (by a timeout), for the extractor to unwrap.
+     */
+    static void checkInterrupted(String format) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new UncheckedIOException(new InterruptedIOException(format + " extraction was interrupted"));
+        }
+    }
+
+    /** Wraps a stream so reads fail with {@link InterruptedIOException} once the reading thread is interrupted. */
+    static InputStream interruptible(InputStream in, String format) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                checkInterrupted();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                checkInterrupted();
+                return super.read(buffer, offset, length);
+            }
+
+            private void checkInterrupted() throws InterruptedIOException {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException(format + " extraction was interrupted");
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface CharSink {
+        void accept(char[] chars, int offset, int count) throws IOException;
+    }
+
+    private static void decodeUtf8(Path file, CharSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+            CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Text extraction cancelled");
+                endOfInput = channel.read(bytes) == -1;
+                bytes.flip();
+                decoder.decode(bytes, chars, endOfInput);
+                bytes.compact();
+                sink.accept(chars.array(), 0, chars.position());
+                chars.clear();
+            }
+            decoder.flush(chars);
+            sink.accept(chars.array(), 0, chars.position());
+        }
+    }
+}
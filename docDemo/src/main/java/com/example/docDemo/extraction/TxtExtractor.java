@@ -0,0 +1,37 @@
+package com.example.docDemo.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+
+@Component
+public class TxtExtractor implements DocumentExtractor {
+
+    @Override
+    public String name() {
+        return "txt";
+    }
+
+    @Override
+    public List<String> contentTypes() {
+        return List.of("text/plain");
+    }
+
+    @Override
+    public List<String> fileExtensions() {
+        return List.of(".txt");
+    }
+
+    @Override
+    public String extract(Path file) throws IOException {
+        return TextFiles.readUtf8(file);
+    }
+
+    @Override
+    public void extract(Path file, Writer out) throws IOException {
+        TextFiles.copyUtf8(file, out);
+    }
+}
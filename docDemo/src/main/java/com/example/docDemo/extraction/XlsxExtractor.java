@@ -0,0 +1,96 @@
+package com.example.docDemo.extraction;
+
+import org.apache.poi.Version;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.extractor.XSSFEventBasedExcelExtractor;
+import org.apache.poi.xssf.model.Comments;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+@Component
+public class XlsxExtractor implements DocumentExtractor {
+
+    @Override
+    public String name() {
+        return "xlsx";
+    }
+
+    @Override
+    public String version() {
+        // Parser upgrades can change the extracted text
+        return "1-poi-" + Version.getVersion();
+    }
+
+    @Override
+    public List<String> contentTypes() {
+        return List.of("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    }
+
+    @Override
+    public List<String> fileExtensions() {
+        return List.of(".xlsx");
+    }
+
+    @Override
+    public String extract(Path file) throws Exception {
+        // The event-based extractor streams sheet XML instead of building the workbook object model
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             XSSFEventBasedExcelExtractor extractor = new InterruptibleExtractor(pkg)) {
+            extractor.setIncludeSheetNames(true);
+            return extractor.getText();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Checks for a timeout's interrupt at every row; getText() would swallow a checked exception. */
+    private static final class InterruptibleExtractor extends XSSFEventBasedExcelExtractor {
+
+        InterruptibleExtractor(OPCPackage pkg) throws Exception {
+            super(pkg);
+        }
+
+        @Override
+        public void processSheet(SheetContentsHandler handler, Styles styles, Comments comments, SharedStrings strings,
+                                 InputStream sheet) throws IOException, SAXException {
+            super.processSheet(new SheetContentsHandler() {
+                @Override
+                public void startRow(int row) {
+                    TextFiles.checkInterrupted("XLSX");
+                    handler.startRow(row);
+                }
+
+                @Override
+                public void endRow(int row) {
+                    handler.endRow(row);
+                }
+
+                @Override
+                public void cell(String reference, String value, XSSFComment comment) {
+                    handler.cell(reference, value, comment);
+                }
+
+                @Override
+                public void headerFooter(String text, boolean isHeader, String tagName) {
+                    handler.headerFooter(text, isHeader, tagName);
+                }
+
+                @Override
+                public void endSheet() {
+                    handler.endSheet();
+                }
+            }, styles, comments, strings, sheet);
+        }
+    }
+}
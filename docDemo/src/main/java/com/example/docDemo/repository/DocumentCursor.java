@@ -0,0 +1,43 @@
+package com.example.docDemo.repository;
+
+import com.example.docDemo.exception.CustomExceptions;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the {@code (uploadTimestamp, id)} ordering of documents, for keyset
+ * pagination: the next page is everything strictly after the last row returned, which
+ * the composite index on those columns finds without skipping rows like an OFFSET would.
+ * Clients see it only as an opaque token.
+ */
+public record DocumentCursor(LocalDate uploadTimestamp, long id) {
+
+    private static final char SEPARATOR = '_';
+
+    /** A position before every document in the given direction, for the first page. */
+    public static DocumentCursor first(Sort.Direction direction) {
+        return direction.isAscending()
+                ? new DocumentCursor(LocalDate.of(1, 1, 1), Long.MIN_VALUE)
+                : new DocumentCursor(LocalDate.of(9999, 12, 31), Long.MAX_VALUE);
+    }
+
+    public String encode() {
+        String raw = uploadTimestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static DocumentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) throw new CustomExceptions.InvalidCursorException(token);
+            return new DocumentCursor(LocalDate.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new CustomExceptions.InvalidCursorException(token);
+        }
+    }
+}
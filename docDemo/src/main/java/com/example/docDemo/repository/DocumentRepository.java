@@ -9,10 +9,45 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Long>, JpaSpecificationExecutor<Document> {
+public interface DocumentRepository extends JpaRepository<Document, Long>, JpaSpecificationExecutor<Document>, DocumentRepositoryCustom {
+
+    // Duplicates store no content of their own, so match against the original's; chunked text is matched chunk by chunk
+    String KEYWORD_MATCH = "(UPPER(COALESCE(o.content, d.content)) LIKE CONCAT('%', UPPER(:keyword), '%')"
+            + " OR EXISTS (SELECT 1 FROM document_chunks c WHERE c.document_id = COALESCE(o.id, d.id)"
+            + " AND UPPER(c.content) LIKE CONCAT('%', UPPER(:keyword), '%')))";
 
-    @Query(value = "SELECT * FROM files d WHERE UPPER(d.content) LIKE CONCAT('%', UPPER(:keyword), '%')", nativeQuery = true)
+    @Query(value = "SELECT d.* FROM files d LEFT JOIN files o ON o.id = d.duplicate_of_id WHERE " + KEYWORD_MATCH,
+            countQuery = "SELECT COUNT(*) FROM files d LEFT JOIN files o ON o.id = d.duplicate_of_id WHERE " + KEYWORD_MATCH,
+            nativeQuery = true)
     Page<Document> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
 
+    // Keyset variants of searchByKeyword for cursor pagination: no OFFSET and no count query
+    @Query(value = "SELECT d.* FROM files d LEFT JOIN files o ON o.id = d.duplicate_of_id WHERE " + KEYWORD_MATCH
+            + " AND (d.upload_timestamp > :uploadTimestamp OR (d.upload_timestamp = :uploadTimestamp AND d.id > :id))"
+            + " ORDER BY d.upload_timestamp ASC, d.id ASC LIMIT :limit", nativeQuery = true)
+    List<Document> searchByKeywordAfter(@Param("keyword") String keyword, @Param("uploadTimestamp") LocalDate uploadTimestamp,
+                                        @Param("id") long id, @Param("limit") int limit);
+
+    @Query(value = "SELECT d.* FROM files d LEFT JOIN files o ON o.id = d.duplicate_of_id WHERE " + KEYWORD_MATCH
+            + " AND (d.upload_timestamp < :uploadTimestamp OR (d.upload_timestamp = :uploadTimestamp AND d.id < :id))"
+            + " ORDER BY d.upload_timestamp DESC, d.id DESC LIMIT :limit", nativeQuery = true)
+    List<Document> searchByKeywordBefore(@Param("keyword") String keyword, @Param("uploadTimestamp") LocalDate uploadTimestamp,
+                                         @Param("id") long id, @Param("limit") int limit);
+
+    Optional<Document> findByContentHash(String contentHash);
+
+    boolean existsByContentCodecIsNotNull();
+
+    // Keyset batches for ContentStorageMigrator: originals not yet in the target storage format
+    @Query("SELECT d.id FROM Document d WHERE d.id > :afterId AND d.duplicateOfId IS NULL AND d.contentCodec IS NOT NULL ORDER BY d.id")
+    List<Long> findCompressedIdsAfter(@Param("afterId") long afterId, Pageable limit);
+
+    @Query("SELECT d.id FROM Document d WHERE d.id > :afterId AND d.duplicateOfId IS NULL AND (d.contentCodec IS NULL OR d.contentCodec <> :codec) ORDER BY d.id")
+    List<Long> findIdsNotStoredWithAfter(@Param("codec") String codec, @Param("afterId") long afterId, Pageable limit);
+
 }
@@ -0,0 +1,38 @@
+package com.example.docDemo.repository;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.entity.Document;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+
+/**
+ * Queries that Spring Data cannot derive, implemented in {@link DocumentRepositoryCustomImpl}.
+ */
+public interface DocumentRepositoryCustom {
+
+    /**
+     * Like {@code findAll(spec, pageable)} but selects only the metadata columns, never the
+     * {@code content} LOB. The count query is skipped when the page itself determines the total.
+     */
+    Page<DocumentMetadataDTO> findMetadata(Specification<Document> spec, Pageable pageable);
+
+    /**
+     * Keyset variant of {@link #findMetadata}: up to {@code limit} rows strictly after
+     * {@code after} in {@code (uploadTimestamp, id)} order, with no count query.
+     */
+    Slice<DocumentMetadataDTO> findMetadataAfter(Specification<Document> spec, DocumentCursor after, Sort.Direction direction, int limit);
+
+    /**
+     * Up to {@code limit} documents matching {@code spec} with IDs above {@code afterId}, in
+     * ID order and loaded read-only: one batch of a keyset scan, so a scan of any size holds
+     * one batch at a time without relying on driver-side result streaming. Callers should
+     * clear the persistence context between batches.
+     */
+    List<Document> findBatchAfter(Specification<Document> spec, long afterId, int limit);
+}
@@ -0,0 +1,113 @@
+package com.example.docDemo.repository;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.entity.Document;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class DocumentRepositoryCustomImpl implements DocumentRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<DocumentMetadataDTO> findMetadata(Specification<Document> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DocumentMetadataDTO> query = cb.createQuery(DocumentMetadataDTO.class);
+        Root<Document> root = query.from(Document.class);
+        query.select(cb.construct(DocumentMetadataDTO.class,
+                root.get("id"), root.get("filename"), root.get("contentType"), root.get("author"), root.get("uploadTimestamp")));
+        applySpecification(spec, root, query, cb);
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<DocumentMetadataDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<DocumentMetadataDTO> content = typedQuery.getResultList();
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    @Override
+    public Slice<DocumentMetadataDTO> findMetadataAfter(Specification<Document> spec, DocumentCursor after, Sort.Direction direction, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DocumentMetadataDTO> query = cb.createQuery(DocumentMetadataDTO.class);
+        Root<Document> root = query.from(Document.class);
+        query.select(cb.construct(DocumentMetadataDTO.class,
+                root.get("id"), root.get("filename"), root.get("contentType"), root.get("author"), root.get("uploadTimestamp")));
+        Path<LocalDate> uploadTimestamp = root.get("uploadTimestamp");
+        Path<Long> id = root.get("id");
+        // (uploadTimestamp, id) > (cursor) spelled out, since row-value comparison is not portable
+        Predicate seek = direction.isAscending()
+                ? cb.or(cb.greaterThan(uploadTimestamp, after.uploadTimestamp()),
+                        cb.and(cb.equal(uploadTimestamp, after.uploadTimestamp()), cb.greaterThan(id, after.id())))
+                : cb.or(cb.lessThan(uploadTimestamp, after.uploadTimestamp()),
+                        cb.and(cb.equal(uploadTimestamp, after.uploadTimestamp()), cb.lessThan(id, after.id())));
+        Predicate filter = spec != null ? spec.toPredicate(root, query, cb) : null;
+        query.where(filter != null ? cb.and(filter, seek) : seek);
+        query.orderBy(direction.isAscending()
+                ? List.of(cb.asc(uploadTimestamp), cb.asc(id))
+                : List.of(cb.desc(uploadTimestamp), cb.desc(id)));
+
+        // One extra row tells whether another page follows
+        List<DocumentMetadataDTO> content = entityManager.createQuery(query).setMaxResults(limit + 1).getResultList();
+        boolean hasNext = content.size() > limit;
+        return new SliceImpl<>(hasNext ? content.subList(0, limit) : content,
+                PageRequest.of(0, limit, Sort.by(direction, "uploadTimestamp", "id")), hasNext);
+    }
+
+    @Override
+    public List<Document> findBatchAfter(Specification<Document> spec, long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Document> query = cb.createQuery(Document.class);
+        Root<Document> root = query.from(Document.class);
+        Predicate seek = cb.greaterThan(root.get("id"), afterId);
+        Predicate filter = spec != null ? spec.toPredicate(root, query, cb) : null;
+        query.where(filter != null ? cb.and(filter, seek) : seek);
+        query.orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                // No dirty-checking snapshots are kept for read-only entities
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    private long count(Specification<Document> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Document> root = query.from(Document.class);
+        query.select(cb.count(root));
+        applySpecification(spec, root, query, cb);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void applySpecification(Specification<Document> spec, Root<Document> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (spec == null) return;
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
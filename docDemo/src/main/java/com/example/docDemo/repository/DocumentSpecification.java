@@ -1,6 +1,8 @@
 package com.example.docDemo.repository;
 
 import com.example.docDemo.entity.Document;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
@@ -9,15 +11,30 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Metadata filters for the document listing, scroll and export. Author and content type are
+ * compared against the normalized columns of {@link Document}, exactly, or as a prefix when
+ * the filter ends in {@code *} (e.g. {@code smi*}, {@code text/*}), so both are range scans
+ * on the composite indexes rather than full scans under {@code lower(...)}.
+ */
 public class DocumentSpecification {
 
+    private static final char LIKE_ESCAPE = '\\';
+
+    /** All the listing filters; any of them may be null. */
+    public static Specification<Document> matching(String author, String contentType, LocalDate uploadedFrom, LocalDate uploadedTo) {
+        return Specification.where(hasAuthor(author))
+                .and(hasContentType(contentType))
+                .and(uploadedBetween(uploadedFrom, uploadedTo));
+    }
+
     public static Specification<Document> hasAuthor(String author) {
         return (root, query, criteriaBuilder) -> {
             if (!StringUtils.hasText(author)) { // Check if author is null or empty/whitespace
                 return criteriaBuilder.conjunction(); // No filter applied, always true
             }
-            // Case-insensitive search for author
-            return criteriaBuilder.like(criteriaBuilder.lower(root.get("author")), "%" + author.toLowerCase() + "%");
+            // Case-insensitive, through the normalized column
+            return exactOrPrefix(criteriaBuilder, root.get("authorNormalized"), Document.normalizeAuthor(author));
         };
     }
 
@@ -26,16 +43,19 @@ public class DocumentSpecification {
             if (!StringUtils.hasText(contentType)) {
                 return criteriaBuilder.conjunction();
             }
-            // Exact match (case-insensitive often preferred for content types too)
-            return criteriaBuilder.equal(criteriaBuilder.lower(root.get("contentType")), contentType.toLowerCase());
+            return exactOrPrefix(criteriaBuilder, root.get("contentTypeNormalized"), Document.normalizeContentType(contentType));
         };
     }
 
-    public static Specification<Document> uploadDate(LocalDate uploadTimestamp) {
+    /** Documents uploaded on or after {@code from} and on or before {@code to}; either bound may be null. */
+    public static Specification<Document> uploadedBetween(LocalDate from, LocalDate to) {
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
-            if (uploadTimestamp != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("uploadTimestamp"), uploadTimestamp));
+            if (from != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("uploadTimestamp"), from));
+            }
+            if (to != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("uploadTimestamp"), to));
             }
             if (predicates.isEmpty()) {
                 return criteriaBuilder.conjunction();
@@ -43,4 +63,14 @@ public class DocumentSpecification {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
-}
\ No newline at end of file
+
+    // A LIKE with a constant prefix and no leading wildcard is still a B-tree range scan
+    private static Predicate exactOrPrefix(CriteriaBuilder criteriaBuilder, Expression<String> column, String value) {
+        if (!value.endsWith("*")) {
+            return criteriaBuilder.equal(column, value);
+        }
+        String prefix = value.substring(0, value.length() - 1)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return criteriaBuilder.like(column, prefix + "%", LIKE_ESCAPE);
+    }
+}
@@ -0,0 +1,439 @@
+package com.example.docDemo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index: term -> posting list of document IDs with term positions.
+ * <p>
+ * A query is tokenized the same way as documents. Consecutive query terms must appear
+ * as a phrase, and the last term matches as a prefix so that partially typed words
+ * ("invo" for "invoice") still find documents, close to what the old LIKE search did.
+ * <p>
+ * {@link #rank} answers parsed {@link Query queries} with AND/OR/phrase semantics, scored by
+ * BM25 from the statistics the index already holds: term frequency (positions per posting),
+ * document frequency (posting list size) and document length in terms. Only the best
+ * {@code limit} matches are kept, in a min-heap, so a query matching millions of documents
+ * costs one pass over them and O(log limit) per match, never a sort of all of them.
+ */
+public class InvertedIndex {
+
+    private static final long[] NO_MATCHES = new long[0];
+    // BM25 term frequency saturation and length normalization, the usual defaults
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Worst hit first, so the heap's head is the one to drop; equal scores prefer older documents
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score)
+            .thenComparing(Comparator.comparingLong(Hit::docId).reversed());
+
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    /** A ranked match. */
+    public record Hit(long docId, double score) {
+    }
+
+    /** The best matches of a ranked query, best first, and how many documents matched in all. */
+    public record Ranking(List<Hit> hits, int totalMatches) {
+    }
+
+    public void add(long docId, CharSequence content) {
+        add(docId, List.of(content).iterator());
+    }
+
+    /**
+     * Adds a document whose text arrives in pieces, e.g. the chunks of a very large document.
+     * Adding a document again replaces what was indexed for it before.
+     */
+    public void add(long docId, Iterator<? extends CharSequence> content) {
+        add(docId, analyze(content));
+    }
+
+    /**
+     * Tokenizes a document's text without touching the index, so the costly part of adding it
+     * can run ahead of {@link #add(long, DocumentTerms)}, e.g. before its transaction commits.
+     */
+    public static DocumentTerms analyze(Iterator<? extends CharSequence> content) {
+        DocumentTerms terms = new DocumentTerms();
+        Iterator<CharSequence> pieces = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return content.hasNext();
+            }
+
+            @Override
+            public CharSequence next() {
+                CharSequence piece = content.next();
+                terms.pieceStarts.add(terms.length);
+                return piece;
+            }
+        };
+        Tokenizer.tokenize(pieces, (term, position) -> {
+            terms.termPositions.computeIfAbsent(term, t -> new IntBuffer()).add(position);
+            terms.length++;
+        });
+        return terms;
+    }
+
+    public static DocumentTerms analyze(CharSequence content) {
+        return analyze(List.of(content).iterator());
+    }
+
+    /** Adds a document tokenized by {@link #analyze}, replacing what was indexed for it before. */
+    public void add(long docId, DocumentTerms terms) {
+        lock.writeLock().lock();
+        try {
+            if (documentLengths.containsKey(docId)) removePostings(docId);
+            for (Map.Entry<String, IntBuffer> entry : terms.termPositions.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new PostingList())
+                        .add(docId, entry.getValue().toArray());
+            }
+            Integer previous = documentLengths.put(docId, terms.length);
+            totalLength += terms.length - (previous != null ? previous : 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Sorted positions in {@code docId} of the terms starting with {@code prefix}; empty if there are none. */
+    public int[] prefixPositions(long docId, String prefix) {
+        lock.readLock().lock();
+        try {
+            int[] positions = prefixMatches(prefix).positions(docId);
+            return positions != null ? positions : new int[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of all documents matching {@code query}, in ascending order.
+     */
+    public long[] search(String query) {
+        List<String> terms = Tokenizer.terms(query);
+        if (terms.isEmpty()) return NO_MATCHES;
+
+        lock.readLock().lock();
+        try {
+            List<TermMatches> matches = new ArrayList<>(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                boolean last = i == terms.size() - 1;
+                TermMatches termMatches = last ? prefixMatches(terms.get(i)) : exactMatches(terms.get(i));
+                if (termMatches.isEmpty()) return NO_MATCHES;
+                matches.add(termMatches);
+            }
+            if (matches.size() == 1) {
+                return matches.get(0).docIds();
+            }
+            return phraseMatches(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The {@code limit} best-scoring documents matching {@code query}. */
+    public Ranking rank(Query query, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] matches = matches(query);
+            if (matches.length == 0 || limit <= 0) return new Ranking(List.of(), matches.length);
+
+            List<PostingList> scored = new ArrayList<>();
+            for (String term : query.terms()) {
+                scored.addAll(termMatches(query, term).lists);
+            }
+            double[] idf = new double[scored.size()];
+            for (int l = 0; l < idf.length; l++) {
+                idf[l] = idf(scored.get(l).size());
+            }
+            double averageLength = Math.max(1.0, (double) totalLength / Math.max(1, documentLengths.size()));
+
+            PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, matches.length) + 1, WORST_FIRST);
+            // Matches and posting lists are both in ID order, so each list is searched onward from the last hit
+            int[] cursors = new int[scored.size()];
+            for (long docId : matches) {
+                double norm = K1 * (1 - B + B * documentLengths.getOrDefault(docId, 0) / averageLength);
+                double score = 0;
+                for (int l = 0; l < cursors.length; l++) {
+                    PostingList list = scored.get(l);
+                    int index = list.indexOf(docId, cursors[l]);
+                    if (index >= 0) {
+                        int tf = list.positions(index).length;
+                        score += idf[l] * tf * (K1 + 1) / (tf + norm);
+                        cursors[l] = index + 1;
+                    } else {
+                        cursors[l] = -index - 1;
+                    }
+                }
+                if (best.size() < limit) {
+                    best.add(new Hit(docId, score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Hit(docId, score));
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(WORST_FIRST.reversed());
+            return new Ranking(hits, matches.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return documentLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentLengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Re-indexing is rare, so the terms of a document are not kept; every list is searched instead
+    private void removePostings(long docId) {
+        Iterator<PostingList> lists = postings.values().iterator();
+        while (lists.hasNext()) {
+            PostingList list = lists.next();
+            if (list.remove(docId) && list.size() == 0) lists.remove();
+        }
+    }
+
+    /** IDs of the documents matching a parsed query, in ascending order. */
+    private long[] matches(Query query) {
+        if (query instanceof Query.Term term) {
+            return (term.prefix() ? prefixMatches(term.term()) : exactMatches(term.term())).docIds();
+        }
+        if (query instanceof Query.Phrase phrase) {
+            List<TermMatches> matches = new ArrayList<>(phrase.terms().size());
+            for (String term : phrase.terms()) {
+                TermMatches termMatches = exactMatches(term);
+                if (termMatches.isEmpty()) return NO_MATCHES;
+                matches.add(termMatches);
+            }
+            return phraseMatches(matches);
+        }
+        if (query instanceof Query.And and) {
+            long[] result = null;
+            for (Query clause : and.clauses()) {
+                long[] clauseMatches = matches(clause);
+                result = result == null ? clauseMatches : intersect(result, clauseMatches);
+                if (result.length == 0) return NO_MATCHES;
+            }
+            return result != null ? result : NO_MATCHES;
+        }
+        long[] result = NO_MATCHES;
+        for (Query clause : ((Query.Or) query).clauses()) {
+            result = union(result, matches(clause));
+        }
+        return result;
+    }
+
+    /** Postings that score {@code term}: all expansions if it is used as a prefix anywhere in the query. */
+    private TermMatches termMatches(Query query, String term) {
+        return isPrefix(query, term) ? prefixMatches(term) : exactMatches(term);
+    }
+
+    private static boolean isPrefix(Query query, String term) {
+        if (query instanceof Query.Term t) return t.prefix() && t.term().equals(term);
+        if (query instanceof Query.And and) return and.clauses().stream().anyMatch(clause -> isPrefix(clause, term));
+        if (query instanceof Query.Or or) return or.clauses().stream().anyMatch(clause -> isPrefix(clause, term));
+        return false;
+    }
+
+    /** BM25 inverse document frequency; never negative, even for terms in most documents. */
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (documentLengths.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+        long[] result = new long[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) result[count++] = a[i++];
+            else if (i == a.length || b[j] < a[i]) result[count++] = b[j++];
+            else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private TermMatches exactMatches(String term) {
+        PostingList list = postings.get(term);
+        return new TermMatches(list == null ? List.of() : List.of(list));
+    }
+
+    private TermMatches prefixMatches(String prefix) {
+        // Every term in [prefix, prefix + MAX_VALUE) starts with prefix
+        return new TermMatches(new ArrayList<>(postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()));
+    }
+
+    private long[] phraseMatches(List<TermMatches> matches) {
+        TermMatches driver = matches.get(0);
+        for (TermMatches candidate : matches) {
+            if (candidate.estimatedSize() < driver.estimatedSize()) driver = candidate;
+        }
+        long[] candidates = driver.docIds();
+        long[] result = new long[candidates.length];
+        int count = 0;
+        for (long docId : candidates) {
+            if (isPhraseMatch(docId, matches)) {
+                result[count++] = docId;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static boolean isPhraseMatch(long docId, List<TermMatches> matches) {
+        int[][] positions = new int[matches.size()][];
+        for (int i = 0; i < matches.size(); i++) {
+            positions[i] = matches.get(i).positions(docId);
+            if (positions[i] == null) return false;
+        }
+        for (int start : positions[0]) {
+            boolean phrase = true;
+            for (int i = 1; i < positions.length && phrase; i++) {
+                phrase = Arrays.binarySearch(positions[i], start + i) >= 0;
+            }
+            if (phrase) return true;
+        }
+        return false;
+    }
+
+    /** Postings of one query term; several lists when the term was prefix-expanded. */
+    private static final class TermMatches {
+
+        private final List<PostingList> lists;
+
+        TermMatches(List<PostingList> lists) {
+            this.lists = lists;
+        }
+
+        boolean isEmpty() {
+            return lists.isEmpty();
+        }
+
+        int estimatedSize() {
+            int size = 0;
+            for (PostingList list : lists) size += list.size();
+            return size;
+        }
+
+        long[] docIds() {
+            long[] ids = new long[estimatedSize()];
+            int count = 0;
+            for (PostingList list : lists) {
+                for (int i = 0; i < list.size(); i++) ids[count++] = list.docId(i);
+            }
+            if (lists.size() == 1) return ids;
+            Arrays.sort(ids);
+            int unique = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (i == 0 || ids[i] != ids[i - 1]) ids[unique++] = ids[i];
+            }
+            return Arrays.copyOf(ids, unique);
+        }
+
+        /** Sorted positions of this term in {@code docId}, or null if the document lacks it. */
+        int[] positions(long docId) {
+            int[] merged = null;
+            for (PostingList list : lists) {
+                int index = list.indexOf(docId);
+                if (index < 0) continue;
+                int[] found = list.positions(index);
+                if (merged == null) {
+                    merged = found;
+                } else {
+                    int[] combined = Arrays.copyOf(merged, merged.length + found.length);
+                    System.arraycopy(found, 0, combined, merged.length, found.length);
+                    Arrays.sort(combined);
+                    merged = combined;
+                }
+            }
+            return merged;
+        }
+    }
+
+    /** The tokenized text of one document, ready to {@link #add(long, DocumentTerms) add}. */
+    public static final class DocumentTerms {
+
+        private final Map<String, IntBuffer> termPositions = new HashMap<>();
+        private final IntBuffer pieceStarts = new IntBuffer();
+        private int length;
+
+        private DocumentTerms() {
+        }
+
+        /** Position of the first term of each piece the text arrived in, e.g. of each chunk. */
+        public int[] pieceStarts() {
+            return pieceStarts.toArray();
+        }
+    }
+
+    private static final class IntBuffer {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.docDemo.search;
+
+import java.util.Arrays;
+
+/**
+ * Document IDs containing a term, kept in ascending order, each with the sorted
+ * positions at which the term occurs. Not thread-safe; guarded by {@link InvertedIndex}.
+ */
+final class PostingList {
+
+    private long[] docIds = new long[4];
+    private int[][] positions = new int[4][];
+    private int size;
+
+    void add(long docId, int[] termPositions) {
+        // Ingestion mostly hands out increasing IDs, so appending is the common case
+        if (size == 0 || docIds[size - 1] < docId) {
+            ensureCapacity();
+            docIds[size] = docId;
+            positions[size] = termPositions;
+            size++;
+            return;
+        }
+        int index = Arrays.binarySearch(docIds, 0, size, docId);
+        if (index >= 0) {
+            positions[index] = termPositions; // re-indexing the same document replaces it
+            return;
+        }
+        int insertAt = -index - 1;
+        ensureCapacity();
+        System.arraycopy(docIds, insertAt, docIds, insertAt + 1, size - insertAt);
+        System.arraycopy(positions, insertAt, positions, insertAt + 1, size - insertAt);
+        docIds[insertAt] = docId;
+        positions[insertAt] = termPositions;
+        size++;
+    }
+
+    /** Removes {@code docId}; returns whether it was present. */
+    boolean remove(long docId) {
+        int index = indexOf(docId);
+        if (index < 0) return false;
+        System.arraycopy(docIds, index + 1, docIds, index, size - index - 1);
+        System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+        size--;
+        positions[size] = null;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long docId(int index) {
+        return docIds[index];
+    }
+
+    int[] positions(int index) {
+        return positions[index];
+    }
+
+    /** Index of {@code docId} in this list, or a negative value if absent. */
+    int indexOf(long docId) {
+        return Arrays.binarySearch(docIds, 0, size, docId);
+    }
+
+    /** Like {@link #indexOf(long)}, searching only from {@code from}; for walking the list in ID order. */
+    int indexOf(long docId, int from) {
+        return Arrays.binarySearch(docIds, from, size, docId);
+    }
+
+    private void ensureCapacity() {
+        if (size == docIds.length) {
+            int capacity = docIds.length + (docIds.length >> 1) + 1;
+            docIds = Arrays.copyOf(docIds, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.docDemo.search;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A parsed ranked-search query, see {@link QueryParser}. Terms are already case-folded by
+ * the {@link Tokenizer}.
+ */
+public sealed interface Query {
+
+    /** One term; with {@code prefix} it matches every term starting with it. */
+    record Term(String term, boolean prefix) implements Query {
+    }
+
+    /** Terms that must occur consecutively, in order. */
+    record Phrase(List<String> terms) implements Query {
+    }
+
+    /** Documents matching all clauses. */
+    record And(List<Query> clauses) implements Query {
+    }
+
+    /** Documents matching any clause; with no clauses, none. */
+    record Or(List<Query> clauses) implements Query {
+    }
+
+    /** The distinct terms of the query in order, e.g. to highlight them in snippets. */
+    default List<String> terms() {
+        Set<String> terms = new LinkedHashSet<>();
+        collectTerms(this, terms);
+        return List.copyOf(terms);
+    }
+
+    private static void collectTerms(Query query, Set<String> terms) {
+        if (query instanceof Term term) {
+            terms.add(term.term());
+        } else if (query instanceof Phrase phrase) {
+            terms.addAll(phrase.terms());
+        } else if (query instanceof And and) {
+            and.clauses().forEach(clause -> collectTerms(clause, terms));
+        } else if (query instanceof Or or) {
+            or.clauses().forEach(clause -> collectTerms(clause, terms));
+        }
+    }
+}
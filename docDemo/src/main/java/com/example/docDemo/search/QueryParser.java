@@ -0,0 +1,67 @@
+package com.example.docDemo.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the ranked-search query syntax:
+ * <ul>
+ *   <li>words separated by spaces must all match ({@code AND} may be written but is the default),</li>
+ *   <li>{@code OR} between words or groups matches either side, and binds looser than AND,
+ *       so {@code a b OR c} is {@code (a AND b) OR c},</li>
+ *   <li>{@code "quoted words"} match as a phrase,</li>
+ *   <li>a trailing {@code *} matches as a prefix: {@code invo*}.</li>
+ * </ul>
+ * Operators are only recognised in upper case. A word the tokenizer splits, such as
+ * {@code e-mail}, matches as a phrase, like it does in the plain keyword search. Anything
+ * unparseable degrades to plain terms rather than failing: a lone operator is ignored and
+ * an unclosed quote runs to the end.
+ */
+public final class QueryParser {
+
+    private QueryParser() {
+    }
+
+    public static Query parse(String text) {
+        List<Query> alternatives = new ArrayList<>();
+        List<Query> clauses = new ArrayList<>();
+        int i = 0;
+        int length = text == null ? 0 : text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0) end = length;
+                addClause(clauses, Tokenizer.terms(text.substring(i + 1, end)), false);
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < length && !Character.isWhitespace(text.charAt(end)) && text.charAt(end) != '"') end++;
+                String word = text.substring(i, end);
+                if (word.equals("OR")) {
+                    if (!clauses.isEmpty()) alternatives.add(all(clauses));
+                    clauses = new ArrayList<>();
+                } else if (!word.equals("AND")) {
+                    addClause(clauses, Tokenizer.terms(word), word.endsWith("*"));
+                }
+                i = end;
+            }
+        }
+        if (!clauses.isEmpty()) alternatives.add(all(clauses));
+        return alternatives.size() == 1 ? alternatives.get(0) : new Query.Or(alternatives);
+    }
+
+    private static void addClause(List<Query> clauses, List<String> terms, boolean prefix) {
+        if (terms.size() == 1) {
+            clauses.add(new Query.Term(terms.get(0), prefix));
+        } else if (terms.size() > 1) {
+            clauses.add(new Query.Phrase(terms));
+        }
+    }
+
+    private static Query all(List<Query> clauses) {
+        return clauses.size() == 1 ? clauses.get(0) : new Query.And(List.copyOf(clauses));
+    }
+}
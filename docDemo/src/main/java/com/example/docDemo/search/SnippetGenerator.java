@@ -0,0 +1,217 @@
+package com.example.docDemo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cuts snippets and highlighted fragments out of document text for search hits.
+ * <p>
+ * Matching is case-insensitive and done in place with {@link String#regionMatches}, so the
+ * document is never copied or lowercased; only the returned strings are allocated. Query
+ * terms are matched at word starts, the same way the {@link InvertedIndex} matches them.
+ * <p>
+ * Snippets are rendered as HTML, so every piece of document text is HTML-escaped as it is
+ * copied out; only the configured tags and the ellipsis are added unescaped.
+ */
+public class SnippetGenerator {
+
+    private static final String ELLIPSIS = "...";
+    private static final long NO_MATCH = -1L;
+    // Fragments are widened to whole words, but not by more than this
+    private static final int MAX_WORD_EXTENSION = 20;
+
+    private final int fragmentSize;
+    private final int maxFragments;
+    private final String preTag;
+    private final String postTag;
+
+    public SnippetGenerator(int fragmentSize, int maxFragments, String preTag, String postTag) {
+        this.fragmentSize = fragmentSize;
+        this.maxFragments = maxFragments;
+        this.preTag = preTag;
+        this.postTag = postTag;
+    }
+
+    /**
+     * Escaped text of about {@code fragmentSize} chars centred on the first match of
+     * {@code keyword} (or of one of its terms), with "..." where text was cut. Without a
+     * match, the start of the document.
+     */
+    public String snippet(String content, String keyword) {
+        if (content == null || keyword == null || keyword.isEmpty()) return "";
+        int length = keyword.length();
+        int index = indexOfIgnoreCase(content, keyword, 0);
+        if (index < 0) {
+            String[] terms = queryTerms(keyword);
+            long match = nextMatch(content, terms, 0);
+            if (match != NO_MATCH) {
+                index = matchIndex(match);
+                length = matchLength(match);
+            }
+        }
+        if (index < 0) {
+            int end = Math.min(content.length(), fragmentSize);
+            StringBuilder head = appendEscaped(new StringBuilder(end + ELLIPSIS.length()), content, 0, end);
+            return (content.length() > fragmentSize ? head.append(ELLIPSIS) : head).toString();
+        }
+        int start = Math.max(0, index - (fragmentSize / 2));
+        int end = Math.min(content.length(), index + length + (fragmentSize / 2));
+        StringBuilder snippet = new StringBuilder(end - start + 2 * ELLIPSIS.length());
+        if (start > 0) snippet.append(ELLIPSIS);
+        appendEscaped(snippet, content, start, end);
+        if (end < content.length()) snippet.append(ELLIPSIS);
+        return snippet.toString();
+    }
+
+    /**
+     * Up to {@code maxFragments} non-overlapping fragments of about {@code fragmentSize}
+     * chars, in document order, with every query term occurrence wrapped in the tags.
+     */
+    public List<String> highlights(String content, String keyword) {
+        List<String> fragments = new ArrayList<>(Math.min(maxFragments, 4));
+        if (content == null || keyword == null || keyword.isBlank()) return fragments;
+        String[] terms = queryTerms(keyword);
+        if (terms.length == 0) return fragments;
+
+        int from = 0;
+        while (fragments.size() < maxFragments) {
+            long match = nextMatch(content, terms, from);
+            if (match == NO_MATCH) break;
+            int start = wordStart(content, Math.max(from, matchIndex(match) - fragmentSize / 3), from);
+            int end = wordEnd(content, Math.min(content.length(), start + fragmentSize), MAX_WORD_EXTENSION);
+            fragments.add(highlight(content, terms, start, end, match));
+            from = end;
+        }
+        return fragments;
+    }
+
+    private String highlight(String content, String[] terms, int start, int end, long firstMatch) {
+        StringBuilder fragment = new StringBuilder(end - start + 4 * (preTag.length() + postTag.length()) + 2 * ELLIPSIS.length());
+        if (start > 0) fragment.append(ELLIPSIS);
+        int copied = start;
+        long match = firstMatch;
+        while (match != NO_MATCH && matchIndex(match) < end) {
+            int matchStart = matchIndex(match);
+            int matchEnd = Math.min(end, matchStart + matchLength(match));
+            appendEscaped(fragment, content, copied, matchStart).append(preTag);
+            appendEscaped(fragment, content, matchStart, matchEnd).append(postTag);
+            copied = matchEnd;
+            match = nextMatch(content, terms, matchEnd);
+        }
+        appendEscaped(fragment, content, copied, end);
+        if (end < content.length()) fragment.append(ELLIPSIS);
+        return fragment.toString();
+    }
+
+    /** Appends {@code content[start, end)} HTML-escaped, copying unescaped runs in one go. */
+    private static StringBuilder appendEscaped(StringBuilder out, String content, int start, int end) {
+        int run = start;
+        for (int i = start; i < end; i++) {
+            String entity = switch (content.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entity != null) {
+                out.append(content, run, i).append(entity);
+                run = i + 1;
+            }
+        }
+        return out.append(content, run, end);
+    }
+
+    /**
+     * Finds the next occurrence at or after {@code from} of any term at a word start.
+     * Returns the index and length packed into a long (to avoid allocating), or {@link #NO_MATCH}.
+     * Candidates are found with {@link String#indexOf(int, int)} on each term's first letter in
+     * both cases, which the JIT vectorizes, and only then compared with regionMatches.
+     */
+    private static long nextMatch(String content, String[] terms, int from) {
+        char[] firstChars = new char[terms.length * 2];
+        int[] next = new int[firstChars.length];
+        for (int t = 0; t < terms.length; t++) {
+            firstChars[2 * t] = Character.toLowerCase(terms[t].charAt(0));
+            firstChars[2 * t + 1] = Character.toUpperCase(terms[t].charAt(0));
+        }
+        Arrays.fill(next, Integer.MIN_VALUE);
+        int i = from;
+        while (true) {
+            int candidate = nextCandidate(content, firstChars, next, i);
+            if (candidate < 0) return NO_MATCH;
+            if (candidate == 0 || !Character.isLetterOrDigit(content.charAt(candidate - 1))) {
+                for (String term : terms) {
+                    if (content.regionMatches(true, candidate, term, 0, term.length())) {
+                        return ((long) candidate << 32) | (wordEnd(content, candidate + term.length()) - candidate);
+                    }
+                }
+            }
+            i = candidate + 1;
+        }
+    }
+
+    /**
+     * Smallest index at or after {@code from} of any of {@code chars}. {@code next} caches the
+     * last position found per char (-1 once exhausted) so each char is scanned only once overall.
+     */
+    private static int nextCandidate(String content, char[] chars, int[] next, int from) {
+        int candidate = -1;
+        for (int k = 0; k < chars.length; k++) {
+            if (next[k] != -1 && next[k] < from) {
+                next[k] = content.indexOf(chars[k], from);
+            }
+            if (next[k] >= 0 && (candidate < 0 || next[k] < candidate)) {
+                candidate = next[k];
+            }
+        }
+        return candidate;
+    }
+
+    private static int matchIndex(long match) {
+        return (int) (match >>> 32);
+    }
+
+    private static int matchLength(long match) {
+        return (int) match;
+    }
+
+    /** Extends a prefix match to the end of the word, so "invo" highlights "invoice". */
+    private static int wordEnd(String content, int index) {
+        return wordEnd(content, index, Integer.MAX_VALUE);
+    }
+
+    /** Moves a cut forward out of the middle of a word, by at most {@code maxChars}. */
+    private static int wordEnd(String content, int index, int maxChars) {
+        int limit = (int) Math.min(content.length(), (long) index + maxChars);
+        while (index > 0 && index < limit && Character.isLetterOrDigit(content.charAt(index))
+                && Character.isLetterOrDigit(content.charAt(index - 1))) index++;
+        return index;
+    }
+
+    /** Moves a cut back to the start of the word it falls in, but not before {@code floor}. */
+    private static int wordStart(String content, int index, int floor) {
+        int limit = Math.max(floor, index - MAX_WORD_EXTENSION);
+        while (index > limit && Character.isLetterOrDigit(content.charAt(index - 1))) index--;
+        return index;
+    }
+
+    static int indexOfIgnoreCase(String content, String keyword, int from) {
+        char[] firstChars = {Character.toLowerCase(keyword.charAt(0)), Character.toUpperCase(keyword.charAt(0))};
+        int[] next = {Integer.MIN_VALUE, Integer.MIN_VALUE};
+        int last = content.length() - keyword.length();
+        int i = from;
+        while (true) {
+            int candidate = nextCandidate(content, firstChars, next, i);
+            if (candidate < 0 || candidate > last) return -1;
+            if (content.regionMatches(true, candidate, keyword, 0, keyword.length())) return candidate;
+            i = candidate + 1;
+        }
+    }
+
+    private static String[] queryTerms(String keyword) {
+        return Tokenizer.terms(keyword).toArray(new String[0]);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.docDemo.search;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Splits text into case-folded terms. A term is a maximal run of letters or digits;
+ * everything else is a separator. Positions are the ordinal of the term in the text.
+ */
+public final class Tokenizer {
+
+    // Terms longer than this are almost always encoded blobs rather than words
+    static final int MAX_TERM_LENGTH = 64;
+
+    @FunctionalInterface
+    public interface TermConsumer {
+        void accept(String term, int position);
+    }
+
+    private Tokenizer() {
+    }
+
+    public static void tokenize(CharSequence text, TermConsumer consumer) {
+        if (text == null) return;
+        tokenize(List.of(text).iterator(), consumer);
+    }
+
+    /**
+     * Tokenizes text that arrives in pieces as if it were one string: a term cut by a piece
+     * boundary is joined, and positions continue across pieces.
+     */
+    public static void tokenize(Iterator<? extends CharSequence> pieces, TermConsumer consumer) {
+        StringBuilder term = new StringBuilder(16);
+        int position = 0;
+        while (pieces.hasNext()) {
+            CharSequence text = pieces.next();
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    term.append(Character.toLowerCase(c));
+                } else if (term.length() > 0) {
+                    position = emit(term, position, consumer);
+                }
+            }
+        }
+        if (term.length() > 0) {
+            emit(term, position, consumer);
+        }
+    }
+
+    public static List<String> terms(CharSequence text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, (term, position) -> terms.add(term));
+        return terms;
+    }
+
+    private static int emit(StringBuilder term, int position, TermConsumer consumer) {
+        if (term.length() <= MAX_TERM_LENGTH) {
+            consumer.accept(term.toString(), position);
+        }
+        term.setLength(0);
+        return position + 1;
+    }
+}
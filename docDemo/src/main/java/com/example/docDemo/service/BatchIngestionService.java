@@ -0,0 +1,342 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.dto.BatchIngestionResultDTO;
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.entity.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Ingests many files in one request as a three-stage pipeline: files (or zip entries) are
+ * spooled to disk one at a time, extraction runs in parallel on the extraction executor,
+ * and finished documents are saved in JDBC-batched transactions. A file that fails is
+ * reported in the result without affecting the others; if a batch insert fails, its
+ * documents are saved again one by one.
+ * <p>
+ * Zip archives are read within {@code docdemo.ingestion.batch.archive.*} limits, since
+ * their uncompressed size is not bounded by the multipart limits: an entry larger than
+ * {@code max-entry-size} is reported as failed, and entries past {@code max-entries} or
+ * {@code max-total-size} are not read at all.
+ */
+@Service
+public class BatchIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchIngestionService.class);
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private TextExtractionService textExtractionService;
+
+    @Autowired
+    private UploadSpooler uploadSpooler;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    @Qualifier("extractionExecutor")
+    private ThreadPoolTaskExecutor extractionExecutor;
+
+    @Value("${docdemo.ingestion.batch.persist-size:50}")
+    private int persistBatchSize;
+
+    @Value("${docdemo.ingestion.batch.archive.max-entries:1000}")
+    private int maxArchiveEntries;
+
+    @Value("${docdemo.ingestion.batch.archive.max-entry-size:50MB}")
+    private DataSize maxArchiveEntrySize;
+
+    @Value("${docdemo.ingestion.batch.archive.max-total-size:500MB}")
+    private DataSize maxArchiveTotalSize;
+
+    private record Extracted(String filename, Document document, String error) {
+    }
+
+    /**
+     * {@link #ingest} as a task to run off the request thread, on behalf of the request's
+     * client, whose read-your-writes window then covers the stored documents.
+     */
+    public Callable<BatchIngestionResultDTO> ingestLater(List<MultipartFile> files, MultipartFile archive, String author) {
+        String client = readYourWrites.currentClient();
+        return () -> {
+            try {
+                return readYourWrites.callOnPrimary(client, () -> {
+                    try {
+                        return ingest(files, archive, author);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    public BatchIngestionResultDTO ingest(List<MultipartFile> files, MultipartFile archive, String author) throws IOException {
+        BatchResult result = new BatchResult();
+        ExtractionPipeline pipeline = new ExtractionPipeline(author, result);
+        if (files != null) {
+            for (MultipartFile file : files) {
+                if (file.isEmpty()) continue;
+                String filename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown_file";
+                try (InputStream in = file.getInputStream()) {
+                    pipeline.submit(spool(in, filename, textExtractionService.resolveContentType(file.getContentType(), filename)));
+                }
+            }
+        }
+        if (archive != null && !archive.isEmpty()) {
+            ingestArchive(archive, pipeline, result);
+        }
+        pipeline.finish();
+        log.info("Batch ingestion finished: {} succeeded, {} failed", result.documents.size(), result.errors.size());
+        return result.toDTO();
+    }
+
+    private void ingestArchive(MultipartFile archive, ExtractionPipeline pipeline, BatchResult result) throws IOException {
+        String archiveName = archive.getOriginalFilename() != null ? archive.getOriginalFilename() : "archive";
+        long remaining = maxArchiveTotalSize.toBytes();
+        int entries = 0;
+        try (ZipInputStream zip = new ZipInputStream(archive.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String filename = entryFilename(entry);
+                if (filename == null) continue;
+                if (++entries > maxArchiveEntries) {
+                    result.errors.add(new BatchIngestionResultDTO.FileError(archiveName,
+                            "Archive has more than " + maxArchiveEntries + " files; the rest were not ingested."));
+                    return;
+                }
+                boolean totalBound = remaining < maxArchiveEntrySize.toBytes();
+                BoundedEntryStream in = new BoundedEntryStream(zip, totalBound ? remaining : maxArchiveEntrySize.toBytes());
+                try {
+                    pipeline.submit(spool(in, filename, textExtractionService.contentTypeForFilename(filename)));
+                } catch (EntryTooLargeException e) {
+                    metrics.failure("batch-archive", e);
+                    if (totalBound) {
+                        result.errors.add(new BatchIngestionResultDTO.FileError(archiveName, "Archive expands to more than "
+                                + maxArchiveTotalSize + "; " + filename + " and the files after it were not ingested."));
+                        return;
+                    }
+                    result.errors.add(new BatchIngestionResultDTO.FileError(filename,
+                            "File is larger than the " + maxArchiveEntrySize + " allowed for archive entries."));
+                }
+                remaining = Math.max(0, remaining - in.count);
+            }
+        }
+    }
+
+    /** The entry's file name without its folders (either separator), or null for folders. */
+    private static String entryFilename(ZipEntry entry) {
+        if (entry.isDirectory()) return null;
+        String filename = StringUtils.getFilename(entry.getName().replace('\\', '/'));
+        return StringUtils.hasText(filename) ? filename : null;
+    }
+
+    private SpooledUpload spool(InputStream in, String filename, String contentType) throws IOException {
+        long receiving = metrics.start();
+        SpooledUpload upload = uploadSpooler.spool(in, filename, contentType);
+        metrics.stop(receiving, PipelineMetrics.RECEIVE, "mode", "batch");
+        return upload;
+    }
+
+    private static final class BatchResult {
+
+        private final List<DocumentMetadataDTO> documents = new ArrayList<>();
+        private final List<BatchIngestionResultDTO.FileError> errors = new ArrayList<>();
+
+        BatchIngestionResultDTO toDTO() {
+            return new BatchIngestionResultDTO(documents.size() + errors.size(), documents.size(), errors.size(), documents, errors);
+        }
+    }
+
+    /**
+     * Keeps at most two extractions per extraction thread in flight, so spooled files
+     * waiting on disk and documents waiting in memory stay bounded however big the batch is.
+     */
+    private final class ExtractionPipeline {
+
+        private final String author;
+        private final BatchResult result;
+        // Extraction threads look up duplicates for the request's client, on the primary
+        private final String client = readYourWrites.currentClient();
+        private final ExecutorCompletionService<Extracted> completion =
+                new ExecutorCompletionService<>(extractionExecutor.getThreadPoolExecutor());
+        private final int window = extractionExecutor.getMaxPoolSize() * 2;
+        private final List<Document> pending = new ArrayList<>();
+        private int inFlight;
+
+        ExtractionPipeline(String author, BatchResult result) {
+            this.author = author;
+            this.result = result;
+        }
+
+        void submit(SpooledUpload upload) {
+            while (inFlight >= window) {
+                collect();
+            }
+            long queued = metrics.start();
+            completion.submit(() -> {
+                metrics.stop(queued, PipelineMetrics.QUEUE_WAIT, "executor", "extractionExecutor");
+                return readYourWrites.callOnPrimary(client, () -> extract(upload));
+            });
+            inFlight++;
+        }
+
+        void finish() {
+            while (inFlight > 0) {
+                collect();
+            }
+            flush();
+        }
+
+        private Extracted extract(SpooledUpload upload) {
+            try (upload) {
+                return new Extracted(upload.getFilename(), documentService.prepareDocument(upload, author), null);
+            } catch (Exception e) {
+                log.warn("Batch extraction failed for file {}: {}", upload.getFilename(), e.getMessage());
+                metrics.failure("batch-extract", e);
+                return new Extracted(upload.getFilename(), null, e.getMessage());
+            }
+        }
+
+        private void collect() {
+            Extracted extracted;
+            try {
+                extracted = completion.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Batch ingestion was interrupted.", e);
+            } catch (ExecutionException e) {
+                // extract() catches everything, so this is unexpected
+                throw new IllegalStateException("Batch extraction task failed.", e.getCause());
+            }
+            inFlight--;
+            if (extracted.error() != null) {
+                result.errors.add(new BatchIngestionResultDTO.FileError(extracted.filename(), extracted.error()));
+                return;
+            }
+            pending.add(extracted.document());
+            if (pending.size() >= persistBatchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) return;
+            long saving = metrics.start();
+            try {
+                result.documents.addAll(documentService.saveBatch(pending));
+                metrics.stop(saving, PipelineMetrics.SAVE, "mode", "batch");
+            } catch (Exception e) {
+                log.warn("Saving a batch of {} documents failed ({}); saving them one by one", pending.size(), e.getMessage());
+                metrics.failure("batch-save", e);
+                saveOneByOne();
+            }
+            pending.clear();
+        }
+
+        private void saveOneByOne() {
+            // Duplicates within the batch point at their original's ID from the rolled-back insert
+            Map<Long, Long> savedIds = new HashMap<>();
+            for (Document document : pending) {
+                Long batchId = document.getId();
+                // Without the rolled-back ID the document is persisted again, not merged
+                document.setId(null);
+                if (document.getDuplicateOfId() != null) {
+                    document.setDuplicateOfId(savedIds.getOrDefault(document.getDuplicateOfId(), document.getDuplicateOfId()));
+                }
+                if (document.getChunkCount() != null && document.getChunkSpool() == null) {
+                    // Its chunks were read from the spool, and deleted, by the failed batch
+                    result.errors.add(new BatchIngestionResultDTO.FileError(document.getFilename(),
+                            "Failed to save document; its extracted text was lost with the failed batch, please upload it again."));
+                    continue;
+                }
+                try {
+                    DocumentMetadataDTO saved = documentService.saveBatch(List.of(document)).get(0);
+                    result.documents.add(saved);
+                    if (batchId != null) savedIds.put(batchId, saved.getId());
+                } catch (Exception e) {
+                    log.warn("Saving document {} failed: {}", document.getFilename(), e.getMessage());
+                    metrics.failure("batch-save", e);
+                    documentContentService.discard(document);
+                    result.errors.add(new BatchIngestionResultDTO.FileError(document.getFilename(), "Failed to save document: " + e.getMessage()));
+                }
+            }
+        }
+    }
+
+    private static final class EntryTooLargeException extends IOException {
+        EntryTooLargeException() {
+            super("Archive entry exceeds its size limit");
+        }
+    }
+
+    /**
+     * One archive entry, failing once more than {@code limit} bytes have been read from it.
+     * Closing it leaves the archive open for the next entry.
+     */
+    private static final class BoundedEntryStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        BoundedEntryStream(InputStream entry, long limit) {
+            super(entry);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) counted(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) counted(n);
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void counted(int n) throws EntryTooLargeException {
+            count += n;
+            if (count > limit) throw new EntryTooLargeException();
+        }
+    }
+}
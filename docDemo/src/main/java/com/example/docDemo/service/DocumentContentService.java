@@ -0,0 +1,281 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.storage.ChunkedTextSpool;
+import com.example.docDemo.storage.ContentCodec;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads and writes the extracted text of documents, so callers never deal with how it
+ * is stored:
+ * <ul>
+ *   <li>as plain text in {@code content} (codec {@code none}),</li>
+ *   <li>compressed in {@code compressed_content}, with {@code content_codec} naming the
+ *       format and {@code content} left empty,</li>
+ *   <li>for very large documents, as ordered chunks in {@code document_chunks}, each plain
+ *       or compressed with the document's codec, with {@code chunk_count} set,</li>
+ *   <li>or not at all, for re-uploads that point at the original with {@code duplicateOfId}.</li>
+ * </ul>
+ * Compressed text is only read and decompressed when {@link #contentOf} is called, i.e. for
+ * snippets and indexing: the column is lazy, so loading a Document does not fetch it. Chunked text is read one chunk at a
+ * time with {@link #chunks} or {@link #readChunk}; {@link #contentOf} assembles it whole.
+ */
+@Service
+public class DocumentContentService {
+
+    private static final int CHUNK_INSERT_BATCH = 8;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${docdemo.storage.content.codec:none}")
+    private String codecName;
+
+    @Value("${docdemo.storage.content.zstd-level:3}")
+    private int zstdLevel;
+
+    @Value("${docdemo.storage.chunk.size:262144}")
+    private int chunkSize;
+
+    @Value("${docdemo.ingestion.spool-dir:}")
+    private String spoolDir;
+
+    public String contentOf(Document document) {
+        if (document.getDuplicateOfId() != null) {
+            return documentRepository.findById(document.getDuplicateOfId())
+                    .map(this::contentOf)
+                    .orElse("");
+        }
+        if (isChunked(document)) {
+            StringBuilder text = new StringBuilder();
+            chunks(document).forEachRemaining(text::append);
+            return text.toString();
+        }
+        if (document.getContentCodec() != null) {
+            return ContentCodec.valueOf(document.getContentCodec()).decode(compressedContentOf(document));
+        }
+        return document.getContent();
+    }
+
+    /** compressed_content is lazy: read it with its own query unless it is already loaded, so detached documents work too. */
+    private byte[] compressedContentOf(Document document) {
+        if (Hibernate.isPropertyInitialized(document, "compressedContent")) return document.getCompressedContent();
+        return jdbcTemplate.queryForObject("SELECT compressed_content FROM files WHERE id = ?", byte[].class, document.getId());
+    }
+
+    /** Stores {@code text} on the document in the configured format. */
+    public void setContent(Document document, String text) {
+        ContentCodec codec = configuredCodec();
+        document.setChunkCount(null);
+        if (codec == null) {
+            document.setContent(text);
+            document.setCompressedContent(null);
+            document.setContentCodec(null);
+        } else {
+            // content is NOT NULL in existing schemas, so it is emptied rather than nulled
+            document.setContent("");
+            document.setCompressedContent(codec.encode(text, zstdLevel));
+            document.setContentCodec(codec.name());
+        }
+    }
+
+    /** A writer for the extracted text of a very large document; pass it to {@link #setChunkedContent} once closed. */
+    public ChunkedTextSpool newChunkSpool() throws IOException {
+        return new ChunkedTextSpool(StringUtils.hasText(spoolDir) ? Path.of(spoolDir) : null, chunkSize);
+    }
+
+    /**
+     * Marks the document as stored in chunks of the spooled text, in the configured format.
+     * The chunks are written by {@link #writeChunks} when the document is saved.
+     */
+    public void setChunkedContent(Document document, ChunkedTextSpool spool) {
+        ContentCodec codec = configuredCodec();
+        document.setContent("");
+        document.setCompressedContent(null);
+        document.setContentCodec(codec != null ? codec.name() : null);
+        document.setChunkCount(spool.chunkCount());
+        document.setChunkSpool(spool);
+    }
+
+    /**
+     * Inserts the spooled chunks of a just-saved document, a few rows per JDBC batch, and
+     * deletes the spool. Must run in the transaction that saved the document.
+     */
+    public void writeChunks(Document document) {
+        ChunkedTextSpool spool = document.getChunkSpool();
+        if (spool == null) return;
+        ContentCodec codec = document.getContentCodec() != null ? ContentCodec.valueOf(document.getContentCodec()) : null;
+        List<Object[]> batch = new ArrayList<>(CHUNK_INSERT_BATCH);
+        try {
+            spool.forEachChunk((index, chunk) -> {
+                batch.add(new Object[]{document.getId(), index,
+                        codec == null ? chunk : null, codec == null ? null : codec.encode(chunk, zstdLevel)});
+                if (batch.size() == CHUNK_INSERT_BATCH) insertChunks(batch);
+            });
+            insertChunks(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read spooled text of " + document.getFilename(), e);
+        } finally {
+            discard(document);
+        }
+    }
+
+    private void insertChunks(List<Object[]> batch) {
+        if (batch.isEmpty()) return;
+        jdbcTemplate.batchUpdate("INSERT INTO document_chunks (document_id, chunk_index, content, compressed_content) VALUES (?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    /** Deletes the spooled text of a document that will not be saved. */
+    public void discard(Document document) {
+        if (document.getChunkSpool() != null) {
+            document.getChunkSpool().discard();
+            document.setChunkSpool(null);
+        }
+    }
+
+    public boolean isChunked(Document document) {
+        return document.getChunkCount() != null;
+    }
+
+    /** The document that holds the text: the original for duplicates, else the document itself. */
+    public Document textSource(Document document) {
+        if (document.getDuplicateOfId() == null) return document;
+        return documentRepository.findById(document.getDuplicateOfId()).orElse(document);
+    }
+
+    /** One chunk of a chunked document's text. */
+    public String readChunk(Document document, int index) {
+        return jdbcTemplate.queryForObject("SELECT content, compressed_content FROM document_chunks WHERE document_id = ? AND chunk_index = ?",
+                (rs, row) -> document.getContentCodec() == null ? rs.getString(1)
+                        : ContentCodec.valueOf(document.getContentCodec()).decode(rs.getBytes(2)),
+                document.getId(), index);
+    }
+
+    /** The chunks of a chunked document's text in order, each read from the database only when reached. */
+    public Iterator<String> chunks(Document document) {
+        int count = document.getChunkCount();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return readChunk(document, next++);
+            }
+        };
+    }
+
+    /**
+     * Index of the first chunk containing {@code keyword} (ignoring case), found by the
+     * database without reading any chunk; -1 if none does, or if the chunks are compressed
+     * and cannot be searched in SQL.
+     */
+    public int firstChunkContaining(Document document, String keyword) {
+        if (document.getContentCodec() != null) return -1;
+        Integer index = jdbcTemplate.queryForObject("SELECT MIN(chunk_index) FROM document_chunks WHERE document_id = ?"
+                + " AND UPPER(content) LIKE CONCAT('%', UPPER(?), '%')", Integer.class, document.getId(), keyword);
+        return index != null ? index : -1;
+    }
+
+    /** Writes the whole text of a document, one chunk at a time when it is chunked. */
+    public void writeText(Document document, Writer out) throws IOException {
+        Document source = textSource(document);
+        if (!isChunked(source)) {
+            out.write(contentOf(source));
+            return;
+        }
+        Iterator<String> chunks = chunks(source);
+        while (chunks.hasNext()) {
+            out.write(chunks.next());
+            out.flush();
+        }
+    }
+
+    /** The whole text of a document as a Reader; chunked text is read from the database one chunk at a time. */
+    public Reader openText(Document document) {
+        Document source = textSource(document);
+        if (!isChunked(source)) {
+            return new StringReader(contentOf(source));
+        }
+        Iterator<String> chunks = chunks(source);
+        return new Reader() {
+            private String chunk = "";
+            private int offset;
+
+            @Override
+            public int read(char[] buffer, int off, int len) {
+                if (len == 0) return 0;
+                while (offset == chunk.length()) {
+                    if (!chunks.hasNext()) return -1;
+                    chunk = chunks.next();
+                    offset = 0;
+                }
+                int count = Math.min(len, chunk.length() - offset);
+                chunk.getChars(offset, offset + count, buffer, off);
+                offset += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+                chunk = "";
+                offset = 0;
+            }
+        };
+    }
+
+    /** Rewrites a document's stored text in the configured format; chunked text is rewritten chunk by chunk. */
+    public void recode(Document document) {
+        if (!isChunked(document)) {
+            setContent(document, contentOf(document));
+            return;
+        }
+        ContentCodec codec = configuredCodec();
+        Iterator<String> chunks = chunks(document);
+        for (int index = 0; chunks.hasNext(); index++) {
+            String chunk = chunks.next();
+            jdbcTemplate.update("UPDATE document_chunks SET content = ?, compressed_content = ? WHERE document_id = ? AND chunk_index = ?",
+                    codec == null ? chunk : null, codec == null ? null : codec.encode(chunk, zstdLevel), document.getId(), index);
+        }
+        document.setContentCodec(codec != null ? codec.name() : null);
+    }
+
+    /** Whether the document is already stored in the configured format. */
+    public boolean isStoredAsConfigured(Document document) {
+        ContentCodec codec = configuredCodec();
+        return document.getDuplicateOfId() != null
+                || (codec == null ? document.getContentCodec() == null : codec.name().equals(document.getContentCodec()));
+    }
+
+    /** The configured codec, or null for plain text. */
+    public ContentCodec configuredCodec() {
+        return "none".equalsIgnoreCase(codecName) ? null : ContentCodec.valueOf(codecName.toUpperCase(Locale.ROOT));
+    }
+}
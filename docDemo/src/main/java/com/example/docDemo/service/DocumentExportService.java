@@ -0,0 +1,127 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.repository.DocumentSpecification;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Bulk export of documents with their full text as NDJSON: one JSON object per line, in ID
+ * order. Rows are read by keyset, {@code docdemo.export.fetch-size} at a time and all in one
+ * read-only transaction, and the persistence context is cleared after each batch; very large
+ * documents are streamed chunk by chunk. Memory use does not grow with the size of the export,
+ * and no connection needs driver-side cursor streaming, which MySQL only offers connection-wide.
+ */
+@Service
+public class DocumentExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentExportService.class);
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${docdemo.export.fetch-size:500}")
+    private int fetchSize;
+
+    // Documents written between flushes of the response
+    @Value("${docdemo.export.flush-every:50}")
+    private int flushEvery;
+
+    /** Writes every document matching the filters (the same ones as the listing) to {@code out}. */
+    public void exportNdjson(String author, String contentType, LocalDate uploadedFrom, LocalDate uploadedTo, OutputStream out) throws IOException {
+        Specification<Document> spec = DocumentSpecification.matching(author, contentType, uploadedFrom, uploadedTo);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        long started = metrics.start();
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        // The response stream belongs to the caller
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Lines are ended explicitly below, instead of separating root values with a space
+        json.setRootValueSeparator(null);
+        long exported;
+        try {
+            exported = readOnly.execute(status -> {
+                long count = 0;
+                long after = Long.MIN_VALUE;
+                List<Document> batch;
+                try {
+                    do {
+                        batch = documentRepository.findBatchAfter(spec, after, fetchSize);
+                        for (Document document : batch) {
+                            write(document, json);
+                            if (++count % flushEvery == 0) json.flush();
+                        }
+                        if (!batch.isEmpty()) after = batch.get(batch.size() - 1).getId();
+                        entityManager.clear();
+                    } while (batch.size() == fetchSize);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+            json.flush();
+        } catch (UncheckedIOException e) {
+            // Usually the client went away
+            metrics.stop(started, PipelineMetrics.EXPORT, "outcome", "failure");
+            metrics.failure("export", e.getCause());
+            throw e.getCause();
+        }
+        metrics.stop(started, PipelineMetrics.EXPORT, "outcome", "success");
+        metrics.count(PipelineMetrics.EXPORTED_DOCUMENTS, exported);
+        log.info("Exported {} documents (author: {}, type: {}, uploaded {} to {})", exported, author, contentType, uploadedFrom, uploadedTo);
+    }
+
+    private void write(Document document, JsonGenerator json) throws IOException {
+        Document source = documentContentService.textSource(document);
+        json.writeStartObject();
+        json.writeNumberField("id", document.getId());
+        json.writeStringField("filename", document.getFilename());
+        json.writeStringField("contentType", document.getContentType());
+        json.writeStringField("author", document.getAuthor());
+        json.writeStringField("uploadTimestamp", document.getUploadTimestamp() != null ? document.getUploadTimestamp().toString() : null);
+        if (document.getDuplicateOfId() != null) {
+            json.writeNumberField("duplicateOfId", document.getDuplicateOfId());
+        }
+        json.writeFieldName("content");
+        try (Reader text = documentContentService.openText(source)) {
+            // -1: read to the end, copying through a small buffer
+            json.writeString(text, -1);
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+}
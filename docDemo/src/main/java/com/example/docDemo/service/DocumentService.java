@@ -1,112 +1,406 @@
 package com.example.docDemo.service;
 
+import com.example.docDemo.dto.CursorPageDTO;
 import com.example.docDemo.dto.DocumentMetadataDTO;
 import com.example.docDemo.dto.QAResponseDTO;
 import com.example.docDemo.entity.Document;
 import com.example.docDemo.exception.CustomExceptions;
+import com.example.docDemo.repository.DocumentCursor;
 import com.example.docDemo.repository.DocumentRepository;
 import com.example.docDemo.repository.DocumentSpecification;
+import com.example.docDemo.search.InvertedIndex;
+import com.example.docDemo.search.Query;
+import com.example.docDemo.search.QueryParser;
+import com.example.docDemo.search.SnippetGenerator;
+import com.example.docDemo.storage.ChunkedTextSpool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.concurrent.CompletableFuture;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class DocumentService {
 
     private static final Logger log = LoggerFactory.getLogger(DocumentService.class);
-    private static final int SNIPPET_LENGTH = 150;
 
     @Autowired
     private DocumentRepository documentRepository;
     @Autowired
     private TextExtractionService textExtractionService;
+    @Autowired
+    private SearchIndexService searchIndexService;
+    @Autowired
+    private SnippetGenerator snippetGenerator;
+    @Autowired
+    private DocumentContentService documentContentService;
+    @Autowired
+    private SearchResultCache searchResultCache;
+    @Autowired
+    private PipelineMetrics metrics;
+    @Autowired
+    private ReadYourWrites readYourWrites;
+    @Autowired
+    private FacetService facetService;
+    @Autowired
+    private GroupCommitter groupCommitter;
 
+    @Value("${docdemo.storage.chunk.threshold:16MB}")
+    private DataSize chunkThreshold;
 
-    @Async
-    @Transactional
-    public CompletableFuture<DocumentMetadataDTO> ingestDocument(MultipartFile file, String author) {
-        String filename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown_file";
-        String contentType = file.getContentType();
 
-        log.info("Starting async ingestion for file: {}, Content-Type: {}", filename, contentType);
+    /**
+     * Extracts text from an upload spooled to disk and stores it.
+     * Runs on the ingestion executor via {@link IngestionJobService}, never on a request thread.
+     * A file whose bytes are already stored is saved as a duplicate without extraction.
+     * The document is committed by the {@link GroupCommitter}, together with those of concurrent uploads.
+     */
+    public DocumentMetadataDTO ingestDocument(SpooledUpload upload, String author) throws IOException {
+        Document document = prepareDocument(upload, author);
+        Document savedDocument;
+        long saving = metrics.start();
+        try {
+            savedDocument = commit(document);
+        } catch (DataIntegrityViolationException e) {
+            // The same file was stored concurrently since we looked; store this copy as its duplicate
+            Document original = document.getContentHash() == null ? null
+                    : documentRepository.findByContentHash(document.getContentHash()).orElse(null);
+            if (original == null) throw e;
+            savedDocument = commit(duplicateOf(original, upload, author));
+        } finally {
+            documentContentService.discard(document);
+        }
+        metrics.stop(saving, PipelineMetrics.SAVE, "mode", "single");
+        log.debug("Successfully ingested and saved document ID: {}, Filename: {}", savedDocument.getId(), savedDocument.getFilename());
 
-        try (InputStream inputStream = file.getInputStream()) {
-            String content = textExtractionService.extractText(inputStream, filename, contentType);
-            if (content == null || content.isBlank()) {
-                log.warn("Extracted content is empty for file: {}. Saving document with empty content.", filename);
-                content = "";
+        return mapToMetadataDTO(savedDocument);
+    }
+
+    /**
+     * Builds a new, unsaved {@link Document} for an upload. If a file with the same bytes
+     * is already stored, the result is a duplicate pointing at it and nothing is extracted.
+     */
+    public Document prepareDocument(SpooledUpload upload, String author) throws IOException {
+        if (upload.getContentHash() != null) {
+            Optional<Document> original = documentRepository.findByContentHash(upload.getContentHash());
+            if (original.isPresent()) {
+                log.debug("File {} is identical to document ID: {}; skipping extraction", upload.getFilename(), original.get().getId());
+                return duplicateOf(original.get(), upload, author);
             }
+        }
+        return extractDocument(upload, author);
+    }
 
-            Document document = new Document();
-            document.setFilename(filename);
-            document.setContentType(contentType);
-            document.setAuthor(author);
-            document.setContent(content);
+    /**
+     * Extracts text from an upload into a new, unsaved {@link Document}.
+     */
+    public Document extractDocument(SpooledUpload upload, String author) throws IOException {
+        String filename = upload.getFilename();
+        String contentType = upload.getContentType();
+        log.debug("Starting ingestion for file: {}, Content-Type: {}, Size: {} bytes", filename, contentType, upload.getSize());
 
-            Document savedDocument = documentRepository.save(document);
-            log.info("Successfully ingested and saved document ID: {}, Filename: {}", savedDocument.getId(), filename);
+        Document document = new Document();
+        document.setFilename(filename);
+        document.setContentType(contentType);
+        document.setAuthor(author);
+        document.setContentHash(upload.getContentHash());
+        if (upload.getSize() >= chunkThreshold.toBytes()) {
+            // Written to a chunk spool as it is extracted, never held as one String
+            ChunkedTextSpool spool = documentContentService.newChunkSpool();
+            try (spool) {
+                textExtractionService.extractText(upload.getPath(), filename, contentType, upload.getContentHash(), spool);
+            } catch (IOException | RuntimeException e) {
+                spool.discard();
+                throw e;
+            }
+            log.debug("Extracted {} chars from {} into {} chunks", spool.length(), filename, spool.chunkCount());
+            documentContentService.setChunkedContent(document, spool);
+            return document;
+        }
 
-            return CompletableFuture.completedFuture(mapToMetadataDTO(savedDocument));
+        String content = textExtractionService.extractText(upload.getPath(), filename, contentType, upload.getContentHash());
+        if (content == null || content.isBlank()) {
+            log.warn("Extracted content is empty for file: {}. Saving document with empty content.", filename);
+            content = "";
+        }
+        documentContentService.setContent(document, content);
+        return document;
+    }
 
-        } catch (CustomExceptions.UnsupportedDocumentTypeException | CustomExceptions.TextExtractionException | IOException e) {
-            log.error("Ingestion failed for file {}: {}", filename, e.getMessage(), e);
-            return CompletableFuture.failedFuture(e);
-        } catch (Exception e) {
-            log.error("Unexpected error during ingestion of file {}: {}", filename, e.getMessage(), e);
-            return CompletableFuture.failedFuture(e);
+    /**
+     * Stores already-extracted documents in one transaction; with sequence IDs Hibernate
+     * sends the inserts as JDBC batches of {@code hibernate.jdbc.batch_size}.
+     */
+    @Transactional
+    public List<DocumentMetadataDTO> saveBatch(List<Document> documents) {
+        // Identical files within one batch were all extracted; keep the first and point the rest at it
+        Map<String, Document> originals = new HashMap<>();
+        List<Document> saved = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            Document original = document.getContentHash() == null ? null : originals.get(document.getContentHash());
+            if (original != null) {
+                documentContentService.discard(document);
+                document.setContentHash(null);
+                document.setContent("");
+                document.setCompressedContent(null);
+                document.setContentCodec(null);
+                document.setChunkCount(null);
+                document.setDuplicateOfId(original.getId());
+                saved.add(save(document));
+            } else {
+                saved.add(save(document));
+                if (document.getContentHash() != null) originals.put(document.getContentHash(), document);
+            }
         }
+        // Flush so the inserts (and their @CreationTimestamp) happen before the DTOs are built
+        documentRepository.flush();
+        log.debug("Saved batch of {} documents", saved.size());
+        return saved.stream().map(this::mapToMetadataDTO).toList();
     }
 
     @Transactional(readOnly = true)
     public Page<QAResponseDTO> searchDocumentsByKeyword(String keyword, Pageable pageable) {
+        // Matching and highlighting ignore case, so differently-cased queries share an entry
+        String normalized = SearchResultCache.normalize(keyword);
+        return searchResultCache.get(searchResultCache.key("search", pageable, normalized),
+                () -> search(normalized, pageable));
+    }
+
+    private Page<QAResponseDTO> search(String keyword, Pageable pageable) {
         log.debug("Searching for keyword '{}' with pagination: {}", keyword, pageable);
-        Page<Document> results = documentRepository.searchByKeyword(keyword, pageable);
-        return results.map(doc -> mapToQAResponseDTO(doc, keyword));
+        long started = metrics.start();
+        Optional<Page<Long>> indexed = searchIndexService.search(keyword, pageable);
+        Page<Document> documents;
+        if (indexed.isPresent()) {
+            Page<Long> ids = indexed.get();
+            documents = new PageImpl<>(loadInOrder(ids.getContent()), ids.getPageable(), ids.getTotalElements());
+        } else {
+            requireSqlSearchable();
+            documents = documentRepository.searchByKeyword(keyword, withColumnSort(pageable));
+        }
+        Page<QAResponseDTO> results = withSnippets(documents, keyword);
+        metrics.stop(started, PipelineMetrics.SEARCH, "operation", "search", "source", indexed.isPresent() ? "index" : "sql");
+        return results;
+    }
+
+    /**
+     * Relevance-ranked search with AND/OR/phrase queries (see {@link QueryParser}), best
+     * BM25 score first. Served only from the search index; the page's sort is ignored.
+     */
+    @Transactional(readOnly = true)
+    public Page<QAResponseDTO> rankedSearch(String query, Pageable pageable) {
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        // Not lower-cased: operators are upper case, and the parser folds the terms itself
+        String trimmed = query.trim();
+        return searchResultCache.get(searchResultCache.key("ranked", page, trimmed), () -> {
+            log.debug("Ranked search for '{}' with pagination: {}", trimmed, page);
+            long started = metrics.start();
+            Query parsed = QueryParser.parse(trimmed);
+            Page<InvertedIndex.Hit> hits = searchIndexService.rank(parsed, page)
+                    .orElseThrow(() -> new CustomExceptions.SearchUnavailableException("Ranked search needs the search index, which is still being built; please retry shortly."));
+            List<Document> documents = loadInOrder(hits.map(InvertedIndex.Hit::docId).getContent());
+            Map<Long, Double> scores = hits.stream().collect(Collectors.toMap(InvertedIndex.Hit::docId, InvertedIndex.Hit::score));
+            Page<QAResponseDTO> results = withSnippets(new PageImpl<>(documents, page, hits.getTotalElements()), String.join(" ", parsed.terms()));
+            results.forEach(result -> result.setScore(scores.get(result.getDocumentId())));
+            metrics.stop(started, PipelineMetrics.SEARCH, "operation", "ranked", "source", "index");
+            return results;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public Page<DocumentMetadataDTO> findDocuments(String author, String contentType, LocalDate uploadedFrom, LocalDate uploadedTo,
+                                                   Pageable pageable) {
+        // Both filters compare normalized values, so differently cased requests share a cache entry
+        String normalizedAuthor = StringUtils.hasText(author) ? Document.normalizeAuthor(author) : null;
+        String normalizedContentType = StringUtils.hasText(contentType) ? Document.normalizeContentType(contentType) : null;
+        return searchResultCache.get(searchResultCache.key("find", pageable, normalizedAuthor, normalizedContentType, uploadedFrom, uploadedTo), () -> {
+            log.debug("Finding documents with filters - Author: {}, Type: {}, uploaded {} to {}, Page: {}",
+                    normalizedAuthor, normalizedContentType, uploadedFrom, uploadedTo, pageable);
+            return documentRepository.findMetadata(DocumentSpecification.matching(normalizedAuthor, normalizedContentType, uploadedFrom, uploadedTo), pageable);
+        });
     }
 
+    /**
+     * Keyset-paginated keyword search: the page after {@code cursor} (or the first page),
+     * ordered by upload time then ID, without an offset scan or a count query.
+     */
     @Transactional(readOnly = true)
-    public Page<DocumentMetadataDTO> findDocuments(String author, String contentType, LocalDate uploadTimestamp, Pageable pageable) {
-        log.debug("Finding documents with filters - Author: {}, Type: {},uploadTimestamp: {}, Page: {}",
-                author, contentType, uploadTimestamp, pageable);
-        Specification<Document> spec = Specification.where(DocumentSpecification.hasAuthor(author))
-                .and(DocumentSpecification.hasContentType(contentType))
-                .and(DocumentSpecification.uploadDate(uploadTimestamp));
-        Page<Document> results = documentRepository.findAll(spec, pageable);
-        return results.map(this::mapToMetadataDTO);
+    public CursorPageDTO<QAResponseDTO> scrollSearch(String keyword, String cursor, int size, Sort.Direction direction) {
+        DocumentCursor after = cursor != null ? DocumentCursor.decode(cursor) : DocumentCursor.first(direction);
+        log.debug("Scrolling search for keyword '{}' after {} ({}, size {})", keyword, after, direction, size);
+        long started = metrics.start();
+        Optional<List<Long>> indexed = searchIndexService.searchAfter(keyword, after, direction, size + 1);
+        List<Document> documents = indexed
+                .map(this::loadInOrder)
+                .orElseGet(() -> {
+                    requireSqlSearchable();
+                    return direction.isAscending()
+                        ? documentRepository.searchByKeywordAfter(keyword, after.uploadTimestamp(), after.id(), size + 1)
+                        : documentRepository.searchByKeywordBefore(keyword, after.uploadTimestamp(), after.id(), size + 1);
+                });
+        boolean hasNext = documents.size() > size;
+        List<Document> page = hasNext ? documents.subList(0, size) : documents;
+        String nextCursor = hasNext ? cursorAfter(page.get(page.size() - 1)) : null;
+        List<QAResponseDTO> content = withSnippets(new PageImpl<>(page), keyword).getContent();
+        metrics.stop(started, PipelineMetrics.SEARCH, "operation", "scroll", "source", indexed.isPresent() ? "index" : "sql");
+        return new CursorPageDTO<>(content, page.size(), hasNext, nextCursor);
+    }
+
+    /** Keyset-paginated variant of {@link #findDocuments}, ordered by upload time then ID. */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<DocumentMetadataDTO> scrollDocuments(String author, String contentType, LocalDate uploadedFrom, LocalDate uploadedTo,
+                                                              String cursor, int size, Sort.Direction direction) {
+        DocumentCursor after = cursor != null ? DocumentCursor.decode(cursor) : DocumentCursor.first(direction);
+        Specification<Document> spec = DocumentSpecification.matching(author, contentType, uploadedFrom, uploadedTo);
+        Slice<DocumentMetadataDTO> slice = documentRepository.findMetadataAfter(spec, after, direction, size);
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            DocumentMetadataDTO last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = new DocumentCursor(last.getUploadTimestamp(), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(slice.getContent(), slice.getNumberOfElements(), slice.hasNext(), nextCursor);
+    }
+
+    public Document getDocument(Long id) {
+        return documentRepository.findById(id).orElseThrow(() -> new CustomExceptions.DocumentNotFoundException(id));
+    }
+
+    /**
+     * Writes the full extracted text of a document as UTF-8. Chunked text is read and
+     * written one chunk at a time, so memory use does not depend on the document's size.
+     */
+    public void writeContent(Document document, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        documentContentService.writeText(document, writer);
+        writer.flush();
     }
 
     // Helper methods
+    /** The SQL LIKE fallback cannot see compressed text, so it is only correct while none is stored. */
+    private void requireSqlSearchable() {
+        if (documentRepository.existsByContentCodecIsNotNull()) {
+            throw new CustomExceptions.SearchUnavailableException("The search index is still being built; please retry shortly.");
+        }
+    }
+    /** Native queries append sort properties verbatim, so they must be column names: uploadTimestamp -> upload_timestamp. */
+    private static Pageable withColumnSort(Pageable pageable) {
+        if (pageable.isUnpaged() || pageable.getSort().isUnsorted()) return pageable;
+        Sort columns = Sort.by(pageable.getSort().stream()
+                .map(order -> order.withProperty(order.getProperty().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase()))
+                .toList());
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), columns);
+    }
+    private static String cursorAfter(Document document) {
+        return new DocumentCursor(document.getUploadTimestamp(), document.getId()).encode();
+    }
+    private Document commit(Document document) {
+        // Tokenized on this thread, so a group committer only adds the terms once its batch commits
+        InvertedIndex.DocumentTerms terms = searchIndexService.analyze(document);
+        return groupCommitter.commit(document, unsaved -> save(unsaved, terms));
+    }
+    private Document save(Document document) {
+        // Tokenized from the chunk spool, which writeChunks then deletes
+        return save(document, searchIndexService.analyze(document));
+    }
+    private Document save(Document document, InvertedIndex.DocumentTerms terms) {
+        Document saved = documentRepository.save(document);
+        searchIndexService.index(saved, terms);
+        documentContentService.writeChunks(saved);
+        facetService.documentSaved(saved);
+        searchResultCache.documentsChanged();
+        readYourWrites.wrote();
+        return saved;
+    }
+    private Document duplicateOf(Document original, SpooledUpload upload, String author) {
+        Document document = new Document();
+        document.setFilename(upload.getFilename());
+        document.setContentType(upload.getContentType());
+        document.setAuthor(author);
+        document.setContent("");
+        document.setDuplicateOfId(original.getId());
+        return document;
+    }
+    private List<Document> loadInOrder(List<Long> ids) {
+        Map<Long, Document> byId = documentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
     private DocumentMetadataDTO mapToMetadataDTO(Document doc) {
         return new DocumentMetadataDTO(doc.getId(), doc.getFilename(), doc.getContentType(), doc.getAuthor(), doc.getUploadTimestamp());
     }
+    private Page<QAResponseDTO> withSnippets(Page<Document> documents, String keyword) {
+        long started = metrics.start();
+        Page<QAResponseDTO> results = documents.map(doc -> mapToQAResponseDTO(doc, keyword));
+        metrics.stop(started, PipelineMetrics.SNIPPETS);
+        return results;
+    }
     private QAResponseDTO mapToQAResponseDTO(Document doc, String keyword) {
-        String snippet = generateSnippet(doc.getContent(), keyword);
-        return new QAResponseDTO(doc.getId(), doc.getFilename(), snippet, doc.getAuthor(), doc.getUploadTimestamp());
+        String content = snippetSource(doc, keyword);
+        String snippet = generateSnippet(content, keyword);
+        List<String> highlights = snippetGenerator.highlights(content, keyword);
+        return new QAResponseDTO(doc.getId(), doc.getFilename(), snippet, doc.getAuthor(), doc.getUploadTimestamp(), highlights, null);
+    }
+    /**
+     * The text to cut a document's snippet from: all of it, or for chunked documents only the
+     * first chunk that matches. Plain chunks are found in SQL; compressed ones are only read
+     * where the index places a matching word, or, before the index is built, in order until
+     * one matches.
+     */
+    private String snippetSource(Document doc, String keyword) {
+        Document source = documentContentService.textSource(doc);
+        if (!documentContentService.isChunked(source)) {
+            return documentContentService.contentOf(source);
+        }
+        int chunk = documentContentService.firstChunkContaining(source, keyword);
+        if (chunk >= 0) {
+            return documentContentService.readChunk(source, chunk);
+        }
+        Optional<int[]> candidates = searchIndexService.chunksMatching(source, keyword);
+        if (candidates.isPresent()) {
+            for (int candidate : candidates.get()) {
+                String text = documentContentService.readChunk(source, candidate);
+                if (!snippetGenerator.highlights(text, keyword).isEmpty()) return text;
+            }
+            return source.getChunkCount() > 0 ? documentContentService.readChunk(source, 0) : "";
+        }
+        String first = null;
+        Iterator<String> chunks = documentContentService.chunks(source);
+        while (chunks.hasNext()) {
+            String text = chunks.next();
+            if (first == null) first = text;
+            // Highlights match the query terms the way the index does, not only the whole keyword
+            if (!snippetGenerator.highlights(text, keyword).isEmpty()) return text;
+        }
+        return first != null ? first : "";
     }
     private String generateSnippet(String content, String keyword) {
-
-        if (content == null || keyword == null || keyword.isEmpty()) return "";
-        String lowerContent = content.toLowerCase();
-        String lowerKeyword = keyword.toLowerCase();
-        int index = lowerContent.indexOf(lowerKeyword);
-        if (index == -1) return content.substring(0, Math.min(content.length(), SNIPPET_LENGTH)) + (content.length() > SNIPPET_LENGTH ? "..." : "");
-        int start = Math.max(0, index - (SNIPPET_LENGTH / 2));
-        int end = Math.min(content.length(), index + keyword.length() + (SNIPPET_LENGTH / 2));
-        String snippet = content.substring(start, end);
-        if (start > 0) snippet = "..." + snippet;
-        if (end < content.length()) snippet = snippet + "...";
-        return snippet;
+        return snippetGenerator.snippet(content, keyword);
     }
 }
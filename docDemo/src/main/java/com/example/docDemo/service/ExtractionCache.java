@@ -0,0 +1,438 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.extraction.DocumentExtractor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.StreamingXXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of extracted text, keyed by the SHA-256 of the uploaded bytes plus the
+ * extractor's name and {@link DocumentExtractor#version() version}, so re-ingesting an
+ * unchanged file skips PDFBox/POI entirely, and a new extractor version misses instead of
+ * serving stale text.
+ * <p>
+ * Each entry is one LZ4-framed UTF-8 file in {@code docdemo.extraction.cache.dir}, written
+ * to a temp file and renamed into place, and read back as a stream, so even chunked
+ * documents are never held whole. Entries carry LZ4 block and content checksums; before
+ * one is copied into a chunked document's spool its frame structure and block checksums
+ * are verified over the compressed bytes, without decompressing it. The cache is bounded
+ * by the total size of those files and evicts least recently used entries; recency
+ * survives restarts through file modification times.
+ * <p>
+ * Lookups are counted in {@code docdemo.extraction.cache.requests} (tagged result=hit/miss),
+ * with the hit rate in {@code docdemo.extraction.cache.hit.ratio} and the size in
+ * {@code docdemo.extraction.cache.size} and {@code .entries}.
+ */
+@Component
+public class ExtractionCache implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionCache.class);
+    private static final String SUFFIX = ".lz4";
+    private static final int FRAME_MAGIC = 0x184D2204;
+    private static final int FLG_BLOCK_CHECKSUM = 0x10;
+    private static final int FLG_CONTENT_SIZE = 0x08;
+    private static final int FLG_CONTENT_CHECKSUM = 0x04;
+    private static final int FLG_DICT_ID = 0x01;
+    private static final int UNCOMPRESSED_BLOCK = 0x80000000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${docdemo.extraction.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${docdemo.extraction.cache.dir:}")
+    private String cacheDir;
+
+    @Value("${docdemo.extraction.cache.max-size:2GB}")
+    private DataSize maxSize;
+
+    private Path directory;
+    // Key -> file size, least recently used first
+    private final Map<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private Counter hits;
+    private Counter misses;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!enabled) return;
+        directory = StringUtils.hasText(cacheDir)
+                ? Path.of(cacheDir)
+                : Path.of(System.getProperty("java.io.tmpdir"), "docdemo-extraction-cache");
+        Files.createDirectories(directory);
+        load();
+
+        hits = Counter.builder("docdemo.extraction.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("docdemo.extraction.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("docdemo.extraction.cache.hit.ratio", this, ExtractionCache::hitRatio).register(meterRegistry);
+        Gauge.builder("docdemo.extraction.cache.size", this, cache -> cache.sizeInBytes()).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("docdemo.extraction.cache.entries", this, cache -> cache.entryCount()).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The cache key for a file's text as extracted by {@code extractor}. */
+    public static String key(String contentHash, DocumentExtractor extractor) {
+        return (contentHash + "-" + extractor.name() + "-" + extractor.version()).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * The cached text, or null on a miss. Decoded once; the content checksum is checked as
+     * it is read, so a damaged entry is dropped and counted as a miss.
+     */
+    public String get(String key) {
+        Reader reader = open(key);
+        if (reader == null) return null;
+        StringWriter text = new StringWriter();
+        try (reader) {
+            reader.transferTo(text);
+        } catch (IOException | RuntimeException e) {
+            // LZ4 reports some malformed blocks as unchecked LZ4Exceptions; extracting again replaces it
+            drop(key, e);
+            return null;
+        }
+        hits.increment();
+        return text.toString();
+    }
+
+    /**
+     * Writes the cached text to {@code out}; false on a miss, in which case nothing was
+     * written. The entry's frame and block checksums are verified before anything is
+     * copied, so a truncated or damaged file is dropped and counted as a miss instead of
+     * leaving {@code out} half written; the caller then extracts again. Only a file that
+     * changes between that check and the copy, or an entry written without block checksums,
+     * can still fail mid-copy, and is dropped and rethrown.
+     */
+    public boolean copyTo(String key, Writer out) {
+        if (!isIntact(key)) return false;
+        Reader reader = open(key);
+        if (reader == null) return false;
+        try (reader) {
+            reader.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            drop(key, e);
+            throw e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Walks an entry's LZ4 frame and checks each block's checksum over its compressed bytes,
+     * plus the end mark and content checksum trailer, without decompressing anything. A
+     * damaged entry is dropped and counted as a miss.
+     */
+    private boolean isIntact(String key) {
+        if (!enabled) return true;
+        synchronized (entries) {
+            // A miss; open() counts it
+            if (!entries.containsKey(key)) return true;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(key))))) {
+            verifyFrame(in);
+            return true;
+        } catch (NoSuchFileException e) {
+            // Evicted meanwhile; open() counts the miss
+            return true;
+        } catch (IOException e) {
+            drop(key, e);
+            return false;
+        }
+    }
+
+    private static void verifyFrame(DataInputStream in) throws IOException {
+        if (Integer.reverseBytes(in.readInt()) != FRAME_MAGIC) throw new IOException("Not an LZ4 frame");
+        int flags = in.readUnsignedByte();
+        // Block descriptor, optional content size and dictionary ID, header checksum
+        int header = 1 + ((flags & FLG_CONTENT_SIZE) != 0 ? 8 : 0) + ((flags & FLG_DICT_ID) != 0 ? 4 : 0) + 1;
+        in.readNBytes(header);
+        boolean blockChecksums = (flags & FLG_BLOCK_CHECKSUM) != 0;
+        byte[] buffer = new byte[8192];
+        StreamingXXHash32 hash = XXHashFactory.fastestInstance().newStreamingHash32(0);
+        while (true) {
+            int blockHeader = Integer.reverseBytes(in.readInt());
+            if (blockHeader == 0) break;
+            int size = blockHeader & ~UNCOMPRESSED_BLOCK;
+            hash.reset();
+            for (int remaining = size; remaining > 0; ) {
+                int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                if (read < 0) throw new EOFException("Truncated LZ4 block");
+                if (blockChecksums) hash.update(buffer, 0, read);
+                remaining -= read;
+            }
+            if (blockChecksums && Integer.reverseBytes(in.readInt()) != hash.getValue()) {
+                throw new IOException("LZ4 block checksum mismatch");
+            }
+        }
+        if ((flags & FLG_CONTENT_CHECKSUM) != 0) in.readInt();
+        if (in.read() >= 0) throw new IOException("Trailing bytes after the LZ4 frame");
+    }
+
+    private void drop(String key, Exception e) {
+        log.warn("Dropping damaged extraction cache entry {}: {}", key, e.getMessage());
+        remove(key);
+        misses.increment();
+    }
+
+    public void put(String key, String text) {
+        if (!enabled) return;
+        Entry entry = newEntry(key);
+        try (entry) {
+            entry.write(text, 0, text.length());
+        }
+        entry.commit();
+    }
+
+    /**
+     * A writer for a new entry, e.g. to copy text into while it is extracted. The entry only
+     * becomes visible on {@link Entry#commit()}. Write failures are logged and make the
+     * commit a no-op rather than failing the extraction. Null when the cache is disabled.
+     */
+    public Entry newEntry(String key) {
+        if (!enabled) return null;
+        return new Entry(key);
+    }
+
+    public long sizeInBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    public int entryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRatio() {
+        double lookups = hits.count() + misses.count();
+        return lookups == 0 ? 0 : hits.count() / lookups;
+    }
+
+    private Reader open(String key) {
+        if (!enabled) return null;
+        synchronized (entries) {
+            if (entries.get(key) == null) {
+                misses.increment();
+                return null;
+            }
+        }
+        Path file = file(key);
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            // The caller counts the hit once the text has been read back intact
+            return new InputStreamReader(new LZ4FrameInputStream(new BufferedInputStream(Files.newInputStream(file))), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            // Evicted by another thread, or deleted from disk
+            remove(key);
+        } catch (IOException e) {
+            log.warn("Could not open extraction cache entry {}: {}", key, e.getMessage());
+            remove(key);
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.toList();
+        }
+        record Found(Path file, long size, long modified) {
+        }
+        List<Found> found = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(SUFFIX)) {
+                found.add(new Found(file, Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+            } else if (name.endsWith(".tmp")) {
+                // Left over from a write that never committed
+                Files.deleteIfExists(file);
+            }
+        }
+        found.sort(Comparator.comparingLong(Found::modified));
+        synchronized (entries) {
+            for (Found entry : found) {
+                String name = entry.file().getFileName().toString();
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), entry.size());
+                totalBytes += entry.size();
+            }
+            evict();
+        }
+        log.info("Extraction cache at {}: {} entries, {} bytes", directory, entries.size(), totalBytes);
+    }
+
+    private void add(String key, long size) {
+        synchronized (entries) {
+            Long previous = entries.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            evict();
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) totalBytes -= size;
+        }
+        try {
+            // Else a damaged file would be loaded again on the next start
+            Files.deleteIfExists(file(key));
+        } catch (IOException e) {
+            log.warn("Could not delete extraction cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    // Caller holds the lock on entries
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxSize.toBytes() && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            try {
+                Files.deleteIfExists(file(entry.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not delete evicted extraction cache entry {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    /** A cache entry being written; see {@link #newEntry}. */
+    public final class Entry extends Writer {
+
+        private final String key;
+        private Path temp;
+        private Writer out;
+        private boolean failed;
+
+        private Entry(String key) {
+            this.key = key;
+            try {
+                temp = Files.createTempFile(directory, "entry-", ".tmp");
+                // Block checksums let isIntact() verify an entry without decoding it; the content
+                // checksum still catches damage whenever it is decoded
+                out = new OutputStreamWriter(new LZ4FrameOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)),
+                        LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB, LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE,
+                        LZ4FrameOutputStream.FLG.Bits.BLOCK_CHECKSUM, LZ4FrameOutputStream.FLG.Bits.CONTENT_CHECKSUM), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int count) {
+            if (failed) return;
+            try {
+                out.write(chars, offset, count);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int count) {
+            if (failed) return;
+            try {
+                out.write(text, offset, count);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            if (out == null) return;
+            try {
+                out.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+            out = null;
+        }
+
+        /** Closes the entry and makes it visible under its key. */
+        public void commit() {
+            close();
+            if (failed) return;
+            try {
+                long size = Files.size(temp);
+                Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                add(key, size);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /** Discards the entry, e.g. because extraction failed. */
+        public void abort() {
+            failed = true;
+            close();
+            deleteTemp();
+        }
+
+        private void fail(IOException e) {
+            if (!failed) log.warn("Could not write extraction cache entry {}: {}", key, e.getMessage());
+            failed = true;
+            deleteTemp();
+        }
+
+        private void deleteTemp() {
+            if (temp == null) return;
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.debug("Could not delete extraction cache temp file {}: {}", temp, e.getMessage());
+            }
+        }
+    }
+}
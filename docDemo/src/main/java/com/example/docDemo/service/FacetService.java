@@ -0,0 +1,166 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.dto.FacetsDTO;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.exception.CustomExceptions;
+import com.example.docDemo.search.FacetIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the in-memory {@link FacetIndex} in step with the {@code files} table and answers
+ * facet requests from it. Saved documents are added as their transaction commits; the
+ * index is rebuilt from the database on startup with a keyset scan of the metadata
+ * columns. Documents committed while that runs are held back and added afterwards, unless
+ * the scan already saw them. Until it finishes, facet requests are refused as unavailable.
+ */
+@Service
+public class FacetService implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FacetService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${docdemo.facets.enabled:true}")
+    private boolean enabled;
+
+    @Value("${docdemo.facets.rebuild-fetch-size:1000}")
+    private int fetchSize;
+
+    private final FacetIndex index = new FacetIndex();
+    private final List<Row> committedDuringRebuild = new ArrayList<>();
+    private boolean rebuilding;
+    private volatile boolean ready;
+
+    private record Row(long id, String author, String contentType, LocalDate uploaded) {
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Gauge.builder("docdemo.facets.documents", index, FacetIndex::documentCount).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!enabled) return;
+        Thread rebuild = new Thread(this::rebuild, "facet-index-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        synchronized (this) {
+            ready = false;
+            rebuilding = true;
+            committedDuringRebuild.clear();
+            index.clear();
+        }
+        try {
+            // Read by keyset, fetch-size rows per query, so no result set is buffered whole
+            long after = Long.MIN_VALUE;
+            List<Row> batch;
+            do {
+                batch = jdbcTemplate.query("SELECT id, author, content_type, upload_timestamp FROM files WHERE id > ? ORDER BY id LIMIT ?",
+                        (rs, row) -> {
+                            Date uploaded = rs.getDate(4);
+                            return new Row(rs.getLong(1), rs.getString(2), rs.getString(3), uploaded != null ? uploaded.toLocalDate() : null);
+                        }, after, fetchSize);
+                batch.forEach(this::add);
+                if (!batch.isEmpty()) after = batch.get(batch.size() - 1).id();
+            } while (batch.size() == fetchSize);
+            synchronized (this) {
+                long[] scanned = index.docIds();
+                Arrays.sort(scanned);
+                for (Row row : committedDuringRebuild) {
+                    if (Arrays.binarySearch(scanned, row.id()) < 0) add(row);
+                }
+                committedDuringRebuild.clear();
+                rebuilding = false;
+                ready = true;
+            }
+            log.info("Facet index built: {} documents in {} ms", index.documentCount(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            synchronized (this) {
+                committedDuringRebuild.clear();
+                rebuilding = false;
+            }
+            log.error("Facet index rebuild failed; facet requests will be refused: {}", e.getMessage(), e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Adds a saved document; inside a transaction this is deferred until commit. */
+    public void documentSaved(Document document) {
+        if (!enabled) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed(document);
+                }
+            });
+        } else {
+            committed(document);
+        }
+    }
+
+    /** Counts for the listing filters; see {@link FacetsDTO}. */
+    public FacetsDTO facets(String author, String contentType, LocalDate uploadedFrom, LocalDate uploadedTo, int limit) {
+        if (!ready) {
+            throw new CustomExceptions.SearchUnavailableException("Facet counts are still being built; please retry shortly.");
+        }
+        FacetIndex.Filter filter = new FacetIndex.Filter(
+                StringUtils.hasText(author) ? Document.normalizeAuthor(author) : null,
+                StringUtils.hasText(contentType) ? Document.normalizeContentType(contentType) : null,
+                uploadedFrom, uploadedTo);
+        FacetIndex.Facets facets = index.facets(filter, limit);
+        return new FacetsDTO(facets.total(), counts(facets.authors()), counts(facets.contentTypes()), counts(facets.uploadDays()));
+    }
+
+    private void committed(Document document) {
+        // The upload timestamp is set when the insert is flushed, so it is read only now
+        Row row = new Row(document.getId(), document.getAuthor(), document.getContentType(), document.getUploadTimestamp());
+        synchronized (this) {
+            if (rebuilding) committedDuringRebuild.add(row);
+            else add(row);
+        }
+    }
+
+    private void add(Row row) {
+        String author = StringUtils.hasText(row.author()) ? row.author().trim() : null;
+        String contentType = Document.normalizeContentType(row.contentType());
+        // Authors are labelled as first spelled; content types by their normalized form, without parameters
+        index.add(row.id(), author, Document.normalizeAuthor(author), contentType, contentType,
+                row.uploaded() != null ? row.uploaded() : LocalDate.now());
+    }
+
+    private static List<FacetsDTO.FacetCount> counts(List<FacetIndex.Value> values) {
+        return values.stream().map(value -> new FacetsDTO.FacetCount(value.value(), value.count())).toList();
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.exception.CustomExceptions;
+import com.example.docDemo.repository.DocumentRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Write-behind group commit for single-document ingestion. Concurrent callers of
+ * {@link #commit} hand their document to a committer thread, which collects up to
+ * {@code max-batch} documents, waiting at most {@code max-wait} after the first, and
+ * stores them all in one transaction: one commit, and one log flush on the database, for
+ * the whole micro-batch. Each caller returns once the transaction holding its document
+ * has committed.
+ * <p>
+ * If a micro-batch fails, its documents are committed again one by one, so one bad
+ * document (e.g. a content hash stored concurrently) fails alone; transient errors such as
+ * deadlocks are retried up to {@code retries} times. Chunked documents, whose chunks are
+ * streamed from a spool that is consumed on the first attempt, are always committed alone
+ * on the caller's thread, as is everything when {@code docdemo.ingestion.group-commit.enabled}
+ * is off or no committer thread is alive.
+ * <p>
+ * Each document's after-commit work (indexing, facets, cache invalidation) runs apart from
+ * the others', so a document whose work fails is reported to its own caller and the rest of
+ * the batch is unaffected. Whatever escapes a micro-batch, Errors included, fails that
+ * batch's callers and leaves the committer running. Callers wait at most {@code timeout} for
+ * their commit and then get a retriable {@link CustomExceptions.IngestionCommitTimeoutException}.
+ */
+@Component
+public class GroupCommitter implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitter.class);
+    private static final Duration IDLE_POLL = Duration.ofMillis(100);
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${docdemo.ingestion.group-commit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${docdemo.ingestion.group-commit.max-batch:64}")
+    private int maxBatch;
+
+    @Value("${docdemo.ingestion.group-commit.max-wait:PT0.005S}")
+    private Duration maxWait;
+
+    @Value("${docdemo.ingestion.group-commit.retries:2}")
+    private int retries;
+
+    @Value("${docdemo.ingestion.group-commit.committers:1}")
+    private int committers;
+
+    @Value("${docdemo.ingestion.group-commit.timeout:PT30S}")
+    private Duration timeout;
+
+    private record Pending(Document document, UnaryOperator<Document> save, String client, CompletableFuture<Document> saved) {
+    }
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    private DistributionSummary batchSizes;
+
+    @Override
+    public void afterPropertiesSet() {
+        batchSizes = DistributionSummary.builder(PipelineMetrics.COMMIT_BATCH).register(meterRegistry);
+        if (!enabled) return;
+        running = true;
+        for (int i = 0; i < committers; i++) {
+            Thread committer = new Thread(this::commitLoop, "doc-commit-" + i);
+            committer.setDaemon(true);
+            committer.start();
+            threads.add(committer);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        for (Thread committer : threads) {
+            committer.join(IDLE_POLL.toMillis() * 10);
+        }
+        // Anything queued as the committers stopped
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) commitBatch(rest);
+    }
+
+    /**
+     * Stores {@code document} with {@code save} (which must not flush) and returns the saved
+     * document once it has committed; rethrows what storing it failed with.
+     */
+    public Document commit(Document document, UnaryOperator<Document> save) {
+        if (!running || !committing() || document.getChunkSpool() != null) {
+            return transactionTemplate.execute(status -> flushed(save.apply(document)));
+        }
+        Pending pending = new Pending(document, save, readYourWrites.currentClient(), new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            return pending.saved().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Still queued means no committer took it, so it is certainly not stored
+            boolean withdrawn = queue.remove(pending);
+            throw new CustomExceptions.IngestionCommitTimeoutException(document.getFilename(), timeout, withdrawn);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + document.getFilename() + " to be committed; it may still be stored.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) throw failure;
+            if (e.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException("Committing " + document.getFilename() + " failed.", e.getCause());
+        }
+    }
+
+    private boolean committing() {
+        for (Thread committer : threads) {
+            if (committer.isAlive()) return true;
+        }
+        return false;
+    }
+
+    private void commitLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        // Documents still queued at shutdown are committed before the thread ends
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWait.toNanos();
+                queue.drainTo(batch, maxBatch - batch.size());
+                while (batch.size() < maxBatch) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (batch.isEmpty()) continue;
+            try {
+                commitBatch(batch);
+            } catch (Throwable t) {
+                // Not rethrown: the thread would end with callers still waiting on it
+                log.error("Committing a micro-batch of {} documents failed: {}", batch.size(), t.getMessage(), t);
+                metrics.failure("commit", t);
+                batch.forEach(pending -> pending.saved().completeExceptionally(t));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        long started = metrics.start();
+        List<Document> saved = new ArrayList<>(batch.size());
+        RuntimeException[] afterCommitFailures = new RuntimeException[batch.size()];
+        AtomicBoolean committed = new AtomicBoolean();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Registered first, so it runs before any other after-commit work
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        committed.set(true);
+                    }
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    int document = i;
+                    saved.add(saveIsolated(batch.get(i), failure -> {
+                        if (afterCommitFailures[document] == null) afterCommitFailures[document] = failure;
+                    }));
+                }
+                documentRepository.flush();
+            });
+        } catch (RuntimeException e) {
+            if (!committed.get()) {
+                log.debug("Micro-batch of {} documents failed ({}); committing them one by one", batch.size(), e.getMessage());
+                batch.forEach(this::commitAlone);
+                return;
+            }
+            // Stored all the same; committing them again would duplicate them
+            log.warn("After-commit work for a micro-batch of {} documents failed: {}", batch.size(), e.getMessage(), e);
+        }
+        metrics.stop(started, PipelineMetrics.COMMIT, "outcome", "batch");
+        for (int i = 0; i < batch.size(); i++) {
+            RuntimeException failure = afterCommitFailures[i];
+            if (failure == null) {
+                batch.get(i).saved().complete(saved.get(i));
+                continue;
+            }
+            // Stored, but e.g. not indexed: its caller is told, as when it is committed alone
+            log.error("Document {} was stored as ID {}, but its after-commit work failed: {}",
+                    saved.get(i).getFilename(), saved.get(i).getId(), failure.getMessage(), failure);
+            metrics.failure("after-commit", failure);
+            batch.get(i).saved().completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Saves one document of a micro-batch with the transaction synchronizations it registers
+     * (search index, facets, result cache, read-your-writes) collected apart and registered
+     * again as one that runs each of them on its own. Spring stops calling afterCommit hooks
+     * at the first that throws, so otherwise one document's failure would skip the after-commit
+     * work of every later document in the batch. Failures go to {@code onFailure}.
+     */
+    private Document saveIsolated(Pending pending, Consumer<RuntimeException> onFailure) {
+        List<TransactionSynchronization> outer = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> own;
+        try {
+            return saveFor(pending);
+        } finally {
+            // Registered even when saving failed, so the document's hooks still hear of the rollback
+            own = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.initSynchronization();
+            outer.forEach(TransactionSynchronizationManager::registerSynchronization);
+            TransactionSynchronizationManager.registerSynchronization(new IsolatedSynchronization(own, onFailure));
+        }
+    }
+
+    /** The synchronizations of one document, each of whose afterCommit failures is caught and reported. */
+    private record IsolatedSynchronization(List<TransactionSynchronization> synchronizations,
+                                           Consumer<RuntimeException> onFailure) implements TransactionSynchronization {
+
+        @Override
+        public void flush() {
+            synchronizations.forEach(TransactionSynchronization::flush);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(readOnly));
+        }
+
+        @Override
+        public void beforeCompletion() {
+            synchronizations.forEach(TransactionSynchronization::beforeCompletion);
+        }
+
+        @Override
+        public void afterCommit() {
+            for (TransactionSynchronization synchronization : synchronizations) {
+                try {
+                    synchronization.afterCommit();
+                } catch (RuntimeException e) {
+                    onFailure.accept(e);
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            for (TransactionSynchronization synchronization : synchronizations) {
+                try {
+                    synchronization.afterCompletion(status);
+                } catch (RuntimeException e) {
+                    log.warn("After-completion work of a group-committed document failed: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void commitAlone(Pending pending) {
+        for (int attempt = 0; ; attempt++) {
+            // The rolled-back insert left its ID behind; without one the document is persisted again, not merged
+            pending.document().setId(null);
+            long started = metrics.start();
+            try {
+                Document saved = transactionTemplate.execute(status -> flushed(saveFor(pending)));
+                metrics.stop(started, PipelineMetrics.COMMIT, "outcome", "alone");
+                pending.saved().complete(saved);
+                return;
+            } catch (TransientDataAccessException e) {
+                if (attempt >= retries) {
+                    pending.saved().completeExceptionally(e);
+                    return;
+                }
+                log.debug("Retrying commit of {} after: {}", pending.document().getFilename(), e.getMessage());
+            } catch (RuntimeException e) {
+                pending.saved().completeExceptionally(e);
+                return;
+            }
+        }
+    }
+
+    // Saved on behalf of the uploading client, so its read-your-writes window starts at this commit
+    private Document saveFor(Pending pending) {
+        return readYourWrites.callOnPrimary(pending.client(), () -> pending.save().apply(pending.document()));
+    }
+
+    // Flushed so the insert (and its @CreationTimestamp) happens before the DTO is built,
+    // and a duplicate content hash fails here rather than at commit
+    private Document flushed(Document saved) {
+        documentRepository.flush();
+        return saved;
+    }
+}
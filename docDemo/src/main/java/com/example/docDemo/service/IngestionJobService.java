@@ -0,0 +1,127 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.dto.IngestionJobDTO;
+import com.example.docDemo.exception.CustomExceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts uploads as ingestion jobs. The upload is spooled to a temp file on the request
+ * thread, then the {@link IngestionScheduler} runs extraction and storage on the ingestion
+ * executor while the caller polls the job. A full lane is reported as
+ * {@link CustomExceptions.IngestionQueueFullException}.
+ */
+@Service
+public class IngestionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobService.class);
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UploadSpooler uploadSpooler;
+
+    @Autowired
+    private TextExtractionService textExtractionService;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private IngestionScheduler ingestionScheduler;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Value("${docdemo.ingestion.job-retention:PT1H}")
+    private Duration jobRetention;
+
+    private final Map<String, IngestionJobDTO> jobs = new ConcurrentHashMap<>();
+
+    public IngestionJobDTO submit(MultipartFile file, String author) throws IOException {
+        String filename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown_file";
+        String contentType = textExtractionService.resolveContentType(file.getContentType(), filename);
+
+        // The multipart temp file is deleted when the request ends, so keep our own copy
+        long receiving = metrics.start();
+        SpooledUpload upload;
+        try (InputStream in = file.getInputStream()) {
+            upload = uploadSpooler.spool(in, filename, contentType);
+        }
+        metrics.stop(receiving, PipelineMetrics.RECEIVE, "mode", "single");
+
+        String jobId = UUID.randomUUID().toString();
+        IngestionJobDTO job = new IngestionJobDTO(jobId, IngestionJobDTO.Status.QUEUED, filename, LocalDateTime.now(), null, null, null);
+        jobs.put(jobId, job);
+        // The job stores the document for this request's client, which then reads its own upload
+        String client = readYourWrites.currentClient();
+        IngestionScheduler.Lane lane;
+        try {
+            lane = ingestionScheduler.submit(upload, () -> readYourWrites.runOnPrimary(client, () -> run(jobId, upload, author)));
+        } catch (TaskRejectedException e) {
+            jobs.remove(jobId);
+            upload.close();
+            throw new CustomExceptions.IngestionQueueFullException(filename, e);
+        }
+        log.debug("Queued ingestion job {} for file {} in the {} lane", jobId, filename, lane.tag());
+        return job;
+    }
+
+    public IngestionJobDTO getJob(String jobId) {
+        IngestionJobDTO job = jobs.get(jobId);
+        if (job == null) {
+            throw new CustomExceptions.IngestionJobNotFoundException(jobId);
+        }
+        return job;
+    }
+
+    @Scheduled(fixedDelayString = "${docdemo.ingestion.job-purge-interval:PT5M}")
+    public void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void run(String jobId, SpooledUpload upload, String author) {
+        String filename = upload.getFilename();
+        update(jobId, IngestionJobDTO.Status.PROCESSING, null, null);
+        try (upload) {
+            DocumentMetadataDTO document = documentService.ingestDocument(upload, author);
+            update(jobId, IngestionJobDTO.Status.COMPLETED, document, null);
+        } catch (CustomExceptions.UnsupportedDocumentTypeException | CustomExceptions.TextExtractionException
+                 | CustomExceptions.ExtractionOverloadedException | CustomExceptions.IngestionCommitTimeoutException e) {
+            log.error("Ingestion job {} failed for file {}: {}", jobId, filename, e.getMessage());
+            metrics.failure("ingest", e);
+            update(jobId, IngestionJobDTO.Status.FAILED, null, e.getMessage());
+        } catch (IOException e) {
+            log.error("Ingestion job {} could not read file {}: {}", jobId, filename, e.getMessage(), e);
+            metrics.failure("ingest", e);
+            update(jobId, IngestionJobDTO.Status.FAILED, null, "Failed to read document file: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Unexpected error in ingestion job {} for file {}: {}", jobId, filename, e.getMessage(), e);
+            metrics.failure("ingest", e);
+            update(jobId, IngestionJobDTO.Status.FAILED, null, "Ingestion failed: " + e.getMessage());
+        }
+    }
+
+    private void update(String jobId, IngestionJobDTO.Status status, DocumentMetadataDTO document, String error) {
+        boolean finished = status == IngestionJobDTO.Status.COMPLETED || status == IngestionJobDTO.Status.FAILED;
+        jobs.computeIfPresent(jobId, (id, job) -> new IngestionJobDTO(id, status, job.getFilename(), job.getSubmittedAt(),
+                finished ? LocalDateTime.now() : null, document, error));
+    }
+}
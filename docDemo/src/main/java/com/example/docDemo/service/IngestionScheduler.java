@@ -0,0 +1,313 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.extraction.DocumentExtractor;
+import com.example.docDemo.extraction.ExtractorRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides when queued ingestion jobs run on the ingestion executor. Each job's cost is
+ * estimated as its size divided by the throughput of its format, which starts at
+ * {@code docdemo.ingestion.scheduler.throughput.<extractor>} and is then learned from
+ * finished jobs. Jobs estimated to finish within {@code fast-lane-max-estimate} wait in the
+ * fast lane, the rest in the bulk lane, so a burst of large PDFs cannot queue ahead of small
+ * text files.
+ * <p>
+ * Lanes are served by smooth weighted round robin, and the bulk lane never takes the last
+ * {@code fast-lane-reserved} slots. The number of jobs running at once moves between
+ * {@code min-concurrency} and {@code max-concurrency}: while jobs are waiting it climbs one
+ * step at a time as long as throughput (estimated seconds of work finished per second)
+ * holds up, turning back when it drops; when heap usage passes {@code heap-high-water} it
+ * is halved and no further bulk jobs start until usage falls again.
+ * <p>
+ * Queue depth and running jobs are published per lane as {@code docdemo.ingestion.lane.queued}
+ * and {@code .running}, time spent queued as the {@code docdemo.ingestion.lane.wait} timer,
+ * and the current limit as {@code docdemo.ingestion.concurrency.limit}.
+ */
+@Component
+public class IngestionScheduler implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionScheduler.class);
+    // Jobs this small are mostly fixed overhead, which says little about a format's throughput
+    private static final long MIN_OBSERVED_SIZE = 64 * 1024;
+    private static final double LEARNING_RATE = 0.2;
+    // Throughput changes smaller than this between adjustments are noise
+    private static final double TOLERANCE = 0.1;
+
+    public enum Lane {
+        FAST, BULK;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    @Autowired
+    private ExtractorRegistry extractorRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    @Qualifier("ingestionExecutor")
+    private ThreadPoolTaskExecutor ingestionExecutor;
+
+    @Value("${docdemo.ingestion.scheduler.fast-lane-max-estimate:PT1S}")
+    private Duration fastLaneMaxEstimate;
+
+    @Value("${docdemo.ingestion.scheduler.fast.weight:4}")
+    private int fastWeight;
+
+    @Value("${docdemo.ingestion.scheduler.bulk.weight:1}")
+    private int bulkWeight;
+
+    @Value("${docdemo.ingestion.scheduler.fast.queue-capacity:100}")
+    private int fastQueueCapacity;
+
+    @Value("${docdemo.ingestion.scheduler.bulk.queue-capacity:50}")
+    private int bulkQueueCapacity;
+
+    @Value("${docdemo.ingestion.scheduler.fast-lane-reserved:1}")
+    private int fastLaneReserved;
+
+    @Value("${docdemo.ingestion.scheduler.min-concurrency:2}")
+    private int minConcurrency;
+
+    @Value("${docdemo.ingestion.scheduler.max-concurrency:0}")
+    private int maxConcurrency;
+
+    @Value("${docdemo.ingestion.scheduler.heap-high-water:0.85}")
+    private double heapHighWater;
+
+    DoubleSupplier heapUsage = IngestionScheduler::currentHeapUsage;
+
+    private final Map<Lane, LaneQueue> lanes = new EnumMap<>(Lane.class);
+    // Bytes per second by extractor name, as configured and then as observed
+    private final Map<String, Double> throughput = new HashMap<>();
+    private double defaultThroughput;
+    private int limit;
+    private int running;
+    private int step = 1;
+    private double finishedWork;
+    private double lastRate;
+    private long windowStart;
+
+    private record Job(Runnable work, String extractor, long size, double estimate, long queuedAt) {
+    }
+
+    private static final class LaneQueue {
+
+        final Lane lane;
+        final int capacity;
+        final int weight;
+        final ArrayDeque<Job> queue = new ArrayDeque<>();
+        int running;
+        int credit;
+
+        LaneQueue(Lane lane, int capacity, int weight) {
+            this.lane = lane;
+            this.capacity = capacity;
+            this.weight = weight;
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (maxConcurrency <= 0) maxConcurrency = ingestionExecutor.getMaxPoolSize();
+        minConcurrency = Math.max(1, Math.min(minConcurrency, maxConcurrency));
+        limit = Math.max(minConcurrency, Math.min(maxConcurrency, Runtime.getRuntime().availableProcessors()));
+        lanes.put(Lane.FAST, new LaneQueue(Lane.FAST, fastQueueCapacity, fastWeight));
+        lanes.put(Lane.BULK, new LaneQueue(Lane.BULK, bulkQueueCapacity, bulkWeight));
+        defaultThroughput = environment.getProperty("docdemo.ingestion.scheduler.throughput.default",
+                DataSize.class, DataSize.ofMegabytes(20)).toBytes();
+        windowStart = System.nanoTime();
+
+        for (LaneQueue lane : lanes.values()) {
+            Gauge.builder("docdemo.ingestion.lane.queued", this, scheduler -> scheduler.queued(lane.lane))
+                    .tag("lane", lane.lane.tag()).register(meterRegistry);
+            Gauge.builder("docdemo.ingestion.lane.running", this, scheduler -> scheduler.running(lane.lane))
+                    .tag("lane", lane.lane.tag()).register(meterRegistry);
+        }
+        Gauge.builder("docdemo.ingestion.concurrency.limit", this, IngestionScheduler::concurrencyLimit).register(meterRegistry);
+    }
+
+    /**
+     * Queues {@code work} for the upload in the lane its estimated cost belongs to, and
+     * starts it once a slot is free.
+     *
+     * @throws TaskRejectedException if that lane's queue is full
+     */
+    public Lane submit(SpooledUpload upload, Runnable work) {
+        String extractor = extractorRegistry.forContentType(upload.getContentType()).map(DocumentExtractor::name).orElse("default");
+        synchronized (this) {
+            double estimate = upload.getSize() / throughputOf(extractor);
+            Lane lane = estimate <= fastLaneMaxEstimate.toNanos() / 1e9 ? Lane.FAST : Lane.BULK;
+            LaneQueue queue = lanes.get(lane);
+            if (queue.queue.size() >= queue.capacity) {
+                throw new TaskRejectedException("The " + lane.tag() + " ingestion lane is full (" + queue.capacity + " jobs)");
+            }
+            queue.queue.add(new Job(work, extractor, upload.getSize(), estimate, metrics.start()));
+            dispatch();
+            return lane;
+        }
+    }
+
+    /** Estimated seconds to ingest {@code size} bytes of {@code contentType}. */
+    public synchronized double estimate(String contentType, long size) {
+        return size / throughputOf(extractorRegistry.forContentType(contentType).map(DocumentExtractor::name).orElse("default"));
+    }
+
+    public synchronized int concurrencyLimit() {
+        return limit;
+    }
+
+    public synchronized int queued(Lane lane) {
+        return lanes.get(lane).queue.size();
+    }
+
+    public synchronized int running(Lane lane) {
+        return lanes.get(lane).running;
+    }
+
+    /**
+     * Moves the concurrency limit: halves it under heap pressure, otherwise, while jobs are
+     * waiting for a slot, takes one step in the direction that last kept throughput up.
+     */
+    @Scheduled(fixedDelayString = "${docdemo.ingestion.scheduler.adjust-interval:PT5S}")
+    public synchronized void adjustConcurrency() {
+        long now = System.nanoTime();
+        double rate = finishedWork / Math.max((now - windowStart) / 1e9, 1e-3);
+        windowStart = now;
+        finishedWork = 0;
+
+        int previous = limit;
+        if (heapUsage.getAsDouble() > heapHighWater) {
+            limit = Math.max(minConcurrency, limit / 2);
+            step = 1;
+        } else if (running >= limit && waiting() > 0) {
+            if (rate < lastRate * (1 - TOLERANCE)) step = -step;
+            // Climbing again from the floor; at the ceiling, stay while throughput holds
+            if (limit + step < minConcurrency) step = 1;
+            limit = Math.max(minConcurrency, Math.min(maxConcurrency, limit + step));
+        }
+        lastRate = rate;
+        if (limit != previous) {
+            log.debug("Ingestion concurrency {} -> {} ({} s of work/s, heap {})", previous, limit,
+                    String.format("%.2f", rate), String.format("%.2f", heapUsage.getAsDouble()));
+        }
+        dispatch();
+    }
+
+    // Caller holds the lock
+    private void dispatch() {
+        while (running < limit) {
+            LaneQueue lane = next();
+            if (lane == null) return;
+            Job job = lane.queue.poll();
+            try {
+                ingestionExecutor.execute(() -> run(lane, job));
+            } catch (TaskRejectedException e) {
+                // Every worker is still finishing its previous job; retried when one completes
+                lane.queue.addFirst(job);
+                return;
+            }
+            lane.running++;
+            running++;
+        }
+    }
+
+    /** The lane to start a job from: smooth weighted round robin over the lanes that may start one. */
+    private LaneQueue next() {
+        LaneQueue chosen = null;
+        int totalWeight = 0;
+        for (LaneQueue lane : lanes.values()) {
+            if (lane.queue.isEmpty() || !mayStart(lane)) continue;
+            lane.credit += lane.weight;
+            totalWeight += lane.weight;
+            if (chosen == null || lane.credit > chosen.credit) chosen = lane;
+        }
+        if (chosen != null) chosen.credit -= totalWeight;
+        return chosen;
+    }
+
+    private boolean mayStart(LaneQueue lane) {
+        if (lane.lane == Lane.FAST) return true;
+        if (lane.running > 0 && heapUsage.getAsDouble() > heapHighWater) return false;
+        return lane.running < Math.max(1, limit - fastLaneReserved);
+    }
+
+    private void run(LaneQueue lane, Job job) {
+        metrics.stop(job.queuedAt(), PipelineMetrics.LANE_WAIT, "lane", lane.lane.tag());
+        long started = System.nanoTime();
+        try {
+            job.work().run();
+        } finally {
+            finished(lane, job, (System.nanoTime() - started) / 1e9);
+        }
+    }
+
+    private synchronized void finished(LaneQueue lane, Job job, double seconds) {
+        lane.running--;
+        running--;
+        finishedWork += job.estimate();
+        if (job.size() >= MIN_OBSERVED_SIZE && seconds > 0) {
+            double observed = job.size() / seconds;
+            throughput.merge(job.extractor(), observed, (current, sample) -> current + LEARNING_RATE * (sample - current));
+        }
+        dispatch();
+    }
+
+    private double throughputOf(String extractor) {
+        return throughput.computeIfAbsent(extractor, name -> {
+            DataSize configured = environment.getProperty("docdemo.ingestion.scheduler.throughput." + name, DataSize.class);
+            return configured != null ? (double) configured.toBytes() : defaultThroughput;
+        });
+    }
+
+    private int waiting() {
+        return lanes.values().stream().mapToInt(lane -> lane.queue.size()).sum();
+    }
+
+    /** Heap in use after the last collection of each pool, as a fraction of the maximum, so garbage does not count. */
+    private static double currentHeapUsage() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        if (heap.getMax() <= 0) return 0;
+        long live = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            MemoryUsage afterCollection = pool.getCollectionUsage();
+            live += afterCollection != null ? afterCollection.getUsed() : pool.getUsage().getUsed();
+        }
+        return (double) live / heap.getMax();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.entity.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Fills {@code author_normalized} and {@code content_type_normalized} for rows stored before
+ * those columns existed; new and updated rows get them from {@link Document}. Runs in the
+ * background after startup when {@code docdemo.storage.metadata.backfill-on-startup} is set,
+ * walking rows without a normalized content type in ID order, one JDBC batch per
+ * {@code backfill-batch-size} rows. Until it finishes, filtered listings do not see those rows.
+ */
+@Service
+public class MetadataBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(MetadataBackfill.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Value("${docdemo.storage.metadata.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${docdemo.storage.metadata.backfill-batch-size:1000}")
+    private int batchSize;
+
+    private record Row(long id, String author, String contentType) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) return;
+        Thread backfill = new Thread(this::backfill, "metadata-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    /** Normalizes every row that has not been yet; returns how many were updated. */
+    public long backfill() {
+        long started = System.currentTimeMillis();
+        long updated = 0;
+        long afterId = 0;
+        try {
+            while (true) {
+                // content_type is NOT NULL, so a null normalized copy marks a row that was never normalized
+                List<Row> rows = jdbcTemplate.query("SELECT id, author, content_type FROM files"
+                                + " WHERE content_type_normalized IS NULL AND id > ? ORDER BY id LIMIT ?",
+                        (rs, row) -> new Row(rs.getLong(1), rs.getString(2), rs.getString(3)), afterId, batchSize);
+                if (rows.isEmpty()) break;
+                jdbcTemplate.batchUpdate("UPDATE files SET author_normalized = ?, content_type_normalized = ? WHERE id = ?",
+                        rows.stream().map(row -> new Object[]{Document.normalizeAuthor(row.author()),
+                                Document.normalizeContentType(row.contentType()), row.id()}).toList());
+                updated += rows.size();
+                afterId = rows.get(rows.size() - 1).id();
+            }
+            if (updated > 0) {
+                searchResultCache.documentsChanged();
+                log.info("Metadata backfill finished: {} documents normalized in {} ms", updated, System.currentTimeMillis() - started);
+            }
+        } catch (Exception e) {
+            log.error("Metadata backfill stopped after {} documents (last ID {}): {}", updated, afterId, e.getMessage(), e);
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.docDemo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and failure counters for each stage of ingestion and search, published through
+ * Actuator at /actuator/metrics and /actuator/prometheus:
+ * <ul>
+ *     <li>{@code docdemo.ingestion.receive}: spooling an upload to disk, by mode (single or batch)</li>
+ *     <li>{@code docdemo.ingestion.queue.wait}: time from submission until an executor thread picks the work up, by executor</li>
+ *     <li>{@code docdemo.ingestion.lane.wait}: time an ingestion job waits for the {@link IngestionScheduler} to start it, by lane</li>
+ *     <li>{@code docdemo.ingestion.extract}: text extraction, by content type and outcome</li>
+ *     <li>{@code docdemo.ingestion.save}: the database transaction storing documents, by mode</li>
+ *     <li>{@code docdemo.ingestion.commit}: a {@link GroupCommitter} transaction, by outcome (batch, or alone after a failed batch);
+ *     {@code docdemo.ingestion.commit.batch} is the size of each micro-batch</li>
+ *     <li>{@code docdemo.search}: the whole search call on a cache miss, by operation and source (index or sql)</li>
+ *     <li>{@code docdemo.search.snippets}: snippet and highlight generation for one page of hits</li>
+ *     <li>{@code docdemo.export}: a whole bulk export, by outcome; {@code docdemo.export.documents} counts the documents written</li>
+ *     <li>{@code docdemo.failures}: failed work, by stage and exception type</li>
+ * </ul>
+ * Percentile histograms for all of them are switched on by
+ * {@code management.metrics.distribution.percentiles-histogram.docdemo}. Executor queue
+ * depth and active threads are published by Spring Boot as {@code executor.*}, tagged with
+ * the executor bean name.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String RECEIVE = "docdemo.ingestion.receive";
+    public static final String QUEUE_WAIT = "docdemo.ingestion.queue.wait";
+    public static final String LANE_WAIT = "docdemo.ingestion.lane.wait";
+    public static final String EXTRACT = "docdemo.ingestion.extract";
+    public static final String SAVE = "docdemo.ingestion.save";
+    public static final String COMMIT = "docdemo.ingestion.commit";
+    public static final String COMMIT_BATCH = "docdemo.ingestion.commit.batch";
+    public static final String SEARCH = "docdemo.search";
+    public static final String SNIPPETS = "docdemo.search.snippets";
+    public static final String EXPORT = "docdemo.export";
+    public static final String EXPORTED_DOCUMENTS = "docdemo.export.documents";
+    public static final String FAILURES = "docdemo.failures";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** Starts timing; pass the result to {@link #stop}. */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /** Records the time since {@code started} in the timer {@code name} with the given tag key/value pairs. */
+    public void stop(long started, String name, String... tags) {
+        Timer.builder(name).tags(tags).register(meterRegistry).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    public void count(String name, long amount) {
+        Counter.builder(name).register(meterRegistry).increment(amount);
+    }
+
+    /** Counts a failure in {@code stage}, tagged with the simple name of the exception, e.g. TextExtractionException. */
+    public void failure(String stage, Throwable exception) {
+        Counter.builder(FAILURES)
+                .tags("stage", stage, "exception", exception.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.docDemo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Decides when a read-only transaction must still go to the primary under read/write
+ * routing ({@code docdemo.datasource.routing.enabled}). A replica may lag the primary, so a
+ * client that stored a document keeps reading from the primary for
+ * {@code read-your-writes-window} after the commit, and sees its own upload in search and
+ * listings straight away. Other clients read from the replica meanwhile.
+ * <p>
+ * A client is the value of the {@code client-header} request header, else the remote
+ * address. Ingestion jobs run off the request thread, so they are run through
+ * {@link #runOnPrimary} on behalf of the client that submitted them; all their reads,
+ * duplicate lookups included, go to the primary as well.
+ */
+@Component
+public class ReadYourWrites implements InitializingBean {
+
+    /** The client of work that is neither a request nor run on behalf of one. */
+    static final String LOCAL_CLIENT = "local";
+    private static final long NEVER = Long.MIN_VALUE;
+
+    @Value("${docdemo.datasource.routing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${docdemo.datasource.routing.read-your-writes-window:PT5S}")
+    private Duration window = Duration.ofSeconds(5);
+
+    @Value("${docdemo.datasource.routing.client-header:X-Client-Id}")
+    private String clientHeader = "X-Client-Id";
+
+    private record OnBehalfOf(String client) {
+    }
+
+    private final ThreadLocal<OnBehalfOf> onBehalfOf = new ThreadLocal<>();
+    private volatile long lastWriteNanos = NEVER;
+    private Cache<String, Boolean> recentWriters;
+
+    @Override
+    public void afterPropertiesSet() {
+        recentWriters = Caffeine.newBuilder().expireAfterWrite(window).build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The client the current thread works for. */
+    public String currentClient() {
+        OnBehalfOf work = onBehalfOf.get();
+        if (work != null) return work.client();
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            String client = request.getHeader(clientHeader);
+            return StringUtils.hasText(client) ? client : request.getRemoteAddr();
+        }
+        return LOCAL_CLIENT;
+    }
+
+    /** Runs ingestion work for {@code client} with every transaction on the primary. */
+    public void runOnPrimary(String client, Runnable work) {
+        callOnPrimary(client, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** As {@link #runOnPrimary}, returning the work's result. */
+    public <T> T callOnPrimary(String client, Supplier<T> work) {
+        OnBehalfOf previous = onBehalfOf.get();
+        onBehalfOf.set(new OnBehalfOf(client));
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) onBehalfOf.set(previous);
+            else onBehalfOf.remove();
+        }
+    }
+
+    /** Starts the current client's window, after the surrounding transaction commits. */
+    public void wrote() {
+        if (!enabled) return;
+        String client = currentClient();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(client);
+                }
+            });
+        } else {
+            record(client);
+        }
+    }
+
+    /** Whether a read-only transaction on this thread must use the primary. */
+    public boolean mustReadPrimary() {
+        if (!enabled) return true;
+        return onBehalfOf.get() != null || recentWriters.getIfPresent(currentClient()) != null;
+    }
+
+    /**
+     * Whether any client wrote within the window, so a replica may not have every committed
+     * document yet; results read now should not be cached for everyone.
+     */
+    public boolean replicasMayLag() {
+        long last = lastWriteNanos;
+        return enabled && last != NEVER && System.nanoTime() - last < window.toNanos();
+    }
+
+    private void record(String client) {
+        lastWriteNanos = System.nanoTime();
+        recentWriters.put(client, Boolean.TRUE);
+    }
+}
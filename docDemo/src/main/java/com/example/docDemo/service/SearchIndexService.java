@@ -0,0 +1,341 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentCursor;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.search.InvertedIndex;
+import com.example.docDemo.search.Query;
+import com.example.docDemo.search.Tokenizer;
+import com.example.docDemo.storage.ChunkedTextSpool;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+/**
+ * Keeps the in-memory {@link InvertedIndex} in step with the {@code files} table and
+ * answers keyword searches from it. The index is rebuilt from the database on startup;
+ * until that finishes {@link #isReady()} is false and callers fall back to SQL.
+ * <p>
+ * Matches sorted into upload order are cached per keyword under the index generation,
+ * which every added document bumps, so paging through one keyword sorts it only once.
+ */
+@Service
+public class SearchIndexService implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexService.class);
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Value("${docdemo.search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${docdemo.search.index.upload-order-cache.max-weight-bytes:16777216}")
+    private long uploadOrderCacheBytes;
+
+    private final InvertedIndex index = new InvertedIndex();
+    // The index returns matches in ID order, which is not upload order: IDs are allocated in
+    // pooled blocks and timestamps can be backfilled. These put matches in (uploadTimestamp, id) order.
+    private final Map<Long, LocalDate> uploadDates = new ConcurrentHashMap<>();
+    // Position of the first term of each chunk, per chunked document, to find a keyword's chunks
+    private final Map<Long, int[]> chunkStarts = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private Cache<String, UploadOrder> uploadOrderCache;
+    private volatile boolean ready;
+
+    /** A keyword's matches in upload order, valid while the index is at {@code generation}. */
+    private record UploadOrder(long generation, long[] ids) {
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        uploadOrderCache = Caffeine.newBuilder()
+                .maximumWeight(uploadOrderCacheBytes)
+                .weigher((String keyword, UploadOrder order) -> 64 + 2 * keyword.length() + 8 * order.ids().length)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!enabled) {
+            log.info("Search index disabled; keyword searches will use SQL LIKE scans.");
+            return;
+        }
+        Thread rebuild = new Thread(this::rebuild, "search-index-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        ready = false;
+        index.clear();
+        uploadDates.clear();
+        chunkStarts.clear();
+        generation.incrementAndGet();
+        try {
+            Pageable page = PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("id"));
+            Page<Document> documents;
+            do {
+                documents = documentRepository.findAll(page);
+                documents.forEach(this::add);
+                page = documents.nextPageable();
+            } while (documents.hasNext());
+            ready = true;
+            log.info("Search index built: {} documents, {} terms in {} ms",
+                    index.documentCount(), index.termCount(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Search index rebuild failed; keyword searches will use SQL LIKE scans: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tokenizes a document's text for {@link #index(Document, InvertedIndex.DocumentTerms)}, so
+     * the costly part of indexing runs on the ingesting thread rather than in the transaction
+     * or on a group committer. A chunked document is tokenized from its chunk spool, so call
+     * this before {@link DocumentContentService#writeChunks} deletes it. Null when the index
+     * is disabled.
+     */
+    public InvertedIndex.DocumentTerms analyze(Document document) {
+        if (!enabled) return null;
+        if (document.getChunkSpool() != null) {
+            try (ChunkedTextSpool.ChunkReader chunks = document.getChunkSpool().openChunks()) {
+                return InvertedIndex.analyze(chunks);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read spooled text of " + document.getFilename(), e);
+            }
+        }
+        Document source = documentContentService.textSource(document);
+        if (documentContentService.isChunked(source)) {
+            // A duplicate of a committed original, whose chunks are read one at a time
+            return InvertedIndex.analyze(documentContentService.chunks(source));
+        }
+        return InvertedIndex.analyze(documentContentService.contentOf(source));
+    }
+
+    /**
+     * Indexes a saved document under the given text; used for duplicates, whose text is
+     * stored on the original document.
+     */
+    public void index(Document document, String content) {
+        if (!enabled) return;
+        index(document, InvertedIndex.analyze(content));
+    }
+
+    /**
+     * Adds a saved document under terms from {@link #analyze}. Deferred until commit, so
+     * searches never return IDs that are not yet visible in the database.
+     */
+    public void index(Document document, InvertedIndex.DocumentTerms terms) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            uploadDates.put(document.getId(), document.getUploadTimestamp());
+            // Duplicates share the chunk starts their original was indexed with
+            if (documentContentService.isChunked(document)) chunkStarts.put(document.getId(), terms.pieceStarts());
+            index.add(document.getId(), terms);
+            generation.incrementAndGet();
+        });
+    }
+
+    private void afterCommit(Runnable indexing) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexing.run();
+                }
+            });
+        } else {
+            indexing.run();
+        }
+    }
+
+    private void add(Document document) {
+        uploadDates.put(document.getId(), document.getUploadTimestamp());
+        Document source = documentContentService.textSource(document);
+        if (documentContentService.isChunked(source)) {
+            InvertedIndex.DocumentTerms terms = InvertedIndex.analyze(documentContentService.chunks(source));
+            chunkStarts.put(source.getId(), terms.pieceStarts());
+            index.add(document.getId(), terms);
+        } else {
+            index.add(document.getId(), documentContentService.contentOf(source));
+        }
+        generation.incrementAndGet();
+    }
+
+    /**
+     * The chunks of a chunked document that hold a word starting with one of the keyword's
+     * terms, in order, found from the positions the index keeps rather than by reading them.
+     * Empty if the index cannot tell (not built yet). A word cut by a hard chunk boundary
+     * counts for the chunk it starts in, so callers still check the chunks they read.
+     */
+    public Optional<int[]> chunksMatching(Document source, String keyword) {
+        int[] starts = chunkStarts.get(source.getId());
+        if (!isReady() || starts == null) return Optional.empty();
+        BitSet chunks = new BitSet(starts.length);
+        for (String term : Tokenizer.terms(keyword)) {
+            for (int position : index.prefixPositions(source.getId(), term)) {
+                chunks.set(chunkAt(starts, position));
+            }
+        }
+        return Optional.of(chunks.stream().toArray());
+    }
+
+    /** The last chunk starting at or before {@code position}; chunks without terms share a start. */
+    private static int chunkAt(int[] starts, int position) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] > position) high = middle;
+            else low = middle + 1;
+        }
+        return Math.max(0, low - 1);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Returns one page of matching document IDs, or empty if the index cannot serve this
+     * request (not built yet, or sorted by something other than upload order). Sorted by
+     * {@code uploadTimestamp}, ties are broken by ID, as in the SQL and cursor paths.
+     */
+    public Optional<Page<Long>> search(String keyword, Pageable pageable) {
+        if (!isReady()) return Optional.empty();
+        Sort.Direction direction = Sort.Direction.ASC;
+        boolean byUploadTime = false;
+        for (Sort.Order order : pageable.getSort()) {
+            if (!order.getProperty().equals("id") && !order.getProperty().equals("uploadTimestamp")) {
+                return Optional.empty();
+            }
+            byUploadTime |= order.getProperty().equals("uploadTimestamp");
+            direction = order.getDirection();
+        }
+
+        long[] matches = byUploadTime ? inUploadOrder(keyword) : index.search(keyword);
+        List<Long> ids = new ArrayList<>(pageable.isPaged() ? pageable.getPageSize() : matches.length);
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        long end = pageable.isPaged() ? Math.min(matches.length, offset + pageable.getPageSize()) : matches.length;
+        for (long i = offset; i < end; i++) {
+            int position = direction.isAscending() ? (int) i : matches.length - 1 - (int) i;
+            ids.add(matches[position]);
+        }
+        return Optional.of(new PageImpl<>(ids, pageable, matches.length));
+    }
+
+    /**
+     * One page of the best matches of a ranked query, best first, with the total number of
+     * matches. Only the hits up to the end of the page are ranked. Empty if the index is not
+     * built yet.
+     */
+    public Optional<Page<InvertedIndex.Hit>> rank(Query query, Pageable pageable) {
+        if (!isReady()) return Optional.empty();
+        int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+        InvertedIndex.Ranking ranking = index.rank(query, (int) Math.min((long) offset + pageable.getPageSize(), Integer.MAX_VALUE));
+        List<InvertedIndex.Hit> hits = ranking.hits();
+        return Optional.of(new PageImpl<>(hits.subList(Math.min(offset, hits.size()), hits.size()), pageable, ranking.totalMatches()));
+    }
+
+    /**
+     * Keyset variant of {@link #search}: up to {@code limit} matching IDs strictly after
+     * {@code after} in {@code (uploadTimestamp, id)} order in the given direction, found by
+     * binary search instead of an offset. Empty if the index is not built yet.
+     */
+    public Optional<List<Long>> searchAfter(String keyword, DocumentCursor after, Sort.Direction direction, int limit) {
+        if (!isReady()) return Optional.empty();
+        long[] matches = inUploadOrder(keyword);
+        List<Long> ids = new ArrayList<>(limit);
+        if (direction.isAscending()) {
+            int from = firstIndex(matches, id -> compareToCursor(id, after) > 0);
+            for (int i = from; i < matches.length && ids.size() < limit; i++) ids.add(matches[i]);
+        } else {
+            int from = firstIndex(matches, id -> compareToCursor(id, after) >= 0) - 1;
+            for (int i = from; i >= 0 && ids.size() < limit; i--) ids.add(matches[i]);
+        }
+        return Optional.of(ids);
+    }
+
+    private int compareToCursor(long id, DocumentCursor cursor) {
+        int byDate = uploadDates.getOrDefault(id, LocalDate.MIN).compareTo(cursor.uploadTimestamp());
+        return byDate != 0 ? byDate : Long.compare(id, cursor.id());
+    }
+
+    /** Binary search for the first element matching a condition that, once true, stays true. */
+    private static int firstIndex(long[] sorted, LongPredicate condition) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (condition.test(sorted[middle])) high = middle;
+            else low = middle + 1;
+        }
+        return low;
+    }
+
+    /**
+     * The keyword's matches in {@code (uploadTimestamp, id)} order, from the cache unless a
+     * document was added since they were sorted. Callers must not modify the array. A sort
+     * racing an add is stored under the generation read before the search, so it is never
+     * served once the add is visible.
+     */
+    private long[] inUploadOrder(String keyword) {
+        long current = generation.get();
+        UploadOrder cached = uploadOrderCache.getIfPresent(keyword);
+        if (cached != null && cached.generation() == current) return cached.ids();
+        long[] ordered = inUploadOrder(index.search(keyword));
+        uploadOrderCache.put(keyword, new UploadOrder(current, ordered));
+        return ordered;
+    }
+
+    /**
+     * Sorts ID-ordered matches by upload date as primitive longs: the epoch day in the high
+     * half and the match's position in the low half, so equal dates keep ID order and the
+     * date is looked up once per match rather than once per comparison.
+     */
+    private long[] inUploadOrder(long[] matches) {
+        long[] keys = new long[matches.length];
+        for (int i = 0; i < matches.length; i++) {
+            LocalDate uploaded = uploadDates.get(matches[i]);
+            long day = uploaded == null ? Integer.MIN_VALUE
+                    : Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, uploaded.toEpochDay()));
+            keys[i] = (day << 32) | i;
+        }
+        Arrays.sort(keys);
+        long[] ordered = new long[matches.length];
+        for (int i = 0; i < keys.length; i++) ordered[i] = matches[(int) keys[i]];
+        return ordered;
+    }
+}
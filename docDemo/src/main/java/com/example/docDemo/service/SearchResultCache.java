@@ -0,0 +1,136 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.dto.QAResponseDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches pages of search and listing results, bounded by their approximate size in bytes
+ * and evicted W-TinyLFU (Caffeine).
+ * <p>
+ * Keys carry a generation number that is bumped whenever a document is committed, so
+ * results computed before the commit are never served afterwards. This also covers a
+ * result that is still being computed during the commit: it is stored under the old
+ * generation and is simply never looked up again. Stale entries age out through normal
+ * eviction instead of an invalidation sweep on every ingest.
+ * <p>
+ * Under read/write routing nothing is cached within the read-your-writes window after a
+ * commit, while a replica may still be missing the new document.
+ * <p>
+ * Hits, misses and evictions are published as {@code cache.*} meters tagged
+ * {@code cache=documentResults}.
+ */
+@Component
+public class SearchResultCache implements InitializingBean {
+
+    private static final String CACHE_NAME = "documentResults";
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private static final int ITEM_OVERHEAD_BYTES = 96;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Value("${docdemo.cache.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${docdemo.cache.search.max-weight-bytes:67108864}")
+    private long maxWeightBytes;
+
+    @Value("${docdemo.cache.search.expire-after-write:PT10M}")
+    private Duration expireAfterWrite;
+
+    private final AtomicLong generation = new AtomicLong();
+    private Cache<Key, Page<?>> cache;
+
+    /** What a cached page depends on; {@code parts} are the normalized query and filters. */
+    public record Key(String operation, long generation, List<Object> parts, Pageable pageable) {
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, Page<?> page) -> weigh(page))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Key key(String operation, Pageable pageable, Object... parts) {
+        return new Key(operation, generation.get(), Arrays.asList(parts), pageable);
+    }
+
+    /** The cached page for {@code key}, loading it once if absent even under concurrent requests. */
+    @SuppressWarnings("unchecked")
+    public <T> Page<T> get(Key key, Supplier<Page<T>> loader) {
+        if (!enabled || readYourWrites.replicasMayLag()) return loader.get();
+        return (Page<T>) cache.get(key, k -> loader.get());
+    }
+
+    /**
+     * Makes all cached results stale. Inside a transaction this happens after commit,
+     * once the new document is visible to the queries that would repopulate the cache.
+     */
+    public void documentsChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                }
+            });
+        } else {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Lower-cases inputs that are matched case-insensitively, so they share cache entries.
+     * Whitespace is kept: the SQL fallbacks match it literally.
+     */
+    public static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static int weigh(Page<?> page) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (Object item : page.getContent()) {
+            bytes += ITEM_OVERHEAD_BYTES;
+            if (item instanceof QAResponseDTO hit) {
+                bytes += 2L * (length(hit.getFilename()) + length(hit.getSnippet()) + length(hit.getAuthor()));
+                if (hit.getHighlights() != null) {
+                    for (String highlight : hit.getHighlights()) bytes += ITEM_OVERHEAD_BYTES / 2 + 2L * highlight.length();
+                }
+            } else if (item instanceof DocumentMetadataDTO document) {
+                bytes += 2L * (length(document.getFilename()) + length(document.getContentType()) + length(document.getAuthor()));
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.docDemo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An uploaded file copied to local disk, so it can be processed after the request that
+ * carried it has finished. Closing it deletes the file.
+ */
+public class SpooledUpload implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpooledUpload.class);
+
+    private final Path path;
+    private final String filename;
+    private final String contentType;
+    private final long size;
+    private final String contentHash;
+
+    public SpooledUpload(Path path, String filename, String contentType, long size, String contentHash) {
+        this.path = path;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.contentHash = contentHash;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /** Hex SHA-256 of the uploaded bytes. */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}: {}", path, e.getMessage());
+        }
+    }
+}
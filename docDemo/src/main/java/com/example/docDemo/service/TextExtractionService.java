@@ -1,89 +1,194 @@
 package com.example.docDemo.service;
 
 import com.example.docDemo.exception.CustomExceptions;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import com.example.docDemo.extraction.DocumentExtractor;
+import com.example.docDemo.extraction.ExtractorRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class TextExtractionService {
 
     private static final Logger log = LoggerFactory.getLogger(TextExtractionService.class);
 
-    private static final String PDF_TYPE = "application/pdf";
-    private static final String DOCX_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
-    private static final String TXT_TYPE = "text/plain";
+    @Autowired
+    private ExtractorRegistry extractorRegistry;
 
-    public String extractText(InputStream inputStream, String filename, String contentType)
-            throws IOException, CustomExceptions.TextExtractionException, CustomExceptions.UnsupportedDocumentTypeException {
+    @Autowired
+    private PipelineMetrics metrics;
 
-        log.debug("Attempting text extraction for file: {}, Content-Type: {}", filename, contentType);
+    @Autowired
+    private ExtractionCache extractionCache;
 
-        if (contentType == null || contentType.isBlank()) {
-            log.warn("Missing content type for file: {}. Cannot determine extraction method.", filename);
-            throw new CustomExceptions.UnsupportedDocumentTypeException(filename, "Unknown/Missing", List.of(PDF_TYPE, DOCX_TYPE, TXT_TYPE));
+    /**
+     * Guesses a supported content type from a file extension, for inputs that carry no
+     * MIME type of their own (e.g. zip archive entries). Returns null if unsupported.
+     */
+    public String contentTypeForFilename(String filename) {
+        return extractorRegistry.contentTypeForFilename(filename);
+    }
+
+    /**
+     * The declared MIME type of an upload, unless it is missing or generic, in which case
+     * the type is guessed from the file extension.
+     */
+    public String resolveContentType(String declared, String filename) {
+        if (StringUtils.hasText(declared) && !declared.startsWith("application/octet-stream")) {
+            return declared;
         }
-        String normalizedContentType = contentType.split(";")[0].trim().toLowerCase();
+        String guessed = contentTypeForFilename(filename);
+        return guessed != null ? guessed : declared;
+    }
 
-        try {
-            switch (normalizedContentType) {
-                case PDF_TYPE:
-                    log.info("Extracting text from PDF: {}", filename);
-                    return extractTextFromPdf(inputStream);
-                case DOCX_TYPE:
-                    log.info("Extracting text from DOCX: {}", filename);
-                    return extractTextFromDocx(inputStream);
-                case TXT_TYPE:
-                    log.info("Reading text from TXT: {}", filename);
-                    return extractTextFromTxt(inputStream);
-                default:
-                    log.warn("Unsupported content type '{}' for file: {}", contentType, filename);
-                    throw new CustomExceptions.UnsupportedDocumentTypeException(filename, contentType, List.of(PDF_TYPE, DOCX_TYPE, TXT_TYPE));
+    /**
+     * Extracts plain text from a file on disk with the {@link DocumentExtractor} registered
+     * for its content type. Formats are read from the file rather than from a stream so the
+     * parsers never need the whole binary in heap. The text itself is returned as one String,
+     * so heap use grows with the extracted text; uploads of at least
+     * {@code docdemo.storage.chunk.threshold} go through the {@link Writer} variant instead.
+     */
+    public String extractText(Path file, String filename, String contentType)
+            throws IOException, CustomExceptions.TextExtractionException, CustomExceptions.UnsupportedDocumentTypeException {
+        return extractText(file, filename, contentType, (String) null);
+    }
+
+    /**
+     * Like {@link #extractText(Path, String, String)}, served from the {@link ExtractionCache}
+     * when the file's bytes (by {@code contentHash}) were already extracted by the same
+     * extractor version; parsed and added to the cache otherwise. Formats with
+     * {@code docdemo.extraction.<name>.cache=false} are always parsed.
+     */
+    public String extractText(Path file, String filename, String contentType, String contentHash)
+            throws IOException, CustomExceptions.TextExtractionException, CustomExceptions.UnsupportedDocumentTypeException {
+        return extract(file, filename, contentType, contentHash, null);
+    }
+
+    /**
+     * Like {@link #extractText(Path, String, String, String)}, but writes the text to
+     * {@code out} as it is extracted, for documents too large to hold as one String. TXT,
+     * DOCX and PDF write incrementally; other formats build their text first and write it.
+     */
+    public void extractText(Path file, String filename, String contentType, String contentHash, Writer out)
+            throws IOException, CustomExceptions.TextExtractionException, CustomExceptions.UnsupportedDocumentTypeException {
+        extract(file, filename, contentType, contentHash, out);
+    }
+
+    /** Extracts into {@code out}, or returns the text when it is null. */
+    private String extract(Path file, String filename, String contentType, String contentHash, Writer out) throws IOException {
+        DocumentExtractor extractor = resolveExtractor(filename, contentType);
+        String key = contentHash != null && extractionCache.isEnabled() && extractorRegistry.isCached(extractor)
+                ? ExtractionCache.key(contentHash, extractor) : null;
+        if (key != null) {
+            String cached = out == null ? extractionCache.get(key) : null;
+            if (cached != null || (out != null && extractionCache.copyTo(key, out))) {
+                log.debug("Extracted text of {} found in the extraction cache", filename);
+                return cached;
             }
-        } catch (IOException ioe) {
-            log.error("IO error during text extraction for file {}: {}", filename, ioe.getMessage());
-            throw ioe;
-        } catch (CustomExceptions.UnsupportedDocumentTypeException e){
+        }
+        if (out == null) {
+            String text = extract(file, filename, contentType, extractor, e -> extractorRegistry.extract(e, file));
+            if (key != null && text != null) extractionCache.put(key, text);
+            return text;
+        }
+        ExtractionCache.Entry entry = key != null ? extractionCache.newEntry(key) : null;
+        try {
+            extract(file, filename, contentType, extractor, e -> {
+                extractorRegistry.extract(e, file, entry != null ? tee(out, entry) : out);
+                return null;
+            });
+        } catch (IOException | RuntimeException e) {
+            if (entry != null) entry.abort();
             throw e;
-        } catch (Exception e) {
-            log.error("Extraction failed for file {}: {}", filename, e.getMessage(), e);
-            throw new CustomExceptions.TextExtractionException("Failed to extract text from " + filename + " (Type: " + contentType + ")", filename, e);
         }
+        if (entry != null) entry.commit();
+        return null;
     }
 
-    private String extractTextFromPdf(InputStream inputStream) throws IOException {
-        try (PDDocument document = PDDocument.load(inputStream)) {
-            if (document.isEncrypted()) {
-                log.warn("PDF document is encrypted. Text extraction might fail or be incomplete.");
+    /** Writes to {@code out} and also to {@code copy}; closing it closes neither. */
+    private static Writer tee(Writer out, Writer copy) {
+        return new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int count) throws IOException {
+                out.write(chars, offset, count);
+                copy.write(chars, offset, count);
             }
-            PDFTextStripper pdfStripper = new PDFTextStripper();
-            return pdfStripper.getText(document);
-        }
-        // Catch specific PDFBox exceptions if needed for finer control
+
+            @Override
+            public void write(String text, int offset, int count) throws IOException {
+                out.write(text, offset, count);
+                copy.write(text, offset, count);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
     }
 
-    private String extractTextFromDocx(InputStream inputStream) throws IOException {
-        try (XWPFDocument docx = new XWPFDocument(inputStream);
-             XWPFWordExtractor extractor = new XWPFWordExtractor(docx)) {
-            return extractor.getText();
+    @FunctionalInterface
+    private interface Extraction {
+        String run(DocumentExtractor extractor) throws Exception;
+    }
+
+    private DocumentExtractor resolveExtractor(String filename, String contentType) {
+        log.debug("Attempting text extraction for file: {}, Content-Type: {}", filename, contentType);
+
+        if (contentType == null || contentType.isBlank()) {
+            log.warn("Missing content type for file: {}. Cannot determine extraction method.", filename);
+            throw new CustomExceptions.UnsupportedDocumentTypeException(filename, "Unknown/Missing", extractorRegistry.supportedContentTypes());
         }
-        // Catch specific POI exceptions like InvalidFormatException if needed
+        DocumentExtractor extractor = extractorRegistry.forContentType(contentType).orElse(null);
+        if (extractor == null) {
+            log.warn("Unsupported content type '{}' for file: {}", contentType, filename);
+            throw new CustomExceptions.UnsupportedDocumentTypeException(filename, contentType, extractorRegistry.supportedContentTypes());
+        }
+        return extractor;
     }
 
-    private String extractTextFromTxt(InputStream inputStream) throws IOException {
-        try (InputStreamReader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
-            return FileCopyUtils.copyToString(reader);
+    private String extract(Path file, String filename, String contentType, DocumentExtractor extractor, Extraction extraction) throws IOException {
+        // Tagged with the extractor's primary type, so aliases and charset parameters share a timer
+        String contentTypeTag = extractor.contentTypes().get(0);
+        long started = metrics.start();
+        String outcome = "failure";
+        try {
+            log.debug("Extracting text from {} with the {} extractor", filename, extractor.name());
+            String text = extraction.run(extractor);
+            outcome = "success";
+            return text;
+        } catch (IOException ioe) {
+            log.error("IO error during text extraction for file {}: {}", filename, ioe.getMessage());
+            throw ioe;
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            log.error("Extraction of file {} timed out after {}", filename, extractorRegistry.timeout(extractor));
+            throw new CustomExceptions.TextExtractionException("Timed out extracting text from " + filename
+                    + " after " + extractorRegistry.timeout(extractor).toSeconds() + "s (Type: " + contentType + ")", filename, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomExceptions.TextExtractionException("Extraction of " + filename + " was interrupted", filename, e);
+        } catch (RejectedExecutionException e) {
+            outcome = "rejected";
+            log.warn("Extraction queue for {} is full; rejected file {}", extractor.name(), filename);
+            throw new CustomExceptions.ExtractionOverloadedException(filename, extractor.name(), e);
+        } catch (Exception e) {
+            log.error("Extraction failed for file {}: {}", filename, e.getMessage(), e);
+            throw new CustomExceptions.TextExtractionException("Failed to extract text from " + filename + " (Type: " + contentType + ")", filename, e);
+        } finally {
+            metrics.stop(started, PipelineMetrics.EXTRACT, "content_type", contentTypeTag, "outcome", outcome);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package com.example.docDemo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Copies upload streams to temp files through a fixed-size buffer, so the heap used
+ * per upload does not depend on the size of the file. The SHA-256 of the bytes is
+ * computed on the way through, for duplicate detection.
+ */
+@Service
+public class UploadSpooler {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${docdemo.ingestion.spool-dir:}")
+    private String spoolDir;
+
+    public SpooledUpload spool(InputStream in, String filename, String contentType) throws IOException {
+        Path target = StringUtils.hasText(spoolDir)
+                ? Files.createTempFile(Files.createDirectories(Path.of(spoolDir)), "doc-upload-", ".tmp")
+                : Files.createTempFile("doc-upload-", ".tmp");
+        try (ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MessageDigest digest = sha256();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long size = 0;
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer.array(), 0, buffer.limit());
+                while (buffer.hasRemaining()) {
+                    size += channel.write(buffer);
+                }
+                buffer.clear();
+            }
+            return new SpooledUpload(target, filename, contentType, size, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+        }
+    }
+}
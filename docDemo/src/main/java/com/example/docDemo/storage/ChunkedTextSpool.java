@@ -0,0 +1,183 @@
+package com.example.docDemo.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link Writer} that cuts the text written to it into chunks of at most {@code chunkSize}
+ * chars and spools them to a temp file as they fill, so extracted text never has to be held
+ * in one String. Chunks are cut at whitespace where possible, so a word is never split
+ * across two chunks. After {@link #close()}, the chunks are read back one at a time with
+ * {@link #forEachChunk} or {@link #openChunks}; {@link #discard()} deletes the file.
+ */
+public class ChunkedTextSpool extends Writer {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedTextSpool.class);
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(int index, String chunk) throws IOException;
+    }
+
+    private final Path file;
+    private final int chunkSize;
+    private final Writer out;
+    private final StringBuilder buffer;
+    private final List<Integer> chunkLengths = new ArrayList<>();
+    private long length;
+    private boolean closed;
+
+    public ChunkedTextSpool(Path directory, int chunkSize) throws IOException {
+        this.file = directory != null
+                ? Files.createTempFile(Files.createDirectories(directory), "doc-text-", ".tmp")
+                : Files.createTempFile("doc-text-", ".tmp");
+        this.chunkSize = chunkSize;
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.buffer = new StringBuilder(chunkSize + 1024);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int count) throws IOException {
+        bufferText(CharBuffer.wrap(chars), offset, offset + count);
+    }
+
+    @Override
+    public void write(String text, int offset, int count) throws IOException {
+        // Appended in pieces, so writing one huge String does not copy it whole
+        bufferText(text, offset, offset + count);
+    }
+
+    private void bufferText(CharSequence text, int start, int end) throws IOException {
+        if (closed) throw new IOException("Chunked text spool is closed");
+        while (start < end) {
+            int take = Math.min(end - start, chunkSize + 1024 - buffer.length());
+            buffer.append(text, start, start + take);
+            start += take;
+            while (buffer.length() > chunkSize) {
+                emit(cutPoint());
+            }
+        }
+    }
+
+    /** End of the next chunk: after the last whitespace in its final sixteenth, else a hard cut. */
+    private int cutPoint() {
+        for (int i = chunkSize; i > chunkSize - chunkSize / 16; i--) {
+            if (Character.isWhitespace(buffer.charAt(i - 1))) return i;
+        }
+        // Never separate the halves of a surrogate pair
+        return Character.isHighSurrogate(buffer.charAt(chunkSize - 1)) ? chunkSize - 1 : chunkSize;
+    }
+
+    private void emit(int count) throws IOException {
+        out.append(buffer, 0, count);
+        chunkLengths.add(count);
+        length += count;
+        buffer.delete(0, count);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (buffer.length() > 0 || chunkLengths.isEmpty()) {
+            emit(buffer.length());
+        }
+        out.close();
+    }
+
+    public int chunkCount() {
+        return chunkLengths.size();
+    }
+
+    /** Total chars written. */
+    public long length() {
+        return length;
+    }
+
+    /** Reads the chunks back in order; only one is in memory at a time. */
+    public void forEachChunk(ChunkConsumer consumer) throws IOException {
+        try (ChunkReader chunks = openChunks()) {
+            for (int index = 0; chunks.hasNext(); index++) {
+                consumer.accept(index, chunks.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** The chunks in order, each read from the file only when reached; close it when done. */
+    public ChunkReader openChunks() throws IOException {
+        if (!closed) throw new IllegalStateException("Close the spool before reading it");
+        return new ChunkReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+
+    /** Iterates the spooled chunks; a failed read surfaces as an {@link UncheckedIOException}. */
+    public final class ChunkReader implements Iterator<String>, Closeable {
+
+        private final BufferedReader reader;
+        private int next;
+
+        private ChunkReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < chunkLengths.size();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            char[] chunk = new char[chunkLengths.get(next++)];
+            try {
+                int read = 0;
+                while (read < chunk.length) {
+                    int n = reader.read(chunk, read, chunk.length - read);
+                    if (n < 0) throw new IOException("Chunked text spool " + file + " ended early");
+                    read += n;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new String(chunk);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    public void discard() {
+        try {
+            close();
+        } catch (IOException e) {
+            log.debug("Could not close chunked text spool {}: {}", file, e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete chunked text spool {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.docDemo.storage;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compression formats for stored document text. The stored form is the 4-byte length of
+ * the UTF-8 text followed by the compressed bytes, so decompression can size its output
+ * buffer exactly. The enum name is what {@code files.content_codec} records.
+ */
+public enum ContentCodec {
+
+    /** Fast to compress and very fast to decompress; typically 2-3x on extracted text. */
+    LZ4 {
+        @Override
+        byte[] compress(byte[] raw, int level) {
+            return LZ4Factory.fastestInstance().fastCompressor().compress(raw);
+        }
+
+        @Override
+        byte[] decompress(byte[] compressed, int offset, int rawLength) {
+            return LZ4Factory.fastestInstance().fastDecompressor().decompress(compressed, offset, rawLength);
+        }
+    },
+
+    /** Slower to compress, still fast to decompress; typically 4-6x on extracted text. */
+    ZSTD {
+        @Override
+        byte[] compress(byte[] raw, int level) {
+            return Zstd.compress(raw, level);
+        }
+
+        @Override
+        byte[] decompress(byte[] compressed, int offset, int rawLength) {
+            byte[] raw = new byte[rawLength];
+            long written = Zstd.decompressByteArray(raw, 0, rawLength, compressed, offset, compressed.length - offset);
+            if (Zstd.isError(written)) {
+                throw new IllegalStateException("Corrupt zstd content: " + Zstd.getErrorName(written));
+            }
+            return raw;
+        }
+    };
+
+    private static final int HEADER_BYTES = Integer.BYTES;
+
+    abstract byte[] compress(byte[] raw, int level);
+
+    abstract byte[] decompress(byte[] compressed, int offset, int rawLength);
+
+    public byte[] encode(String text, int level) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compress(raw, level);
+        byte[] stored = Arrays.copyOf(ByteBuffer.allocate(HEADER_BYTES).putInt(raw.length).array(), HEADER_BYTES + compressed.length);
+        System.arraycopy(compressed, 0, stored, HEADER_BYTES, compressed.length);
+        return stored;
+    }
+
+    public String decode(byte[] stored) {
+        int rawLength = ByteBuffer.wrap(stored, 0, HEADER_BYTES).getInt();
+        return new String(decompress(stored, HEADER_BYTES, rawLength), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.DocDemoApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Boots the application without a web server against the embedded H2 "test" profile,
+ * so benchmarks exercise the real services and repositories without a MySQL server.
+ */
+final class BenchmarkContext {
+
+    private static final String[] WORDS = {
+            "invoice", "contract", "payment", "report", "meeting", "project", "budget", "policy",
+            "customer", "supplier", "delivery", "schedule", "review", "approval", "quarter", "revenue",
+            "expense", "employee", "training", "security", "compliance", "audit", "release", "design",
+            "storage", "network", "incident", "support", "service", "account", "balance", "forecast"
+    };
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(DocDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("logging.level.root=WARN")
+                .run(arguments(properties));
+    }
+
+    /** Like {@link #start}, but with the embedded web server on a random port. */
+    static ConfigurableApplicationContext startWeb(String... properties) {
+        return new SpringApplicationBuilder(DocDemoApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .profiles("test")
+                .properties("logging.level.root=WARN", "server.port=0")
+                .run(arguments(properties));
+    }
+
+    // Builder properties are only defaults, which application.properties would override.
+    // The extraction cache is off unless asked for, so repeated runs measure parsing, not cache reads
+    private static String[] arguments(String... properties) {
+        Stream<String> cacheOff = Arrays.stream(properties).anyMatch(property -> property.startsWith("docdemo.extraction.cache.enabled="))
+                ? Stream.empty() : Stream.of("docdemo.extraction.cache.enabled=false");
+        return Stream.concat(cacheOff, Arrays.stream(properties)).map(property -> "--" + property).toArray(String[]::new);
+    }
+
+    /**
+     * Generates mixed-case, prose-like text from a small vocabulary plus a long tail of rare
+     * tokens ({@code term12345}), so both common and selective queries exist.
+     */
+    static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) text.append(i % 12 == 0 ? ". " : " ");
+            if (random.nextInt(10) == 0) {
+                text.append("term").append(random.nextInt(50_000));
+            } else {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                // Capitalize sentence starts so the text is mixed case like real prose
+                text.append(i % 12 == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.docDemo.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the web application for a load benchmark in a JVM of its own, so the benchmark's
+ * client threads do not compete with the server inside one process. The JVM is
+ * {@code $BENCHMARK_SERVER_JAVA_HOME/bin/java} when that is set, otherwise the one running
+ * the benchmark.
+ */
+final class BenchmarkServer implements AutoCloseable {
+
+    private static final String READY = "benchmark-server-ready ";
+
+    private final Process process;
+    private final int port;
+    private final int javaVersion;
+
+    private BenchmarkServer(Process process, int port, int javaVersion) {
+        this.process = process;
+        this.port = port;
+        this.javaVersion = javaVersion;
+    }
+
+    /** Starts the server with {@link BenchmarkContext#startWeb} and the given properties, and waits until it listens. */
+    static BenchmarkServer start(List<String> jvmArgs, String... properties) throws IOException {
+        String javaHome = System.getenv().getOrDefault("BENCHMARK_SERVER_JAVA_HOME", System.getProperty("java.home"));
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(javaHome, "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), BenchmarkServer.class.getName()));
+        command.addAll(List.of(properties));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.startsWith(READY)) {
+                String[] ready = line.substring(READY.length()).split(" ");
+                // Keep draining the server's output so it never blocks on a full pipe
+                Thread drain = new Thread(() -> out.lines().forEach(ignored -> { }), "benchmark-server-output");
+                drain.setDaemon(true);
+                drain.start();
+                return new BenchmarkServer(process, Integer.parseInt(ready[0]), Integer.parseInt(ready[1]));
+            }
+        }
+        process.destroyForcibly();
+        throw new IOException("Benchmark server exited with status " + process.exitValue() + " before it was ready");
+    }
+
+    int port() {
+        return port;
+    }
+
+    /** Feature version of the server's JVM, e.g. 17. */
+    int javaVersion() {
+        return javaVersion;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Closing its stdin tells the server to shut down cleanly
+        process.getOutputStream().close();
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        try (ConfigurableApplicationContext context = BenchmarkContext.startWeb(args)) {
+            System.out.println(READY + context.getEnvironment().getProperty("local.server.port") + " " + Runtime.version().feature());
+            System.out.flush();
+            while (System.in.read() != -1) {
+                // Runs until the benchmark closes our stdin
+            }
+        }
+    }
+}
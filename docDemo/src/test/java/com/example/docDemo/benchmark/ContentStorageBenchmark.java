@@ -0,0 +1,114 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.dto.QAResponseDTO;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.service.DocumentContentService;
+import com.example.docDemo.service.DocumentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each content storage codec: batch ingest, reading one document's text back, and
+ * an indexed keyword search (whose snippets need the text of every hit on the page). The
+ * bytes stored for the corpus under each codec are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ContentStorageBenchmark {
+
+    private static final int DOCUMENTS = 1_000;
+    private static final int CONTENT_WORDS = 5_000;
+    private static final int INGEST_BATCH = 20;
+
+    @Param({"none", "lz4", "zstd"})
+    public String codec;
+
+    private ConfigurableApplicationContext context;
+    private DocumentService documentService;
+    private DocumentContentService documentContentService;
+    private DocumentRepository documentRepository;
+    private List<Long> ids;
+    private List<String> texts;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("docdemo.storage.content.codec=" + codec, "docdemo.cache.search.enabled=false");
+        documentService = context.getBean(DocumentService.class);
+        documentContentService = context.getBean(DocumentContentService.class);
+        documentRepository = context.getBean(DocumentRepository.class);
+
+        random = new Random(42);
+        texts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            texts.add(BenchmarkContext.randomText(random, CONTENT_WORDS));
+        }
+        ids = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i += INGEST_BATCH) {
+            ingestBatch().forEach(dto -> ids.add(dto.getId()));
+        }
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Long plain = jdbc.queryForObject("SELECT COALESCE(SUM(LENGTH(content)), 0) FROM files", Long.class);
+        Long compressed = jdbc.queryForObject("SELECT COALESCE(SUM(LENGTH(compressed_content)), 0) FROM files", Long.class);
+        System.out.printf("%nStored content for %,d documents with codec %s: %,d plain + %,d compressed bytes%n",
+                ids.size(), codec, plain, compressed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<DocumentMetadataDTO> ingestBatch() {
+        List<Document> batch = new ArrayList<>(INGEST_BATCH);
+        for (int i = 0; i < INGEST_BATCH; i++) {
+            Document document = new Document();
+            document.setFilename("doc-" + random.nextInt() + ".txt");
+            document.setContentType("text/plain");
+            document.setAuthor("author" + (i % 50));
+            documentContentService.setContent(document, texts.get(random.nextInt(texts.size())));
+            batch.add(document);
+        }
+        return documentService.saveBatch(batch);
+    }
+
+    @Benchmark
+    public String readContent() {
+        Document document = documentRepository.findById(ids.get(random.nextInt(ids.size()))).orElseThrow();
+        return documentContentService.contentOf(document);
+    }
+
+    @Benchmark
+    public Page<QAResponseDTO> search() {
+        return documentService.searchDocumentsByKeyword("term" + random.nextInt(50_000), PageRequest.of(0, 10));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.docDemo.benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes synthetic documents for the extraction benchmarks, filled with
+ * {@link BenchmarkContext#randomText} so extracted text resembles the other benchmarks' corpus.
+ */
+final class CorpusGenerator {
+
+    private static final int PDF_LINES_PER_PAGE = 45;
+    private static final int PDF_WORDS_PER_LINE = 12;
+    /** Words on one full PDF page; the other formats are sized in the same pages for comparison. */
+    static final int WORDS_PER_PAGE = PDF_LINES_PER_PAGE * PDF_WORDS_PER_LINE;
+
+    private CorpusGenerator() {
+    }
+
+    /** A PDF of {@code pages} full pages of Helvetica text, written to a temp file. */
+    static Path pdf(int pages, Random random) throws IOException {
+        Path file = Files.createTempFile("bench-", ".pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                    stream.beginText();
+                    stream.setFont(PDType1Font.HELVETICA, 10);
+                    stream.setLeading(14);
+                    stream.newLineAtOffset(50, 740);
+                    for (int line = 0; line < PDF_LINES_PER_PAGE; line++) {
+                        stream.showText(BenchmarkContext.randomText(random, PDF_WORDS_PER_LINE));
+                        stream.newLine();
+                    }
+                    stream.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+
+    /** A DOCX with the text of {@code pages} PDF pages, one paragraph per page-line. */
+    static Path docx(int pages, Random random) throws IOException {
+        Path file = Files.createTempFile("bench-", ".docx");
+        try (XWPFDocument document = new XWPFDocument(); OutputStream out = Files.newOutputStream(file)) {
+            for (int p = 0; p < pages * PDF_LINES_PER_PAGE; p++) {
+                document.createParagraph().createRun().setText(BenchmarkContext.randomText(random, PDF_WORDS_PER_LINE));
+            }
+            document.write(out);
+        }
+        return file;
+    }
+
+    /**
+     * A DOCX of about {@code megabytes} MB, written part by part without POI so it can be far
+     * larger than the heap would allow through XWPFDocument: about 60% compressed text in
+     * paragraphs with a table every 50 paragraphs, the rest incompressible images in word/media.
+     */
+    static Path largeDocx(int megabytes, Random random) throws IOException {
+        Path file = Files.createTempFile("bench-", ".docx");
+        long target = megabytes * 1024L * 1024L;
+        try (CountingOutputStream counted = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+             ZipOutputStream zip = new ZipOutputStream(counted)) {
+            writeEntry(zip, "[Content_Types].xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                    + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                    + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Default Extension=\"png\" ContentType=\"image/png\"/>"
+                    + "<Override PartName=\"/word/document.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml\"/>"
+                    + "</Types>");
+            writeEntry(zip, "_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"word/document.xml\"/>"
+                    + "</Relationships>");
+
+            zip.putNextEntry(new ZipEntry("word/document.xml"));
+            Writer xml = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+            xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"><w:body>");
+            for (int p = 0; counted.count < target * 6 / 10; p++) {
+                if (p % 50 == 49) {
+                    xml.write("<w:tbl>");
+                    for (int row = 0; row < 4; row++) {
+                        xml.write("<w:tr>");
+                        for (int cell = 0; cell < 3; cell++) {
+                            xml.write("<w:tc><w:p><w:r><w:t>" + BenchmarkContext.randomText(random, 3) + "</w:t></w:r></w:p></w:tc>");
+                        }
+                        xml.write("</w:tr>");
+                    }
+                    xml.write("</w:tbl>");
+                }
+                xml.write("<w:p><w:pPr><w:spacing w:after=\"120\"/></w:pPr><w:r><w:rPr><w:b/></w:rPr><w:t xml:space=\"preserve\">"
+                        + BenchmarkContext.randomText(random, PDF_WORDS_PER_LINE) + "</w:t></w:r></w:p>");
+                if (p % 100 == 0) xml.flush();
+            }
+            xml.write("</w:body></w:document>");
+            xml.flush();
+            zip.closeEntry();
+
+            StringBuilder rels = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+            byte[] image = new byte[256 * 1024];
+            for (int i = 1; counted.count < target; i++) {
+                random.nextBytes(image);
+                zip.putNextEntry(new ZipEntry("word/media/image" + i + ".png"));
+                zip.write(image);
+                zip.closeEntry();
+                rels.append("<Relationship Id=\"rId").append(i).append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/image\" Target=\"media/image")
+                        .append(i).append(".png\"/>");
+            }
+            writeEntry(zip, "word/_rels/document.xml.rels", rels.append("</Relationships>").toString());
+        }
+        return file;
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+
+    /** A UTF-8 text file with the text of {@code pages} PDF pages. */
+    static Path txt(int pages, Random random) throws IOException {
+        Path file = Files.createTempFile("bench-", ".txt");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int p = 0; p < pages * PDF_LINES_PER_PAGE; p++) {
+                writer.write(BenchmarkContext.randomText(random, PDF_WORDS_PER_LINE));
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.dto.QAResponseDTO;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.service.DocumentService;
+import com.example.docDemo.service.SearchIndexService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search and filter endpoints' service calls end to end on H2 in MySQL mode: keyword
+ * search with snippets and highlights (served by the inverted index, or by the SQL
+ * {@code LIKE} fallback with {@code index=false}), and the filtered metadata listing.
+ * The result cache is off, so every call does the full work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class DocumentQueryBenchmark {
+
+    private static final int DOCUMENTS = 10_000;
+
+    @Param({"true", "false"})
+    public boolean index;
+
+    private final Pageable firstPage = PageRequest.of(0, 10, Sort.by("uploadTimestamp"));
+
+    private ConfigurableApplicationContext context;
+    private DocumentService documentService;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("docdemo.search.index.enabled=" + index, "docdemo.cache.search.enabled=false");
+        documentService = context.getBean(DocumentService.class);
+        DocumentRepository documentRepository = context.getBean(DocumentRepository.class);
+
+        random = new Random(42);
+        List<Document> batch = new ArrayList<>(1000);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Document document = new Document();
+            document.setFilename("doc-" + i + ".txt");
+            document.setContentType(i % 3 == 0 ? "application/pdf" : "text/plain");
+            document.setAuthor("author" + (i % 50));
+            document.setContent(BenchmarkContext.randomText(random, 500));
+            batch.add(document);
+            if (batch.size() == 1000) {
+                documentRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        documentRepository.saveAll(batch);
+        if (index) {
+            context.getBean(SearchIndexService.class).rebuild();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<QAResponseDTO> searchCommonWord() {
+        return documentService.searchDocumentsByKeyword("invoice", firstPage);
+    }
+
+    @Benchmark
+    public Page<QAResponseDTO> searchRareToken() {
+        return documentService.searchDocumentsByKeyword("term" + random.nextInt(50_000), firstPage);
+    }
+
+    @Benchmark
+    public Page<DocumentMetadataDTO> filterByAuthorAndType() {
+        return documentService.findDocuments("author" + random.nextInt(50), "text/plain", null, null, firstPage);
+    }
+
+    @Benchmark
+    public Page<DocumentMetadataDTO> filterByUploadDate() {
+        return documentService.findDocuments(null, null, LocalDate.now(), null, firstPage);
+    }
+}
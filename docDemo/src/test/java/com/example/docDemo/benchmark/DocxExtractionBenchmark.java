@@ -0,0 +1,65 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.extraction.DocxExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DocxExtractor} in streaming (StAX) and dom (XWPFDocument) mode on DOCX files of
+ * 1, 20 and 50 MB with tables and embedded images, writing to a discarding Writer as chunked
+ * ingestion does. Run with {@code -prof gc} for the allocation rate and bytes allocated per
+ * extraction ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class DocxExtractionBenchmark {
+
+    @Param({"1", "20", "50"})
+    public int megabytes;
+
+    @Param({"streaming", "dom"})
+    public String mode;
+
+    private final DocxExtractor extractor = new DocxExtractor();
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ReflectionTestUtils.setField(extractor, "mode", mode);
+        file = CorpusGenerator.largeDocx(megabytes, new Random(42));
+        System.out.printf("%nDOCX of %d MB: %,d bytes%n", megabytes, Files.size(file));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void extract() throws Exception {
+        extractor.extract(file, Writer.nullWriter());
+    }
+}
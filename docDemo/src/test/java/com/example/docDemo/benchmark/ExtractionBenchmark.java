@@ -0,0 +1,88 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.service.TextExtractionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TextExtractionService.extractText} per format and size, through the extractor
+ * registry and its per-format pools as in production. Sizes are in PDF pages of text
+ * ({@value CorpusGenerator#WORDS_PER_PAGE} words), so rows of one size compare the formats
+ * on the same amount of text. {@code extractTextCached} passes a content hash, so after the
+ * first call the text comes from the on-disk extraction cache instead of the parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ExtractionBenchmark {
+
+    @Param({"pdf", "docx", "txt"})
+    public String format;
+
+    @Param({"1", "50"})
+    public int pages;
+
+    private ConfigurableApplicationContext context;
+    private TextExtractionService textExtractionService;
+    private Path file;
+    private String filename;
+    private String contentType;
+    private Path cacheDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("bench-extraction-cache-");
+        context = BenchmarkContext.start("docdemo.search.index.enabled=false",
+                "docdemo.extraction.cache.enabled=true", "docdemo.extraction.cache.dir=" + cacheDir);
+        textExtractionService = context.getBean(TextExtractionService.class);
+        Random random = new Random(42);
+        file = switch (format) {
+            case "pdf" -> CorpusGenerator.pdf(pages, random);
+            case "docx" -> CorpusGenerator.docx(pages, random);
+            case "txt" -> CorpusGenerator.txt(pages, random);
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        filename = "bench." + format;
+        contentType = textExtractionService.contentTypeForFilename(filename);
+        System.out.printf("%n%s of %d pages: %,d bytes%n", format, pages, Files.size(file));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(file);
+        FileSystemUtils.deleteRecursively(cacheDir);
+    }
+
+    @Benchmark
+    public String extractText() throws IOException {
+        return textExtractionService.extractText(file, filename, contentType);
+    }
+
+    @Benchmark
+    public String extractTextCached() throws IOException {
+        return textExtractionService.extractText(file, filename, contentType, "bench-" + format + "-" + pages);
+    }
+}
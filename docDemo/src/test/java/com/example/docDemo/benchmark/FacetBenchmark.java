@@ -0,0 +1,142 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.dto.FacetsDTO;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.repository.DocumentSpecification;
+import com.example.docDemo.service.FacetService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Facet counts over a large {@code files} table: from the in-memory {@link FacetService}
+ * aggregates, unfiltered and under author prefix, content type and date filters, against
+ * what they replace, one {@code COUNT(*)} per facet value through the listing filters (here
+ * only the top values the UI shows), and a {@code GROUP BY} per dimension as a stronger SQL
+ * baseline. The aggregate rebuild time is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class FacetBenchmark {
+
+    private static final int AUTHORS = 2_000;
+    private static final int DAYS = 1_000;
+    private static final int TOP = 20;
+    private static final String[] CONTENT_TYPES = {"application/pdf", "text/plain", "text/html", "text/markdown",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"};
+
+    @Param({"1000000"})
+    public int rows;
+
+    private final LocalDate today = LocalDate.now();
+
+    private ConfigurableApplicationContext context;
+    private FacetService facetService;
+    private DocumentRepository documentRepository;
+    private JdbcTemplate jdbcTemplate;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("docdemo.search.index.enabled=false", "docdemo.cache.search.enabled=false",
+                "docdemo.storage.metadata.backfill-on-startup=false", "docdemo.facets.enabled=false");
+        facetService = context.getBean(FacetService.class);
+        documentRepository = context.getBean(DocumentRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Random seed = new Random(42);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 1; i <= rows; i++) {
+            String author = "Author " + seed.nextInt(AUTHORS);
+            String contentType = CONTENT_TYPES[seed.nextInt(CONTENT_TYPES.length)];
+            batch.add(new Object[]{i, "doc-" + i, contentType, author, "", Date.valueOf(today.minusDays(seed.nextInt(DAYS))),
+                    Document.normalizeAuthor(author), Document.normalizeContentType(contentType)});
+            if (batch.size() == 10_000 || i == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO files (id, filename, content_type, author, content, upload_timestamp,"
+                        + " author_normalized, content_type_normalized) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        long started = System.nanoTime();
+        facetService.rebuild();
+        System.out.printf("%nFacet rebuild of %,d rows: %d ms%n", rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        random = new Random(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FacetsDTO aggregatesUnfiltered() {
+        return facetService.facets(null, null, null, null, TOP);
+    }
+
+    @Benchmark
+    public FacetsDTO aggregatesFiltered() {
+        return facetService.facets("Author " + (10 + random.nextInt(90)) + "*", CONTENT_TYPES[random.nextInt(CONTENT_TYPES.length)],
+                today.minusDays(90), today, TOP);
+    }
+
+    /** What the UI did: a listing count per shown author and content type, plus one per day of the range. */
+    @Benchmark
+    public long countPerValueFiltered() {
+        String contentType = CONTENT_TYPES[random.nextInt(CONTENT_TYPES.length)];
+        LocalDate from = today.minusDays(90);
+        long sum = 0;
+        for (int i = 0; i < TOP; i++) {
+            sum += documentRepository.count(DocumentSpecification.matching("Author " + random.nextInt(AUTHORS), contentType, from, today));
+        }
+        for (String type : CONTENT_TYPES) {
+            sum += documentRepository.count(DocumentSpecification.matching(null, type, from, today));
+        }
+        for (int day = 0; day < TOP; day++) {
+            sum += documentRepository.count(DocumentSpecification.matching(null, contentType, today.minusDays(day), today.minusDays(day)));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int groupByFiltered() {
+        String contentType = CONTENT_TYPES[random.nextInt(CONTENT_TYPES.length)];
+        Date from = Date.valueOf(today.minusDays(90));
+        Date to = Date.valueOf(today);
+        List<Map<String, Object>> authors = jdbcTemplate.queryForList("SELECT author_normalized, COUNT(*) c FROM files"
+                + " WHERE content_type_normalized = ? AND upload_timestamp BETWEEN ? AND ?"
+                + " GROUP BY author_normalized ORDER BY c DESC LIMIT " + TOP, contentType, from, to);
+        List<Map<String, Object>> types = jdbcTemplate.queryForList("SELECT content_type_normalized, COUNT(*) c FROM files"
+                + " WHERE upload_timestamp BETWEEN ? AND ? GROUP BY content_type_normalized ORDER BY c DESC LIMIT " + TOP, from, to);
+        List<Map<String, Object>> days = jdbcTemplate.queryForList("SELECT upload_timestamp, COUNT(*) c FROM files"
+                + " WHERE content_type_normalized = ? GROUP BY upload_timestamp ORDER BY upload_timestamp DESC LIMIT " + TOP, contentType);
+        return authors.size() + types.size() + days.size();
+    }
+}
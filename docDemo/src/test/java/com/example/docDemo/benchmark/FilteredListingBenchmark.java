@@ -0,0 +1,146 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.repository.DocumentSpecification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of the filtered metadata listing over a large {@code files} table: the former
+ * filters ({@code lower(author) LIKE '%x%'}, {@code lower(content_type) = x}, open-ended date)
+ * against exact, prefix and bounded-range filters on the normalized, indexed columns. The
+ * H2 plan of each shape is printed once per trial, so a missing index shows up as a scan.
+ * Rows are inserted with JDBC batches, since the JPA path would take far longer to seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class FilteredListingBenchmark {
+
+    private static final int AUTHORS = 2_000;
+    private static final int DAYS = 1_000;
+    private static final String[] CONTENT_TYPES = {"application/pdf", "text/plain", "text/html", "text/markdown",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"};
+
+    @Param({"1000000"})
+    public int rows;
+
+    private final Pageable page = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "uploadTimestamp"));
+    private final LocalDate today = LocalDate.now();
+
+    private ConfigurableApplicationContext context;
+    private DocumentRepository documentRepository;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("docdemo.search.index.enabled=false", "docdemo.cache.search.enabled=false",
+                "docdemo.storage.metadata.backfill-on-startup=false");
+        documentRepository = context.getBean(DocumentRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Random seed = new Random(42);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 1; i <= rows; i++) {
+            String author = "Author " + seed.nextInt(AUTHORS);
+            String contentType = CONTENT_TYPES[seed.nextInt(CONTENT_TYPES.length)];
+            batch.add(new Object[]{i, "doc-" + i, contentType, author, "", Date.valueOf(today.minusDays(seed.nextInt(DAYS))),
+                    Document.normalizeAuthor(author), Document.normalizeContentType(contentType)});
+            if (batch.size() == 10_000 || i == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO files (id, filename, content_type, author, content, upload_timestamp,"
+                        + " author_normalized, content_type_normalized) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        String from = "DATE '" + today.minusDays(30) + "'";
+        String to = "DATE '" + today + "'";
+        printPlan(jdbcTemplate, "legacy author contains", "LOWER(author) LIKE '%author 7%' AND upload_timestamp >= " + from);
+        printPlan(jdbcTemplate, "author exact + range", "author_normalized = 'author 7' AND upload_timestamp BETWEEN " + from + " AND " + to);
+        printPlan(jdbcTemplate, "author prefix", "author_normalized LIKE 'author 19%'");
+        printPlan(jdbcTemplate, "legacy content type", "LOWER(content_type) = 'text/html' AND upload_timestamp >= " + from);
+        printPlan(jdbcTemplate, "content type exact + range", "content_type_normalized = 'text/html' AND upload_timestamp BETWEEN " + from + " AND " + to);
+        random = new Random(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<DocumentMetadataDTO> legacyAuthorContains() {
+        String author = "author " + random.nextInt(AUTHORS);
+        Specification<Document> spec = (root, query, cb) -> cb.and(
+                cb.like(cb.lower(root.get("author")), "%" + author + "%"),
+                cb.greaterThanOrEqualTo(root.get("uploadTimestamp"), today.minusDays(30)));
+        return list(spec);
+    }
+
+    @Benchmark
+    public List<DocumentMetadataDTO> authorExactInRange() {
+        return list(DocumentSpecification.matching("Author " + random.nextInt(AUTHORS), null, today.minusDays(30), today));
+    }
+
+    @Benchmark
+    public List<DocumentMetadataDTO> authorPrefix() {
+        return list(DocumentSpecification.matching("Author " + (10 + random.nextInt(90)) + "*", null, null, null));
+    }
+
+    @Benchmark
+    public List<DocumentMetadataDTO> legacyContentTypeSince() {
+        String contentType = CONTENT_TYPES[random.nextInt(CONTENT_TYPES.length)];
+        Specification<Document> spec = (root, query, cb) -> cb.and(
+                cb.equal(cb.lower(root.get("contentType")), contentType),
+                cb.greaterThanOrEqualTo(root.get("uploadTimestamp"), today.minusDays(30)));
+        return list(spec);
+    }
+
+    @Benchmark
+    public List<DocumentMetadataDTO> contentTypeExactInRange() {
+        return list(DocumentSpecification.matching(null, CONTENT_TYPES[random.nextInt(CONTENT_TYPES.length)], today.minusDays(30), today));
+    }
+
+    private List<DocumentMetadataDTO> list(Specification<Document> spec) {
+        Page<DocumentMetadataDTO> result = documentRepository.findMetadata(spec, page);
+        return result.getContent();
+    }
+
+    private static void printPlan(JdbcTemplate jdbcTemplate, String label, String where) {
+        String plan = String.join(" ", jdbcTemplate.queryForList("EXPLAIN SELECT id FROM files WHERE " + where
+                + " ORDER BY upload_timestamp DESC, id DESC LIMIT 20", String.class));
+        System.out.printf("%n[%s] %s%n", label, plan.replaceAll("\\s+", " "));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.service.DocumentService;
+import com.example.docDemo.service.SpooledUpload;
+import com.example.docDemo.service.UploadSpooler;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-document ingestion throughput with {@code uploaders} concurrent callers of
+ * {@link DocumentService#ingestDocument}, committing one transaction per document and
+ * with write-behind group commit. Each invocation has every uploader ingest
+ * {@value #UPLOADS_PER_UPLOADER} small text files back to back; the {@code documents}
+ * counter gives documents stored per second.
+ * <p>
+ * The database is a file-backed H2 that writes on every commit, but never fsyncs, so the
+ * per-commit cost here is well below a durable MySQL commit and the gain understates it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class GroupCommitBenchmark {
+
+    private static final int UPLOADS_PER_UPLOADER = 10;
+    private static final Path DATABASE = Path.of("target", "group-commit-benchmark");
+
+    @Param({"50", "200"})
+    public int uploaders;
+
+    @Param({"false", "true"})
+    public boolean groupCommit;
+
+    private final AtomicLong uploads = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private DocumentService documentService;
+    private UploadSpooler uploadSpooler;
+    private ExecutorService executor;
+    private String body;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Stored {
+        public long documents;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        FileSystemUtils.deleteRecursively(DATABASE);
+        context = BenchmarkContext.start(
+                "spring.datasource.url=jdbc:h2:file:./" + DATABASE.resolve("db") + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;WRITE_DELAY=0",
+                "docdemo.ingestion.group-commit.enabled=" + groupCommit,
+                // Every uploader may be waiting on extraction at once; this measures commits, not rejections
+                "docdemo.extraction.default.queue-capacity=" + uploaders,
+                "docdemo.search.index.enabled=false", "docdemo.cache.search.enabled=false", "docdemo.facets.enabled=false",
+                "logging.level.com.example.docDemo=ERROR");
+        documentService = context.getBean(DocumentService.class);
+        uploadSpooler = context.getBean(UploadSpooler.class);
+        executor = Executors.newFixedThreadPool(uploaders);
+        body = BenchmarkContext.randomText(new Random(42), 200);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        context.close();
+        FileSystemUtils.deleteRecursively(DATABASE);
+    }
+
+    @Benchmark
+    public int ingest(Stored stored) throws Exception {
+        List<Callable<Integer>> uploaderTasks = new ArrayList<>(uploaders);
+        for (int i = 0; i < uploaders; i++) {
+            uploaderTasks.add(() -> {
+                for (int upload = 0; upload < UPLOADS_PER_UPLOADER; upload++) {
+                    // A distinct suffix per upload, so deduplication does not skip the work
+                    long n = uploads.incrementAndGet();
+                    byte[] text = (body + " upload " + n).getBytes(StandardCharsets.UTF_8);
+                    try (SpooledUpload spooled = uploadSpooler.spool(new ByteArrayInputStream(text), "upload-" + n + ".txt", "text/plain")) {
+                        documentService.ingestDocument(spooled, "uploader");
+                    }
+                }
+                return UPLOADS_PER_UPLOADER;
+            });
+        }
+        int documents = 0;
+        for (Future<Integer> uploader : executor.invokeAll(uploaderTasks)) {
+            documents += uploader.get();
+        }
+        stored.documents += documents;
+        return documents;
+    }
+}
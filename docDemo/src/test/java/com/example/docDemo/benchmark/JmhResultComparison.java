@@ -0,0 +1,78 @@
+package com.example.docDemo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files (e.g. from two commits) row by row and prints the
+ * change of each score, marking rows that got worse by more than the threshold. Run by the
+ * benchmark profile after the benchmarks, against {@code jmh.baseline} if that file exists.
+ * <p>
+ * Usage: {@code JmhResultComparison <baseline.json> <current.json> [threshold-percent]}
+ */
+public final class JmhResultComparison {
+
+    private record Score(double value, double error, String unit, boolean higherIsBetter) {
+    }
+
+    private JmhResultComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path baselineFile = Path.of(args[0]);
+        Path currentFile = Path.of(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No JMH baseline at " + baselineFile + "; copy " + currentFile + " there to compare later runs with it.");
+            return;
+        }
+        Map<String, Score> baseline = read(baselineFile);
+        Map<String, Score> current = read(currentFile);
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Score> row : current.entrySet()) {
+            Score now = row.getValue();
+            Score before = baseline.get(row.getKey());
+            if (before == null || !before.unit().equals(now.unit())) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", row.getKey(), "-", now.value(), "new");
+                continue;
+            }
+            double change = (now.value() - before.value()) / before.value() * 100;
+            double worse = now.higherIsBetter() ? -change : change;
+            // Differences within the two error margins are noise, not regressions
+            boolean beyondError = Math.abs(now.value() - before.value()) > before.error() + now.error();
+            boolean regression = worse > threshold && beyondError;
+            if (regression) regressions++;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", row.getKey(), before.value(), now.value(), change,
+                    regression ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d of %d rows regressed by more than %.0f%% (units: %s)%n", regressions, current.size(), threshold,
+                String.join(", ", current.values().stream().map(Score::unit).distinct().toList()));
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText().replaceFirst("^.*\\.benchmark\\.", ""));
+            // Sorted, so the key does not depend on the order JMH wrote the params in
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            key.append(" [").append(result.path("mode").asText()).append(']');
+
+            JsonNode metric = result.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key.toString(), new Score(metric.path("score").asDouble(), Double.isNaN(error) ? 0 : error,
+                    metric.path("scoreUnit").asText(), "thrpt".equals(result.path("mode").asText())));
+        }
+        return scores;
+    }
+}
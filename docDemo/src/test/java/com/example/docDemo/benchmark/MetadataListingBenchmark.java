@@ -0,0 +1,104 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.repository.DocumentSpecification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of the filtered document listing: loading full entities (with the content LOB)
+ * and mapping them, vs. the metadata-only projection. The approximate bytes read per page
+ * by each path are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class MetadataListingBenchmark {
+
+    private static final int DOCUMENTS = 2_000;
+
+    // Words of extracted text per document (about 8 bytes each)
+    @Param({"1000", "25000"})
+    public int contentWords;
+
+    private final Pageable page = PageRequest.of(3, 20, Sort.by(Sort.Direction.DESC, "uploadTimestamp"));
+
+    private ConfigurableApplicationContext context;
+    private DocumentRepository documentRepository;
+    private Specification<Document> spec;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("docdemo.search.index.enabled=false");
+        documentRepository = context.getBean(DocumentRepository.class);
+        spec = Specification.where(DocumentSpecification.hasContentType("text/plain"));
+
+        Random random = new Random(42);
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Document document = new Document();
+            document.setFilename("doc-" + i + ".txt");
+            document.setContentType("text/plain");
+            document.setAuthor("author" + (i % 50));
+            document.setContent(BenchmarkContext.randomText(random, contentWords));
+            batch.add(document);
+            if (batch.size() == 100) {
+                documentRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        documentRepository.saveAll(batch);
+
+        long entityBytes = fullEntities().stream().mapToLong(dto -> estimateBytes(dto) + documentRepository.findById(dto.getId()).orElseThrow().getContent().length()).sum();
+        long projectionBytes = projection().stream().mapToLong(MetadataListingBenchmark::estimateBytes).sum();
+        System.out.printf("%nApprox. bytes read per page of 20: full entities %,d, projection %,d%n", entityBytes, projectionBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<DocumentMetadataDTO> fullEntities() {
+        Page<Document> documents = documentRepository.findAll(spec, page);
+        return documents.map(doc -> new DocumentMetadataDTO(doc.getId(), doc.getFilename(), doc.getContentType(), doc.getAuthor(), doc.getUploadTimestamp())).getContent();
+    }
+
+    @Benchmark
+    public List<DocumentMetadataDTO> projection() {
+        return documentRepository.findMetadata(spec, page).getContent();
+    }
+
+    private static long estimateBytes(DocumentMetadataDTO dto) {
+        // id + date + the three strings
+        return 8 + 8 + dto.getFilename().length() + dto.getContentType().length() + dto.getAuthor().length();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.extraction.PdfExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction time of one large PDF against the number of threads extracting its page
+ * ranges: the calling thread plus {@code threads - 1} page workers. {@code threads = 1} is
+ * the single-threaded {@code PDFTextStripper} pass; compare the other rows with it for the
+ * speedup. Only meaningful on a host with at least {@code threads} cores; on one core it
+ * measures nothing but the cost of loading a copy of the document per worker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class PdfExtractionBenchmark {
+
+    @Param({"500"})
+    public int pages;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path file;
+    private PdfExtractor extractor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = CorpusGenerator.pdf(pages, new Random(42));
+        extractor = new PdfExtractor();
+        ReflectionTestUtils.setField(extractor, "maxMainMemoryBytes", 16L * 1024 * 1024);
+        ReflectionTestUtils.setField(extractor, "parallelPageThreshold", threads > 1 ? 1 : 0);
+        ReflectionTestUtils.setField(extractor, "parallelism", Math.max(1, threads - 1));
+        extractor.afterPropertiesSet();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        extractor.destroy();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String extract() throws Exception {
+        return extractor.extract(file);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.search.InvertedIndex;
+import com.example.docDemo.search.Query;
+import com.example.docDemo.search.QueryParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BM25 ranking straight on the {@link InvertedIndex}, for queries matching most of 200k
+ * documents. {@code limit=10} is what the ranked endpoint does for a first page;
+ * {@code limit=200000} keeps every match, i.e. the cost of sorting all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class RankedSearchBenchmark {
+
+    private static final int DOCUMENTS = 200_000;
+
+    @Param({"10", "200000"})
+    public int limit;
+
+    private final Query commonWord = QueryParser.parse("invoice");
+    private final Query eitherWord = QueryParser.parse("invoice OR budget");
+    private final Query wordsAndPhrase = QueryParser.parse("report \"payment schedule\"");
+
+    private InvertedIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new InvertedIndex();
+        Random random = new Random(42);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            index.add(i, BenchmarkContext.randomText(random, 100));
+        }
+    }
+
+    @Benchmark
+    public InvertedIndex.Ranking rankCommonWord() {
+        return index.rank(commonWord, limit);
+    }
+
+    @Benchmark
+    public InvertedIndex.Ranking rankEitherWord() {
+        return index.rank(eitherWord, limit);
+    }
+
+    @Benchmark
+    public InvertedIndex.Ranking rankWordsAndPhrase() {
+        return index.rank(wordsAndPhrase, limit);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.service.SearchIndexService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page of a keyword search: SQL {@code LIKE} scan vs. the inverted index
+ * (index lookup plus loading the page's rows by ID).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SearchIndexBenchmark {
+
+    @Param({"10000", "100000"})
+    public int documents;
+
+    // A common word and a rare token
+    @Param({"invoice", "term4242"})
+    public String keyword;
+
+    private final Pageable firstPage = PageRequest.of(0, 10);
+
+    private ConfigurableApplicationContext context;
+    private DocumentRepository documentRepository;
+    private SearchIndexService searchIndexService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("docdemo.search.index.enabled=true");
+        documentRepository = context.getBean(DocumentRepository.class);
+        searchIndexService = context.getBean(SearchIndexService.class);
+
+        Random random = new Random(42);
+        List<Document> batch = new ArrayList<>(1000);
+        for (int i = 0; i < documents; i++) {
+            Document document = new Document();
+            document.setFilename("doc-" + i + ".txt");
+            document.setContentType("text/plain");
+            document.setAuthor("author" + (i % 50));
+            document.setContent(BenchmarkContext.randomText(random, 200));
+            batch.add(document);
+            if (batch.size() == 1000) {
+                documentRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        documentRepository.saveAll(batch);
+        searchIndexService.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Document> likeScan() {
+        return documentRepository.searchByKeyword(keyword, firstPage);
+    }
+
+    @Benchmark
+    public List<Document> invertedIndex() {
+        Page<Long> ids = searchIndexService.search(keyword, firstPage).orElseThrow();
+        return documentRepository.findAllById(ids.getContent());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.docDemo.benchmark;
+
+import com.example.docDemo.search.SnippetGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snippet generation for one search hit on large documents. {@code lowercaseCopy} is the
+ * previous implementation of {@code DocumentService.generateSnippet}, kept here as the baseline.
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SnippetBenchmark {
+
+    private static final int SNIPPET_LENGTH = 150;
+
+    @Param({"1", "10"})
+    public int megabytes;
+
+    // Where the first match sits: early in the text, or near the end (worst case for scanning)
+    @Param({"start", "end"})
+    public String matchAt;
+
+    private final String keyword = "Needle";
+    private final SnippetGenerator generator = new SnippetGenerator(SNIPPET_LENGTH, 3, "<em>", "</em>");
+    private String content;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String filler = BenchmarkContext.randomText(new Random(42), megabytes * 1024 * 1024 / 8);
+        int at = matchAt.equals("start") ? 1_000 : filler.length() - 1_000;
+        at = filler.indexOf(' ', at);
+        content = filler.substring(0, at) + " needle" + filler.substring(at);
+    }
+
+    @Benchmark
+    public String lowercaseCopy() {
+        String lowerContent = content.toLowerCase();
+        String lowerKeyword = keyword.toLowerCase();
+        int index = lowerContent.indexOf(lowerKeyword);
+        if (index == -1) return content.substring(0, Math.min(content.length(), SNIPPET_LENGTH)) + (content.length() > SNIPPET_LENGTH ? "..." : "");
+        int start = Math.max(0, index - (SNIPPET_LENGTH / 2));
+        int end = Math.min(content.length(), index + keyword.length() + (SNIPPET_LENGTH / 2));
+        String snippet = content.substring(start, end);
+        if (start > 0) snippet = "..." + snippet;
+        if (end < content.length()) snippet = snippet + "...";
+        return snippet;
+    }
+
+    @Benchmark
+    public String regionMatchSnippet() {
+        return generator.snippet(content, keyword);
+    }
+
+    @Benchmark
+    public List<String> highlightedFragments() {
+        return generator.highlights(content, keyword);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.docDemo.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of {@code POST /api/documents/upload} with 500 concurrent clients against the
+ * real web server, with platform threads and with virtual threads. The server runs in a
+ * JVM of its own ({@link BenchmarkServer}), so the clients do not share its heap or JIT,
+ * though on a single host they still share its cores. Throughput mode gives uploads per ms;
+ * sample-time mode gives the latency percentiles (read p0.99). The
+ * {@code accepted}/{@code rejected} counters split 202s from 429s (ingestion queue full).
+ * <p>
+ * Virtual threads need Java 21. The build targets Java 17, and on a Java 17 server
+ * {@code spring.threads.virtual.enabled} has no effect, so the {@code virtualThreads=true}
+ * rows measure the same platform threads as the others. Set
+ * {@code BENCHMARK_SERVER_JAVA_HOME} to a JDK 21 to run the server on it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(500)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class UploadLoadBenchmark {
+
+    private static final String BOUNDARY = "----docdemo-load-boundary";
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private final AtomicLong uploads = new AtomicLong();
+    private BenchmarkServer server;
+    private HttpClient client;
+    private URI uploadUri;
+    private String body;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Responses {
+        public long accepted;
+        public long rejected;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = BenchmarkServer.start(List.of("-Xmx2g"), "spring.threads.virtual.enabled=" + virtualThreads,
+                "logging.level.com.example.docDemo=ERROR");
+        if (virtualThreads && server.javaVersion() < 21) {
+            System.err.println("The server runs on Java " + server.javaVersion() + ", which has no virtual threads; this run uses platform threads");
+        }
+        uploadUri = URI.create("http://localhost:" + server.port() + "/api/documents/upload");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(30)).build();
+        body = BenchmarkContext.randomText(new Random(42), 600);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    public int upload(Responses responses) throws Exception {
+        // A distinct suffix per upload, so deduplication does not skip the work
+        long n = uploads.incrementAndGet();
+        String multipart = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"load-" + n + ".txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + body + " upload " + n + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        HttpRequest request = HttpRequest.newBuilder(uploadUri)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofString(multipart, StandardCharsets.UTF_8))
+                .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status == 202) responses.accepted++;
+        else if (status == 429) responses.rejected++;
+        else throw new IllegalStateException("Unexpected upload status " + status);
+        return status;
+    }
+}
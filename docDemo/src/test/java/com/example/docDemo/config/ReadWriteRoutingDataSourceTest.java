@@ -0,0 +1,125 @@
+package com.example.docDemo.config;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.dto.QAResponseDTO;
+import com.example.docDemo.service.DocumentService;
+import com.example.docDemo.service.SpooledUpload;
+import com.example.docDemo.service.UploadSpooler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica; the replica only
+ * catches up when the test copies the primary over, so every read shows where it went.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "docdemo.datasource.routing.enabled=true",
+        "docdemo.datasource.routing.read-your-writes-window=PT1S",
+        "docdemo.datasource.replica.url=jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "docdemo.datasource.replica.hikari.maximum-pool-size=3",
+        "docdemo.search.index.enabled=false",
+        "docdemo.cache.search.enabled=false",
+        "docdemo.storage.metadata.backfill-on-startup=false"
+})
+@ActiveProfiles("test")
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UploadSpooler uploadSpooler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyQueriesGoToTheReplicaExceptForARecentWriter() throws Exception {
+        replicate();
+        double replicaConnections = connections("replica");
+
+        ingest("routed.txt", "Quarterly replication report.", "Routing Author");
+
+        // The writer reads its own upload from the primary during its window...
+        assertThat(listed("routing author")).hasSize(1);
+        assertThat(searched("replication")).hasSize(1);
+
+        // ...while another client reads the replica, which does not have it yet
+        asClient("someone-else");
+        assertThat(listed("routing author")).isEmpty();
+        assertThat(searched("replication")).isEmpty();
+        assertThat(connections("replica")).isGreaterThan(replicaConnections);
+
+        RequestContextHolder.resetRequestAttributes();
+        Thread.sleep(1_200);
+        assertThat(listed("routing author")).isEmpty();
+
+        replicate();
+        assertThat(listed("routing author")).hasSize(1);
+        asClient("someone-else");
+        assertThat(searched("replication")).hasSize(1);
+    }
+
+    /** Copies the primary's schema and rows over the replica's, as replication eventually would. */
+    private void replicate() {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT", String.class);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+    }
+
+    private static void asClient(String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Client-Id", client);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private double connections(String role) {
+        return meterRegistry.get("docdemo.datasource.connections").tag("role", role).counter().count();
+    }
+
+    private List<DocumentMetadataDTO> listed(String author) {
+        return documentService.findDocuments(author, null, null, null, PageRequest.of(0, 10)).getContent();
+    }
+
+    private List<QAResponseDTO> searched(String keyword) {
+        return documentService.searchDocumentsByKeyword(keyword, PageRequest.of(0, 10)).getContent();
+    }
+
+    private void ingest(String filename, String text, String author) throws Exception {
+        try (SpooledUpload upload = uploadSpooler.spool(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), filename, "text/plain")) {
+            documentService.ingestDocument(upload, author);
+        }
+    }
+}
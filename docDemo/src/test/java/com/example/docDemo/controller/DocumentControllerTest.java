@@ -0,0 +1,284 @@
+package com.example.docDemo.controller;
+
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.service.IngestionScheduler;
+import com.example.docDemo.service.SearchIndexService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"docdemo.ingestion.batch.archive.max-entries=8",
+        "docdemo.ingestion.batch.archive.max-entry-size=64KB", "docdemo.ingestion.batch.archive.max-total-size=256KB"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DocumentControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @SpyBean
+    private IngestionScheduler ingestionScheduler;
+
+    @SpyBean
+    private SearchIndexService searchIndexService;
+
+    @Test
+    void uploadIsAcceptedAsAJobThatCompletes() throws Exception {
+        MvcResult accepted = mockMvc.perform(multipart("/api/documents/upload")
+                        .file(file("godwit.txt", "Bar-tailed godwit migration notes"))
+                        .param("author", "wader"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andExpect(jsonPath("$.filename").value("godwit.txt"))
+                .andReturn();
+        String jobId = json(accepted).get("jobId").asText();
+        assertThat(accepted.getResponse().getHeader(HttpHeaders.LOCATION)).isEqualTo("/api/documents/jobs/" + jobId);
+
+        JsonNode job = pollUntilFinished(jobId);
+        assertThat(job.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(job.get("finishedAt").isNull()).isFalse();
+        assertThat(job.at("/document/author").asText()).isEqualTo("wader");
+        long documentId = job.at("/document/id").asLong();
+        // Streamed on the MVC async executor
+        MvcResult content = mockMvc.perform(get("/api/documents/" + documentId + "/content"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(content))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Bar-tailed godwit migration notes"));
+    }
+
+    @Test
+    void unknownJobIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/documents/jobs/no-such-job"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value(404));
+    }
+
+    @Test
+    void fullIngestionQueueIsTooManyRequests() throws Exception {
+        doThrow(new TaskRejectedException("lane full")).when(ingestionScheduler).submit(any(), any());
+        try {
+            mockMvc.perform(multipart("/api/documents/upload").file(file("dunlin.txt", "Dunlin flock")))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            reset(ingestionScheduler);
+        }
+    }
+
+    @Test
+    void batchIngestsMixedFormatsFromFilesAndAnArchive() throws Exception {
+        String tag = UUID.randomUUID().toString();
+        byte[] archive = zip(Map.of(
+                "notes.md", "# Plover survey\n\nRinged *plover* counts " + tag,
+                "page.html", "<html><body><p>Plover roost " + tag + "</p></body></html>",
+                "tally.txt", "Plover tally " + tag));
+
+        JsonNode result = batch(multipart("/api/documents/batch")
+                .file(new MockMultipartFile("files", "loose.txt", "text/plain", ("Loose plover note " + tag).getBytes(StandardCharsets.UTF_8)))
+                .file(new MockMultipartFile("archive", "survey.zip", "application/zip", archive)));
+
+        assertThat(result.get("succeeded").asInt()).isEqualTo(4);
+        assertThat(result.get("failed").asInt()).isZero();
+        Map<String, String> contentTypes = new HashMap<>();
+        result.get("documents").forEach(document -> contentTypes.put(document.get("filename").asText(), document.get("contentType").asText()));
+        assertThat(contentTypes).containsEntry("loose.txt", "text/plain").containsEntry("tally.txt", "text/plain")
+                .containsEntry("notes.md", "text/markdown").containsEntry("page.html", "text/html");
+    }
+
+    @Test
+    void oversizedArchiveEntriesFailAlone() throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("small.txt", "Small sanderling note " + UUID.randomUUID());
+        entries.put("huge.txt", text("sanderling", 100 * 1024));
+        entries.put("small-2.txt", "Another sanderling note " + UUID.randomUUID());
+
+        JsonNode result = batch(multipart("/api/documents/batch")
+                .file(new MockMultipartFile("archive", "sanderling.zip", "application/zip", zip(entries))));
+
+        assertThat(filenames(result.get("documents"))).containsExactlyInAnyOrder("small.txt", "small-2.txt");
+        assertThat(filenames(result.get("errors"))).containsExactly("huge.txt");
+    }
+
+    @Test
+    void archivesAreReadOnlyUpToTheirTotalSizeAndEntryCount() throws Exception {
+        // 50 KB each: five fit in 256 KB, the sixth does not
+        Map<String, String> large = new LinkedHashMap<>();
+        for (int i = 1; i <= 7; i++) large.put("knot-" + i + ".txt", text("knot" + i, 50 * 1024));
+        JsonNode bySize = batch(multipart("/api/documents/batch")
+                .file(new MockMultipartFile("archive", "knots.zip", "application/zip", zip(large))));
+        assertThat(bySize.get("succeeded").asInt()).isEqualTo(5);
+        assertThat(filenames(bySize.get("errors"))).containsExactly("knots.zip");
+        assertThat(bySize.at("/errors/0/error").asText()).contains("knot-6.txt");
+
+        Map<String, String> many = new LinkedHashMap<>();
+        for (int i = 1; i <= 10; i++) many.put("stint-" + i + ".txt", "Little stint " + i + " " + UUID.randomUUID());
+        JsonNode byCount = batch(multipart("/api/documents/batch")
+                .file(new MockMultipartFile("archive", "stints.zip", "application/zip", zip(many))));
+        assertThat(byCount.get("succeeded").asInt()).isEqualTo(8);
+        assertThat(filenames(byCount.get("errors"))).containsExactly("stints.zip");
+    }
+
+    @Test
+    void aFailedInsertIsRetriedDocumentByDocument() throws Exception {
+        String tag = UUID.randomUUID().toString();
+        String tooLong = "x".repeat(300) + ".txt";
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("ruff.txt", "Ruff lek " + tag);
+        entries.put(tooLong, "Ruff with a filename too long for its column " + tag);
+        entries.put("reeve.txt", "Reeve nest " + tag);
+        entries.put("ruff-copy.txt", "Ruff lek " + tag);
+
+        JsonNode result = batch(multipart("/api/documents/batch")
+                .file(new MockMultipartFile("archive", "ruffs.zip", "application/zip", zip(entries))));
+
+        assertThat(filenames(result.get("documents"))).containsExactlyInAnyOrder("ruff.txt", "reeve.txt", "ruff-copy.txt");
+        assertThat(filenames(result.get("errors"))).containsExactly(tooLong);
+        Map<String, Long> ids = new HashMap<>();
+        result.get("documents").forEach(document -> ids.put(document.get("filename").asText(), document.get("id").asLong()));
+        // Whichever of the identical files was stored first, the other points at its stored ID
+        Document ruff = documentRepository.findById(ids.get("ruff.txt")).orElseThrow();
+        Document copy = documentRepository.findById(ids.get("ruff-copy.txt")).orElseThrow();
+        assertThat(ruff.getDuplicateOfId() != null ? ruff.getDuplicateOfId() : copy.getDuplicateOfId())
+                .isEqualTo(ruff.getDuplicateOfId() != null ? copy.getId() : ruff.getId());
+    }
+
+    @Test
+    void archiveEntriesAreNamedWithoutTheirFolders() throws Exception {
+        String tag = UUID.randomUUID().toString();
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("reports/", "");
+        entries.put("reports/2024/q1.txt", "First quarter whimbrel counts " + tag);
+        entries.put("reports\\2024\\q2.txt", "Second quarter whimbrel counts " + tag);
+        entries.put("reports/2024/", "");
+
+        JsonNode result = batch(multipart("/api/documents/batch")
+                .file(new MockMultipartFile("archive", "reports.zip", "application/zip", zip(entries))));
+
+        assertThat(result.get("total").asInt()).isEqualTo(2);
+        assertThat(filenames(result.get("documents"))).containsExactlyInAnyOrder("q1.txt", "q2.txt");
+    }
+
+    @Test
+    void sqlSearchFallbackAcceptsTheDefaultSortAndMatchesDuplicates() throws Exception {
+        String tag = UUID.randomUUID().toString().replace("-", "");
+        String text = "Godwit passage " + tag;
+        JsonNode stored = batch(multipart("/api/documents/batch")
+                .file(new MockMultipartFile("files", "godwit.txt", "text/plain", text.getBytes(StandardCharsets.UTF_8)))
+                .file(new MockMultipartFile("files", "godwit-copy.txt", "text/plain", text.getBytes(StandardCharsets.UTF_8))));
+        assertThat(stored.get("succeeded").asInt()).isEqualTo(2);
+
+        // As while the index is being built: the endpoint's default uploadTimestamp sort goes to the native query
+        doReturn(Optional.empty()).when(searchIndexService).search(anyString(), any());
+        try {
+            mockMvc.perform(get("/api/documents/search").param("query", tag))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(2))
+                    .andExpect(jsonPath("$.content[*].snippet", everyItem(containsString(tag))));
+        } finally {
+            reset(searchIndexService);
+        }
+    }
+
+    private JsonNode batch(MockMultipartHttpServletRequestBuilder request) throws Exception {
+        // Runs on the MVC async executor
+        MvcResult started = mockMvc.perform(request.param("author", "wader"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return json(mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+
+    private static List<String> filenames(JsonNode items) {
+        List<String> filenames = new ArrayList<>();
+        items.forEach(item -> filenames.add(item.get("filename").asText()));
+        return filenames;
+    }
+
+    private static String text(String word, int bytes) {
+        StringBuilder text = new StringBuilder(bytes);
+        while (text.length() < bytes) text.append(word).append(' ');
+        return text.substring(0, bytes);
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private JsonNode pollUntilFinished(String jobId) throws Exception {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (true) {
+            JsonNode job = json(mockMvc.perform(get("/api/documents/jobs/" + jobId))
+                    .andExpect(status().isOk())
+                    .andReturn());
+            String status = job.get("status").asText();
+            if (status.equals("COMPLETED") || status.equals("FAILED") || System.nanoTime() > deadline) return job;
+            Thread.sleep(20);
+        }
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private static MockMultipartFile file(String filename, String text) {
+        return new MockMultipartFile("file", filename, "text/plain", text.getBytes(StandardCharsets.UTF_8));
+    }
+}
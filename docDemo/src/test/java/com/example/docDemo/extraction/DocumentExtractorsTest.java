@@ -0,0 +1,152 @@
+package com.example.docDemo.extraction;
+
+import org.apache.poi.util.Units;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentExtractorsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void extractsCellTextFromXlsx() throws Exception {
+        Path file = dir.resolve("budget.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            XSSFSheet sheet = workbook.createSheet("Budget");
+            sheet.createRow(0).createCell(0).setCellValue("Quarterly forecast");
+            sheet.createRow(1).createCell(1).setCellValue(42);
+            workbook.write(out);
+        }
+        assertThat(new XlsxExtractor().extract(file)).contains("Budget", "Quarterly forecast", "42");
+    }
+
+    @Test
+    void streamsDocxTextWithoutTheObjectModel() throws Exception {
+        Path file = dir.resolve("report.docx");
+        try (XWPFDocument document = new XWPFDocument(); OutputStream out = Files.newOutputStream(file)) {
+            document.createParagraph().createRun().setText("Annual report");
+            XWPFRun run = document.createParagraph().createRun();
+            run.setText("Revenue");
+            run.addTab();
+            run.setText("grew");
+            run.addBreak();
+            run.setText("again & again");
+            XWPFTable table = document.createTable(2, 2);
+            table.getRow(0).getCell(0).setText("Region");
+            table.getRow(0).getCell(1).setText("Sales");
+            table.getRow(1).getCell(0).setText("North");
+            table.getRow(1).getCell(1).setText("42");
+            document.createParagraph().createRun().addPicture(new ByteArrayInputStream(new byte[]{1, 2, 3}),
+                    org.apache.poi.xwpf.usermodel.Document.PICTURE_TYPE_PNG, "chart.png", Units.toEMU(10), Units.toEMU(10));
+            document.createParagraph().createRun().setText("Closing remarks");
+            document.write(out);
+        }
+
+        DocxExtractor streaming = new DocxExtractor();
+        DocxExtractor dom = new DocxExtractor();
+        ReflectionTestUtils.setField(dom, "mode", "dom");
+        String text = streaming.extract(file);
+        assertThat(text).contains("Annual report\n", "Revenue\tgrew\nagain & again", "Region\tSales\t\nNorth\t42\t\n", "Closing remarks");
+        assertThat(streaming.version()).isNotEqualTo(dom.version());
+        // Same words as POI's extractor; only whitespace layout may differ
+        assertThat(words(text)).isEqualTo(words(dom.extract(file)));
+    }
+
+    @Test
+    void extractsSlideTextFromPptx() throws Exception {
+        Path file = dir.resolve("deck.pptx");
+        try (XMLSlideShow slides = new XMLSlideShow(); OutputStream out = Files.newOutputStream(file)) {
+            XSLFTextBox box = slides.createSlide().createTextBox();
+            box.setText("Release planning");
+            slides.write(out);
+        }
+        assertThat(new PptxExtractor().extract(file)).contains("Release planning");
+    }
+
+    @Test
+    void extractsVisibleTextFromHtml() throws Exception {
+        Path file = dir.resolve("page.html");
+        Files.writeString(file, "<html><head><title>Policy</title><script>var x = 1;</script></head>"
+                + "<body><h1>Security</h1><p>Audit &amp; compliance</p></body></html>");
+        String text = new HtmlExtractor().extract(file);
+        assertThat(text).contains("Security", "Audit & compliance").doesNotContain("<p>", "var x");
+    }
+
+    @Test
+    void stripsMarkdownSyntax() throws Exception {
+        Path file = dir.resolve("notes.md");
+        Files.writeString(file, "# Release notes\n\n- **Fixed** the [audit log](https://example.com/a)\n```java\ncode();\n```\n");
+        String text = new MarkdownExtractor().extract(file);
+        assertThat(text).contains("Release notes", "Fixed the audit log", "code();")
+                .doesNotContain("#", "**", "](", "```");
+    }
+
+    @Test
+    void stripsOnlyPairedEmphasisAndLeavesCodeAsWritten() throws Exception {
+        Path file = dir.resolve("style.md");
+        Files.writeString(file, "Use **bold**, _italic_ and ~~old~~ text; 2 * 3 and a*b stay, as does snake_case_name.\n"
+                + "Call `int *p = a*b;` or ``x `y` z``.\n"
+                + "```\nfor (i = 0; i < n; i++) total *= **weights[i]**;\n```\n");
+        String text = new MarkdownExtractor().extract(file);
+        assertThat(text).contains("Use bold, italic and old text; 2 * 3 and a*b stay, as does snake_case_name.",
+                "Call int *p = a*b; or x `y` z.", "total *= **weights[i]**;").doesNotContain("```");
+    }
+
+    @Test
+    void officeAndHtmlExtractionStopsOnceInterrupted() throws Exception {
+        Path xlsx = dir.resolve("rows.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(xlsx)) {
+            workbook.createSheet("Rows").createRow(0).createCell(0).setCellValue("first row");
+            workbook.write(out);
+        }
+        Path pptx = dir.resolve("slides.pptx");
+        try (XMLSlideShow slides = new XMLSlideShow(); OutputStream out = Files.newOutputStream(pptx)) {
+            slides.createSlide().createTextBox().setText("first slide");
+            slides.write(out);
+        }
+        Path docx = dir.resolve("paragraphs.docx");
+        try (XWPFDocument document = new XWPFDocument(); OutputStream out = Files.newOutputStream(docx)) {
+            document.createParagraph().createRun().setText("first paragraph");
+            document.write(out);
+        }
+        Path html = dir.resolve("page.html");
+        Files.writeString(html, "<p>first element</p>");
+        DocxExtractor dom = new DocxExtractor();
+        ReflectionTestUtils.setField(dom, "mode", "dom");
+
+        // As when the registry cancels a timed-out extraction
+        for (Callable<String> extraction : List.<Callable<String>>of(() -> new XlsxExtractor().extract(xlsx),
+                () -> new PptxExtractor().extract(pptx), () -> dom.extract(docx), () -> new HtmlExtractor().extract(html))) {
+            Thread.currentThread().interrupt();
+            try {
+                assertThatThrownBy(extraction::call).isInstanceOf(InterruptedIOException.class);
+            } finally {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private static String words(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+}
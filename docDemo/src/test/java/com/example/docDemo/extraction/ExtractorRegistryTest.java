@@ -0,0 +1,154 @@
+package com.example.docDemo.extraction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.convert.support.ConfigurableConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExtractorRegistryTest {
+
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final ExtractorRegistry registry = new ExtractorRegistry();
+
+    private final DocumentExtractor slow = new StubExtractor("slow", "application/x-slow", ".slow") {
+        @Override
+        public String extract(Path file) {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        }
+    };
+    private final DocumentExtractor fast = new StubExtractor("fast", "text/x-fast", ".fast");
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final DocumentExtractor busy = new StubExtractor("busy", "application/x-busy", ".busy") {
+        @Override
+        public String extract(Path file) throws Exception {
+            release.await();
+            return "busy text";
+        }
+    };
+
+    ExtractorRegistryTest() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("docdemo.extraction.slow.threads", "1")
+                .withProperty("docdemo.extraction.slow.timeout", "PT0.2S")
+                .withProperty("docdemo.extraction.fast.threads", "1")
+                .withProperty("docdemo.extraction.busy.threads", "1")
+                .withProperty("docdemo.extraction.busy.queue-capacity", "1");
+        // As in a Boot application, so "PT0.2S" binds to Duration
+        environment.setConversionService((ConfigurableConversionService) ApplicationConversionService.getSharedInstance());
+        ReflectionTestUtils.setField(registry, "extractors", List.of(slow, fast, busy));
+        ReflectionTestUtils.setField(registry, "environment", environment);
+        ReflectionTestUtils.setField(registry, "meterRegistry", meters);
+        registry.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void shutdown() {
+        registry.destroy();
+    }
+
+    @Test
+    void looksUpByNormalizedContentTypeAndExtension() {
+        assertThat(registry.forContentType("Text/X-Fast; charset=UTF-8")).containsSame(fast);
+        assertThat(registry.forContentType("application/unknown")).isEmpty();
+        assertThat(registry.contentTypeForFilename("report.SLOW")).isEqualTo("application/x-slow");
+        assertThat(registry.contentTypeForFilename("README")).isNull();
+        assertThat(registry.supportedContentTypes()).containsExactly("application/x-slow", "text/x-fast", "application/x-busy");
+    }
+
+    @Test
+    void timesOutAndInterruptsAStuckExtraction() throws Exception {
+        assertThatThrownBy(() -> registry.extract(slow, Path.of("stuck.slow"))).isInstanceOf(TimeoutException.class);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meters.get("docdemo.extraction").tags("extractor", "slow", "outcome", "timeout").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void aStuckFormatDoesNotHoldUpOtherFormats() throws Exception {
+        CompletableFuture<Void> stuck = CompletableFuture.runAsync(() -> {
+            try {
+                registry.extract(slow, Path.of("stuck.slow"));
+            } catch (Exception ignored) {
+                // times out
+            }
+        });
+        assertThat(registry.extract(fast, Path.of("a.fast"))).isEqualTo("fast text");
+        assertThat(meters.get("docdemo.extraction").tags("extractor", "fast", "outcome", "success").timer().count()).isEqualTo(1);
+        stuck.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void rejectsExtractionsOnceTheFormatsQueueIsFull() throws Exception {
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> extractQuietly(busy, "running.busy"));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> extractQuietly(busy, "queued.busy"));
+        while (meters.get("executor.queued").tags("name", "extraction.busy").gauge().value() < 1) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> registry.extract(busy, Path.of("rejected.busy"))).isInstanceOf(RejectedExecutionException.class);
+        assertThat(meters.get("docdemo.extraction").tags("extractor", "busy", "outcome", "rejected").timer().count()).isEqualTo(1);
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("busy text");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("busy text");
+    }
+
+    private String extractQuietly(DocumentExtractor extractor, String filename) {
+        try {
+            return registry.extract(extractor, Path.of(filename));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class StubExtractor implements DocumentExtractor {
+
+        private final String name;
+        private final String contentType;
+        private final String extension;
+
+        StubExtractor(String name, String contentType, String extension) {
+            this.name = name;
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public List<String> contentTypes() {
+            return List.of(contentType);
+        }
+
+        @Override
+        public List<String> fileExtensions() {
+            return List.of(extension);
+        }
+
+        @Override
+        public String extract(Path file) throws Exception {
+            return name + " text";
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.docDemo.extraction;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parallelExtractionMatchesSequentialTextInPageOrder() throws Exception {
+        Path file = manual(37);
+
+        String sequential = extractor(0, 1).extract(file);
+        PdfExtractor parallel = extractor(10, 4);
+        String stitched;
+        StringWriter streamed = new StringWriter();
+        try {
+            stitched = parallel.extract(file);
+            parallel.extract(file, streamed);
+        } finally {
+            parallel.destroy();
+        }
+
+        assertThat(stitched).isEqualTo(sequential);
+        assertThat(streamed.toString()).isEqualTo(sequential);
+        assertThat(stitched.indexOf("Page 9 ")).isLessThan(stitched.indexOf("Page 10 "));
+        assertThat(stitched).contains("Page 37 of the installation manual");
+    }
+
+    @Test
+    void concurrentDocumentsShareThePageWorkerBudget() throws Exception {
+        Path file = manual(24);
+        String sequential = extractor(0, 1).extract(file);
+        PdfExtractor parallel = extractor(10, 2);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> extractions = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                extractions.add(callers.submit(() -> parallel.extract(file)));
+            }
+            // Documents that found no idle worker ran sequentially; all give the same text
+            for (Future<String> extraction : extractions) {
+                assertThat(extraction.get(30, TimeUnit.SECONDS)).isEqualTo(sequential);
+            }
+            Semaphore idleWorkers = (Semaphore) ReflectionTestUtils.getField(parallel, "idleWorkers");
+            assertThat(idleWorkers.availablePermits()).isEqualTo(2);
+        } finally {
+            callers.shutdownNow();
+            parallel.destroy();
+        }
+    }
+
+    private Path manual(int pages) throws Exception {
+        Path file = dir.resolve("manual-" + pages + ".pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 1; p <= pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                    stream.beginText();
+                    stream.setFont(PDType1Font.HELVETICA, 12);
+                    stream.newLineAtOffset(50, 700);
+                    stream.showText("Page " + p + " of the installation manual");
+                    stream.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+
+    private static PdfExtractor extractor(int threshold, int parallelism) {
+        PdfExtractor extractor = new PdfExtractor();
+        ReflectionTestUtils.setField(extractor, "maxMainMemoryBytes", 16L * 1024 * 1024);
+        ReflectionTestUtils.setField(extractor, "parallelPageThreshold", threshold);
+        ReflectionTestUtils.setField(extractor, "parallelism", parallelism);
+        extractor.afterPropertiesSet();
+        return extractor;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.docDemo.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacetIndexTest {
+
+    private static final LocalDate MAY_1 = LocalDate.of(2024, 5, 1);
+
+    private FacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FacetIndex();
+        add(1, "Alice", "application/pdf", MAY_1);
+        add(2, "alice", "text/plain", MAY_1.plusDays(1));
+        add(3, "Bob", "application/pdf", MAY_1.plusDays(1));
+        add(4, "Bobby", "text/html", MAY_1.minusDays(3));
+        add(5, null, "text/plain", MAY_1);
+    }
+
+    @Test
+    void countsEveryDimensionWithoutFilters() {
+        FacetIndex.Facets facets = index.facets(new FacetIndex.Filter(null, null, null, null), 10);
+        assertThat(facets.total()).isEqualTo(5);
+        assertThat(facets.authors()).containsExactly(value("Alice", 2), value("Bob", 1), value("Bobby", 1));
+        assertThat(facets.contentTypes()).containsExactly(value("application/pdf", 2), value("text/plain", 2), value("text/html", 1));
+        assertThat(facets.uploadDays()).containsExactly(value("2024-05-02", 2), value("2024-05-01", 2), value("2024-04-28", 1));
+    }
+
+    @Test
+    void countsEachDimensionUnderTheOtherFilters() {
+        FacetIndex.Facets facets = index.facets(new FacetIndex.Filter("bob*", "application/pdf", null, MAY_1.plusDays(1)), 10);
+        assertThat(facets.total()).isEqualTo(1);
+        // Authors ignore the author filter: both PDF authors are offered
+        assertThat(facets.authors()).containsExactly(value("Alice", 1), value("Bob", 1));
+        assertThat(facets.contentTypes()).containsExactly(value("application/pdf", 1), value("text/html", 1));
+        assertThat(facets.uploadDays()).containsExactly(value("2024-05-02", 1));
+    }
+
+    @Test
+    void keepsTheTopValuesAndTheLatestDays() {
+        FacetIndex.Facets facets = index.facets(new FacetIndex.Filter(null, "text/*", null, null), 1);
+        assertThat(facets.total()).isEqualTo(3);
+        assertThat(facets.authors()).containsExactly(value("Alice", 1));
+        assertThat(facets.contentTypes()).containsExactly(value("application/pdf", 2));
+        assertThat(facets.uploadDays()).containsExactly(value("2024-05-02", 1));
+
+        assertThat(index.facets(new FacetIndex.Filter("carol", null, null, null), 10).total()).isZero();
+    }
+
+    private void add(long id, String author, String contentType, LocalDate uploaded) {
+        index.add(id, author, author == null ? null : author.toLowerCase(), contentType, contentType, uploaded);
+    }
+
+    private static FacetIndex.Value value(String value, long count) {
+        return new FacetIndex.Value(value, count);
+    }
+}
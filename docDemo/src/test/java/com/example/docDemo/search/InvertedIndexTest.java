@@ -0,0 +1,111 @@
+package com.example.docDemo.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+        index.add(3, "Quarterly INVOICE for Acme, due in March.");
+        index.add(1, "Meeting notes: the invoice process is slow.");
+        index.add(2, "Process documentation for new hires.");
+    }
+
+    @Test
+    void matchesCaseInsensitivelyInIdOrder() {
+        assertThat(index.search("invoice")).containsExactly(1L, 3L);
+        assertThat(index.search("PROCESS")).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void lastTermMatchesAsPrefix() {
+        assertThat(index.search("invo")).containsExactly(1L, 3L);
+        assertThat(index.search("hire")).containsExactly(2L);
+    }
+
+    @Test
+    void multipleTermsMustFormAPhrase() {
+        assertThat(index.search("invoice process")).containsExactly(1L);
+        assertThat(index.search("process invoice")).isEmpty();
+        assertThat(index.search("for acme")).containsExactly(3L);
+    }
+
+    @Test
+    void reindexingADocumentDoesNotDuplicateIt() {
+        index.add(1, "Meeting notes: the invoice process is slow.");
+        assertThat(index.search("invoice")).containsExactly(1L, 3L);
+        assertThat(index.documentCount()).isEqualTo(3);
+    }
+
+    @Test
+    void reindexingChangedContentReplacesTheOldTerms() {
+        index.add(2, "Invoice backlog for Acme.");
+        assertThat(index.search("hire")).isEmpty();
+        assertThat(index.search("process")).containsExactly(1L);
+        assertThat(index.search("invoice")).containsExactly(1L, 2L, 3L);
+
+        // Scores, which use document lengths, are those of an index built with the new content
+        InvertedIndex rebuilt = new InvertedIndex();
+        rebuilt.add(3, "Quarterly INVOICE for Acme, due in March.");
+        rebuilt.add(1, "Meeting notes: the invoice process is slow.");
+        rebuilt.add(2, "Invoice backlog for Acme.");
+        assertThat(index.termCount()).isEqualTo(rebuilt.termCount());
+        assertThat(index.rank(QueryParser.parse("invoice acme"), 10).hits())
+                .isEqualTo(rebuilt.rank(QueryParser.parse("invoice acme"), 10).hits());
+    }
+
+    @Test
+    void outOfOrderIdsStaySorted() {
+        index.add(0, "An older invoice.");
+        assertThat(index.search("invoice")).containsExactly(0L, 1L, 3L);
+    }
+
+    @Test
+    void blankOrUnknownQueriesMatchNothing() {
+        assertThat(index.search("  ")).isEmpty();
+        assertThat(index.search("zebra")).isEmpty();
+    }
+
+    @Test
+    void rankedQueriesScoreFrequentAndRareTermsHigher() {
+        index.add(4, "Invoice invoice invoice: the invoice for Acme.");
+        InvertedIndex.Ranking ranking = index.rank(QueryParser.parse("invoice"), 10);
+
+        assertThat(ranking.totalMatches()).isEqualTo(3);
+        assertThat(ranking.hits()).extracting(InvertedIndex.Hit::docId).first().isEqualTo(4L);
+        // "acme" is in fewer documents than "invoice", so matching it counts for more
+        assertThat(index.rank(QueryParser.parse("invoice OR acme"), 10).hits())
+                .extracting(InvertedIndex.Hit::docId).containsExactly(4L, 3L, 1L);
+    }
+
+    @Test
+    void rankedQueriesCombineAndOrAndPhrases() {
+        assertThat(docIds(index.rank(QueryParser.parse("invoice process"), 10))).containsExactly(1L);
+        assertThat(docIds(index.rank(QueryParser.parse("\"process invoice\""), 10))).isEmpty();
+        assertThat(docIds(index.rank(QueryParser.parse("acme OR hires"), 10))).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(docIds(index.rank(QueryParser.parse("invo* AND slow"), 10))).containsExactly(1L);
+        assertThat(docIds(index.rank(QueryParser.parse("invo"), 10))).isEmpty();
+    }
+
+    @Test
+    void rankingKeepsOnlyTheBestHitsButCountsAll() {
+        for (long id = 10; id < 1010; id++) {
+            index.add(id, id % 100 == 0 ? "budget budget budget review" : "budget review meeting notes for the week");
+        }
+        InvertedIndex.Ranking ranking = index.rank(QueryParser.parse("budget"), 5);
+
+        assertThat(ranking.totalMatches()).isEqualTo(1000);
+        assertThat(docIds(ranking)).containsExactly(100L, 200L, 300L, 400L, 500L);
+        assertThat(ranking.hits()).isSortedAccordingTo((a, b) -> Double.compare(b.score(), a.score()));
+    }
+
+    private static java.util.List<Long> docIds(InvertedIndex.Ranking ranking) {
+        return ranking.hits().stream().map(InvertedIndex.Hit::docId).toList();
+    }
+}
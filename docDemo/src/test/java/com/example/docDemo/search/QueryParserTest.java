@@ -0,0 +1,32 @@
+package com.example.docDemo.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryParserTest {
+
+    @Test
+    void wordsAreAndedAndOrBindsLooser() {
+        assertThat(QueryParser.parse("Invoice AND due OR receipt")).isEqualTo(new Query.Or(List.of(
+                new Query.And(List.of(new Query.Term("invoice", false), new Query.Term("due", false))),
+                new Query.Term("receipt", false))));
+    }
+
+    @Test
+    void quotesSplitWordsAndStarsBuildPhrasesAndPrefixes() {
+        assertThat(QueryParser.parse("\"due date\" e-mail invo*")).isEqualTo(new Query.And(List.of(
+                new Query.Phrase(List.of("due", "date")),
+                new Query.Phrase(List.of("e", "mail")),
+                new Query.Term("invo", true))));
+    }
+
+    @Test
+    void malformedQueriesDegradeToTerms() {
+        assertThat(QueryParser.parse("OR budget \"unclosed quote")).isEqualTo(new Query.And(List.of(
+                new Query.Term("budget", false), new Query.Phrase(List.of("unclosed", "quote")))));
+        assertThat(QueryParser.parse("  AND ")).isEqualTo(new Query.Or(List.of()));
+    }
+}
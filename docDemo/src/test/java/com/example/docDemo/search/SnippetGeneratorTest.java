@@ -0,0 +1,54 @@
+package com.example.docDemo.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnippetGeneratorTest {
+
+    private final SnippetGenerator generator = new SnippetGenerator(20, 2, "[", "]");
+
+    @Test
+    void snippetIsCentredOnTheFirstMatchIgnoringCase() {
+        String content = "aaaaaaaaaaaaaaaaaaaa The INVOICE is due bbbbbbbbbbbbbbbbbbbb";
+        assertThat(generator.snippet(content, "invoice")).isEqualTo("...aaaaa The INVOICE is due bb...");
+    }
+
+    @Test
+    void snippetFallsBackToTheStartWithoutAMatch() {
+        assertThat(generator.snippet("short text", "zebra")).isEqualTo("short text");
+        assertThat(generator.snippet("a rather longer piece of text", "zebra")).isEqualTo("a rather longer piec...");
+    }
+
+    @Test
+    void snippetFindsTermsWhenThePhraseIsSplitByPunctuation() {
+        assertThat(generator.snippet("Paid: invoice, process later", "invoice process")).contains("invoice");
+    }
+
+    @Test
+    void highlightsWrapEveryTermAtWordStarts() {
+        String content = "Invoice one. An invoice and its invoices.";
+        assertThat(generator.highlights(content, "invo"))
+                .containsExactly("[Invoice] one. An [invoice]...", "...and its [invoices].");
+    }
+
+    @Test
+    void highlightsDoNotMatchInsideWords() {
+        assertThat(generator.highlights("the voice of the invoice", "voice")).containsExactly("the [voice] of the invoice");
+    }
+
+    @Test
+    void highlightsAreLimitedToMaxFragments() {
+        String content = "cat ".repeat(100);
+        assertThat(generator.highlights(content, "cat")).hasSize(2);
+    }
+
+    @Test
+    void documentTextIsHtmlEscapedInsideAndAroundTheTags() {
+        String content = "<script>alert(1)</script> Tom & Jerry's <b>invoice&co</b>";
+        assertThat(generator.highlights(content, "invoice"))
+                .containsExactly("...Jerry&#39;s &lt;b&gt;[invoice]&amp;co...");
+        assertThat(new SnippetGenerator(20, 2, "[", "]").snippet("a < b & c", "zebra")).isEqualTo("a &lt; b &amp; c");
+        assertThat(generator.snippet(content, "jerry")).doesNotContain("<", ">").contains("Tom &amp; Jerry&#39;s");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.dto.QAResponseDTO;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.repository.DocumentRepository;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// A context of its own, with its own database, configured to compress; closed afterwards
+@SpringBootTest(properties = {"docdemo.storage.content.codec=zstd", "docdemo.storage.chunk.threshold=4KB", "docdemo.storage.chunk.size=1024",
+        "spring.datasource.url=jdbc:h2:mem:compressed_document_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"})
+@ActiveProfiles("test")
+@DirtiesContext
+class CompressedContentStorageTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UploadSpooler uploadSpooler;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @SpyBean
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private ContentStorageMigrator contentStorageMigrator;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Test
+    void compressedStorageIsTransparentAndPlainRowsAreMigrated() throws Exception {
+        while (!searchIndexService.isReady()) {
+            // The startup build must not overwrite the rebuild below
+            Thread.sleep(10);
+        }
+        String text = "Calibration log for the heliostat array, batch seven";
+        // Stored before compression was configured
+        Document plain = new Document();
+        plain.setFilename("heliostat.txt");
+        plain.setContentType("text/plain");
+        plain.setAuthor("storage-tester");
+        plain.setContent(text);
+        Long plainId = documentRepository.save(plain).getId();
+
+        DocumentMetadataDTO compressed;
+        try (SpooledUpload upload = uploadSpooler.spool(new ByteArrayInputStream((text + " and eight").getBytes(StandardCharsets.UTF_8)),
+                "heliostat-2.txt", "text/plain")) {
+            compressed = documentService.ingestDocument(upload, "storage-tester");
+        }
+        Document stored = documentRepository.findById(compressed.getId()).orElseThrow();
+        assertThat(stored.getContent()).isEmpty();
+        assertThat(stored.getContentCodec()).isEqualTo("ZSTD");
+        // Not read with the row
+        assertThat(Hibernate.isPropertyInitialized(stored, "compressedContent")).isFalse();
+        assertThat(documentContentService.contentOf(stored)).isEqualTo(text + " and eight");
+
+        assertThat(contentStorageMigrator.migrate()).isEqualTo(1);
+        Document migrated = documentRepository.findById(plainId).orElseThrow();
+        assertThat(migrated.getContentCodec()).isEqualTo("ZSTD");
+        assertThat(migrated.getContent()).isEmpty();
+        searchIndexService.rebuild();
+        Page<QAResponseDTO> hits = documentService.searchDocumentsByKeyword("heliostat", PageRequest.of(0, 10));
+        assertThat(hits.getContent()).extracting(QAResponseDTO::getSnippet).contains(text, text + " and eight");
+    }
+
+    @Test
+    void compressedChunksAreIndexedFromTheSpoolAndOnlyMatchingOnesAreReadForSnippets() throws Exception {
+        while (!searchIndexService.isReady()) {
+            Thread.sleep(10);
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i++) text.append("Routine pump inspection ").append(i).append(". ");
+        text.append("The narwhal tank filter was replaced. ");
+        for (int i = 300; i < 600; i++) text.append("Routine pump inspection ").append(i).append(". ");
+
+        DocumentMetadataDTO stored;
+        try (SpooledUpload upload = uploadSpooler.spool(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)),
+                "pumps.txt", "text/plain")) {
+            stored = documentService.ingestDocument(upload, "storage-tester");
+        }
+        Document document = documentRepository.findById(stored.getId()).orElseThrow();
+        assertThat(document.getContentCodec()).isEqualTo("ZSTD");
+        assertThat(document.getChunkCount()).isGreaterThan(10);
+        // Tokenized from the spool, not read back from document_chunks
+        verify(documentContentService, never()).chunks(any());
+        verify(documentContentService, never()).readChunk(any(), anyInt());
+
+        Page<QAResponseDTO> hits = documentService.searchDocumentsByKeyword("narwhal", PageRequest.of(0, 10));
+        assertThat(hits.getContent()).extracting(QAResponseDTO::getDocumentId).containsExactly(stored.getId());
+        assertThat(hits.getContent().get(0).getSnippet()).contains("narwhal tank filter");
+        // Only the chunk the index places the word in is decompressed
+        verify(documentContentService, times(1)).readChunk(any(), anyInt());
+    }
+}
@@ -0,0 +1,541 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.dto.CursorPageDTO;
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import com.example.docDemo.dto.FacetsDTO;
+import com.example.docDemo.dto.QAResponseDTO;
+import com.example.docDemo.entity.Document;
+import com.example.docDemo.exception.CustomExceptions;
+import com.example.docDemo.repository.DocumentCursor;
+import com.example.docDemo.repository.DocumentRepository;
+import com.example.docDemo.storage.ContentCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DocumentServiceTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UploadSpooler uploadSpooler;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private ContentStorageMigrator contentStorageMigrator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private DocumentExportService documentExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MetadataBackfill metadataBackfill;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FacetService facetService;
+
+    @Autowired
+    private GroupCommitter groupCommitter;
+
+    @SpyBean
+    private TextExtractionService textExtractionService;
+
+    @Test
+    void reUploadOfTheSameFileIsStoredAsDuplicateWithoutExtraction() throws Exception {
+        String text = "Quarterly reconciliation memo for the zebrafish project";
+        DocumentMetadataDTO first = ingest("memo.txt", text, "alice");
+        DocumentMetadataDTO second = ingest("memo-copy.txt", text, "bob");
+
+        verify(textExtractionService, times(1)).extractText(any(), anyString(), anyString(), anyString());
+        Document original = documentRepository.findById(first.getId()).orElseThrow();
+        Document duplicate = documentRepository.findById(second.getId()).orElseThrow();
+        assertThat(original.getContent()).isEqualTo(text);
+        assertThat(original.getContentHash()).hasSize(64);
+        assertThat(duplicate.getContent()).isEmpty();
+        assertThat(duplicate.getContentHash()).isNull();
+        assertThat(duplicate.getDuplicateOfId()).isEqualTo(original.getId());
+        assertThat(duplicate.getAuthor()).isEqualTo("bob");
+
+        Page<QAResponseDTO> hits = documentService.searchDocumentsByKeyword("zebrafish", PageRequest.of(0, 10));
+        Page<Document> scanned = documentRepository.searchByKeyword("zebrafish", PageRequest.of(0, 10));
+        assertThat(scanned.getContent()).extracting(Document::getId).contains(first.getId(), second.getId());
+        assertThat(hits.getContent()).extracting(QAResponseDTO::getDocumentId).contains(first.getId(), second.getId());
+        assertThat(hits.getContent()).allSatisfy(hit -> assertThat(hit.getSnippet()).contains("zebrafish"));
+    }
+
+    @Test
+    void cursorPagesWalkAllMatchesInUploadOrder() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(ingest("kestrel-" + i + ".txt", "Field notes on the kestrel, entry " + i, "cursor-tester").getId());
+        }
+
+        List<Long> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageDTO<DocumentMetadataDTO> page = documentService.scrollDocuments("cursor-tester", null, null, null, cursor, 2, Sort.Direction.DESC);
+            page.getContent().forEach(doc -> listed.add(doc.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        List<Long> newestFirst = new ArrayList<>(ids);
+        Collections.reverse(newestFirst);
+        assertThat(listed).containsExactlyElementsOf(newestFirst);
+
+        List<Long> searched = new ArrayList<>();
+        cursor = null;
+        do {
+            CursorPageDTO<QAResponseDTO> page = documentService.scrollSearch("kestrel", cursor, 2, Sort.Direction.ASC);
+            page.getContent().forEach(hit -> searched.add(hit.getDocumentId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertThat(searched).containsExactlyElementsOf(ids);
+
+        // SQL fallback used while the index is not built
+        DocumentCursor afterSecond = new DocumentCursor(documentRepository.findById(ids.get(1)).orElseThrow().getUploadTimestamp(), ids.get(1));
+        assertThat(documentRepository.searchByKeywordAfter("KESTREL", afterSecond.uploadTimestamp(), afterSecond.id(), 10))
+                .extracting(Document::getId).containsExactlyElementsOf(ids.subList(2, 5));
+        assertThat(documentRepository.searchByKeywordBefore("kestrel", afterSecond.uploadTimestamp(), afterSecond.id(), 10))
+                .extracting(Document::getId).containsExactly(ids.get(0));
+    }
+
+    @Test
+    void indexScrollAndSearchFollowUploadTimestampsWhereIdsDoNot() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(ingest("merlin-" + i + ".txt", "Merlin roost survey, visit " + i, "cursor-tester").getId());
+        }
+        // Backfilled: the higher the ID, the earlier the upload
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("UPDATE files SET upload_timestamp = ? WHERE id = ?", today.minusDays(i), ids.get(i));
+        }
+        searchIndexService.rebuild();
+        List<Long> uploadOrder = List.of(ids.get(2), ids.get(1), ids.get(0));
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<Long> scrolled = new ArrayList<>();
+            String cursor = null;
+            do {
+                CursorPageDTO<QAResponseDTO> page = documentService.scrollSearch("merlin", cursor, 1, direction);
+                page.getContent().forEach(hit -> scrolled.add(hit.getDocumentId()));
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            List<Long> expected = new ArrayList<>(uploadOrder);
+            if (direction.isDescending()) Collections.reverse(expected);
+            assertThat(scrolled).as(direction.name()).containsExactlyElementsOf(expected);
+        }
+        Page<QAResponseDTO> searched = documentService.searchDocumentsByKeyword("merlin", PageRequest.of(0, 10, Sort.by("uploadTimestamp", "id")));
+        assertThat(searched.getContent()).extracting(QAResponseDTO::getDocumentId).containsExactlyElementsOf(uploadOrder);
+        // Same order as the SQL fallback
+        assertThat(documentRepository.searchByKeywordAfter("merlin", LocalDate.of(1, 1, 1), Long.MIN_VALUE, 10))
+                .extracting(Document::getId).containsExactlyElementsOf(uploadOrder);
+    }
+
+    @Test
+    void compressedRowsAreReadLazilyAndMigratedBackToPlainText() throws Exception {
+        // Compressed under an earlier codec setting; this context stores plain text
+        String text = "Calibration log for the heliostat array, batch seven";
+        Document compressed = new Document();
+        compressed.setFilename("heliostat.txt");
+        compressed.setContentType("text/plain");
+        compressed.setAuthor("storage-tester");
+        compressed.setContent("");
+        compressed.setCompressedContent(ContentCodec.ZSTD.encode(text, 3));
+        compressed.setContentCodec(ContentCodec.ZSTD.name());
+        Long id = documentRepository.save(compressed).getId();
+
+        Document loaded = documentRepository.findById(id).orElseThrow();
+        assertThat(Hibernate.isPropertyInitialized(loaded, "compressedContent")).isFalse();
+        assertThat(documentContentService.contentOf(loaded)).isEqualTo(text);
+
+        assertThat(contentStorageMigrator.migrate()).isGreaterThanOrEqualTo(1);
+        Document restored = documentRepository.findById(id).orElseThrow();
+        assertThat(restored.getContentCodec()).isNull();
+        assertThat(restored.getContent()).isEqualTo(text);
+        assertThat(jdbcTemplate.queryForObject("SELECT compressed_content FROM files WHERE id = ?", byte[].class, id)).isNull();
+    }
+
+    @Test
+    void largeDocumentsAreStoredAndServedInChunks() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 400; i++) text.append("Routine maintenance entry ").append(i).append(". ");
+        text.append("The quokka enclosure gate was repaired. ");
+        for (int i = 400; i < 800; i++) text.append("Routine maintenance entry ").append(i).append(". ");
+
+        ReflectionTestUtils.setField(documentService, "chunkThreshold", DataSize.ofBytes(1));
+        ReflectionTestUtils.setField(documentContentService, "chunkSize", 1024);
+        DocumentMetadataDTO stored;
+        DocumentMetadataDTO copy;
+        try {
+            stored = ingest("maintenance.txt", text.toString(), "chunk-tester");
+            copy = ingest("maintenance-copy.txt", text.toString(), "chunk-tester");
+        } finally {
+            ReflectionTestUtils.setField(documentService, "chunkThreshold", DataSize.ofMegabytes(16));
+            ReflectionTestUtils.setField(documentContentService, "chunkSize", 262144);
+        }
+
+        // Extracted straight into the chunk spool, never built as one String
+        verify(textExtractionService, never()).extractText(any(Path.class), anyString(), anyString(), nullable(String.class));
+        verify(textExtractionService, times(1)).extractText(any(Path.class), anyString(), anyString(), anyString(), any(Writer.class));
+        Document document = documentRepository.findById(stored.getId()).orElseThrow();
+        assertThat(document.getContent()).isEmpty();
+        assertThat(document.getChunkCount()).isGreaterThan(20);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        documentService.writeContent(documentRepository.findById(copy.getId()).orElseThrow(), streamed);
+        assertThat(streamed.toString(StandardCharsets.UTF_8)).isEqualTo(text.toString());
+
+        Page<QAResponseDTO> indexed = documentService.searchDocumentsByKeyword("quokka enclosure", PageRequest.of(0, 10));
+        assertThat(indexed.getContent()).extracting(QAResponseDTO::getDocumentId).containsExactly(stored.getId(), copy.getId());
+        assertThat(indexed.getContent()).allSatisfy(hit -> assertThat(hit.getSnippet()).contains("quokka enclosure gate"));
+        ReflectionTestUtils.setField(searchIndexService, "ready", false);
+        try {
+            Page<QAResponseDTO> scanned = documentService.searchDocumentsByKeyword("quokka", PageRequest.of(0, 10));
+            assertThat(scanned.getContent()).extracting(QAResponseDTO::getDocumentId).containsExactly(stored.getId(), copy.getId());
+        } finally {
+            ReflectionTestUtils.setField(searchIndexService, "ready", true);
+        }
+    }
+
+    @Test
+    void rankedSearchReturnsTheMostRelevantDocumentsFirst() throws Exception {
+        long passing = ingest("ocelot-1.txt", "A survey of wetland birds; an ocelot was seen once.", "rank-tester").getId();
+        long focused = ingest("ocelot-2.txt", "Ocelot tracking report. The ocelot pair and a third ocelot crossed the ridge.", "rank-tester").getId();
+        long other = ingest("ocelot-3.txt", "Margay sightings near the ridge.", "rank-tester").getId();
+
+        Page<QAResponseDTO> ranked = documentService.rankedSearch("ocelot", PageRequest.of(0, 10));
+        assertThat(ranked.getContent()).extracting(QAResponseDTO::getDocumentId).containsExactly(focused, passing);
+        assertThat(documentService.rankedSearch("ocelot OR margay", PageRequest.of(0, 2)).getTotalElements()).isEqualTo(3);
+        assertThat(documentService.rankedSearch("margay", PageRequest.of(0, 10)).getContent())
+                .extracting(QAResponseDTO::getDocumentId).containsExactly(other);
+        assertThat(ranked.getContent()).allSatisfy(hit -> assertThat(hit.getScore()).isPositive());
+        assertThat(ranked.getContent().get(0).getHighlights()).anySatisfy(fragment -> assertThat(fragment).contains("<em>Ocelot</em>"));
+        assertThat(documentService.rankedSearch("\"ocelot pair\" ridge", PageRequest.of(0, 10)).getContent())
+                .extracting(QAResponseDTO::getDocumentId).containsExactly(focused);
+
+        ReflectionTestUtils.setField(searchIndexService, "ready", false);
+        try {
+            assertThatThrownBy(() -> documentService.rankedSearch("ocelot wetland", PageRequest.of(0, 10)))
+                    .isInstanceOf(CustomExceptions.SearchUnavailableException.class);
+        } finally {
+            ReflectionTestUtils.setField(searchIndexService, "ready", true);
+        }
+    }
+
+    @Test
+    void exportStreamsFilteredDocumentsWithFullTextAsNdjson() throws Exception {
+        String large = "Ledger line with a \"quote\" and a tab\t. ".repeat(200);
+        long small = ingest("export-1.txt", "Short export note.", "export-tester").getId();
+        long copy = ingest("export-2.txt", "Short export note.", "export-tester").getId();
+        ingest("other.txt", "Not exported.", "someone-else");
+        ReflectionTestUtils.setField(documentService, "chunkThreshold", DataSize.ofBytes(1));
+        ReflectionTestUtils.setField(documentContentService, "chunkSize", 512);
+        long chunked;
+        try {
+            chunked = ingest("export-3.txt", large, "export-tester").getId();
+        } finally {
+            ReflectionTestUtils.setField(documentService, "chunkThreshold", DataSize.ofMegabytes(16));
+            ReflectionTestUtils.setField(documentContentService, "chunkSize", 262144);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Two rows per keyset batch, so the export spans batches
+        ReflectionTestUtils.setField(documentExportService, "fetchSize", 2);
+        try {
+            documentExportService.exportNdjson("export-tester", null, null, null, out);
+        } finally {
+            ReflectionTestUtils.setField(documentExportService, "fetchSize", 500);
+        }
+        List<JsonNode> lines = out.toString(StandardCharsets.UTF_8).lines().map(line -> {
+            try {
+                return objectMapper.readTree(line);
+            } catch (Exception e) {
+                throw new AssertionError("Not a JSON line: " + line, e);
+            }
+        }).toList();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).endsWith("}\n");
+        assertThat(lines).extracting(line -> line.get("id").asLong()).containsExactly(small, copy, chunked);
+        assertThat(lines.get(0).get("content").asText()).isEqualTo("Short export note.");
+        assertThat(lines.get(1).get("duplicateOfId").asLong()).isEqualTo(small);
+        assertThat(lines.get(1).get("content").asText()).isEqualTo("Short export note.");
+        assertThat(lines.get(2).get("content").asText()).isEqualTo(large);
+        assertThat(lines.get(2).get("author").asText()).isEqualTo("export-tester");
+    }
+
+    @Test
+    void unchangedFilesAreExtractedOnceThenServedFromTheExtractionCache() throws Exception {
+        String html = "<html><body><h1>Cache probe " + UUID.randomUUID() + "</h1>" + "<p>Body text.</p>".repeat(50) + "</body></html>";
+        double hits = meterRegistry.counter("docdemo.extraction.cache.requests", "result", "hit").count();
+        double misses = meterRegistry.counter("docdemo.extraction.cache.requests", "result", "miss").count();
+
+        try (SpooledUpload upload = uploadSpooler.spool(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), "probe.html", "text/html")) {
+            String parsed = textExtractionService.extractText(upload.getPath(), "probe.html", "text/html", upload.getContentHash());
+            assertThat(parsed).startsWith("Cache probe").contains("Body text.");
+            assertThat(textExtractionService.extractText(upload.getPath(), "probe.html", "text/html", upload.getContentHash())).isEqualTo(parsed);
+            StringWriter streamed = new StringWriter();
+            textExtractionService.extractText(upload.getPath(), "probe.html", "text/html", upload.getContentHash(), streamed);
+            assertThat(streamed.toString()).isEqualTo(parsed);
+        }
+
+        assertThat(meterRegistry.counter("docdemo.extraction.cache.requests", "result", "miss").count()).isEqualTo(misses + 1);
+        assertThat(meterRegistry.counter("docdemo.extraction.cache.requests", "result", "hit").count()).isEqualTo(hits + 2);
+        // Plain text skips the cache: decoding it again is cheaper than reading it back
+        try (SpooledUpload upload = uploadSpooler.spool(new ByteArrayInputStream("Plain probe.".getBytes(StandardCharsets.UTF_8)), "probe.txt", "text/plain")) {
+            textExtractionService.extractText(upload.getPath(), "probe.txt", "text/plain", upload.getContentHash());
+        }
+        assertThat(meterRegistry.counter("docdemo.extraction.cache.requests", "result", "miss").count()).isEqualTo(misses + 1);
+    }
+
+    @Test
+    void sqlFallbackSortsByUploadTimestamp() throws Exception {
+        DocumentMetadataDTO first = ingest("lichen-1.txt", "Lichen growth on the north wall", "sort-tester");
+        DocumentMetadataDTO second = ingest("lichen-2.txt", "Lichen growth on the south wall", "sort-tester");
+        ReflectionTestUtils.setField(searchIndexService, "ready", false);
+        try {
+            Page<QAResponseDTO> hits = documentService.searchDocumentsByKeyword("lichen", PageRequest.of(0, 10, Sort.by("uploadTimestamp", "id")));
+            assertThat(hits.getContent()).extracting(QAResponseDTO::getDocumentId).containsExactly(first.getId(), second.getId());
+        } finally {
+            ReflectionTestUtils.setField(searchIndexService, "ready", true);
+        }
+    }
+
+    @Test
+    void ingestionAndSearchStagesAreTimed() throws Exception {
+        ingest("osprey.txt", "Nesting survey of the osprey platform", "metrics-tester");
+        documentService.searchDocumentsByKeyword("osprey", PageRequest.of(0, 10));
+
+        assertThat(meterRegistry.get(PipelineMetrics.EXTRACT).tags("content_type", "text/plain", "outcome", "success").timer().count()).isPositive();
+        assertThat(meterRegistry.get(PipelineMetrics.SAVE).tag("mode", "single").timer().count()).isPositive();
+        assertThat(meterRegistry.get(PipelineMetrics.SEARCH).tag("operation", "search").timer().count()).isPositive();
+        assertThat(meterRegistry.get(PipelineMetrics.SNIPPETS).timer().count()).isPositive();
+        assertThat(meterRegistry.get("executor.queued").tag("name", "ingestionExecutor").gauge()).isNotNull();
+    }
+
+    @Test
+    void metadataFiltersMatchNormalizedValuesExactlyOrByPrefixWithinADateRange() throws Exception {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        long heron = ingest("heron.txt", "Wading bird survey: grey heron", "  " + tag + "-Grey-Heron ").getId();
+        long egret = ingest("egret.txt", "Wading bird survey: little egret", tag + "-grey-egret").getId();
+        LocalDate today = LocalDate.now();
+
+        assertThat(listedIds(tag.toUpperCase() + "-GREY-HERON", null, null, null)).containsExactly(heron);
+        assertThat(listedIds(tag + "-grey-*", "TEXT/*", null, null)).containsExactlyInAnyOrder(heron, egret);
+        assertThat(listedIds(tag + "-grey-*", "text/plain; charset=UTF-8", today, today)).containsExactlyInAnyOrder(heron, egret);
+        // Substrings no longer match, and the range bounds are inclusive
+        assertThat(listedIds("heron", null, null, null)).doesNotContain(heron);
+        assertThat(listedIds(tag + "-grey-*", null, null, today.minusDays(1))).isEmpty();
+        assertThat(listedIds(tag + "-grey-*", "application/*", null, null)).isEmpty();
+    }
+
+    @Test
+    void rowsStoredBeforeNormalizationAreBackfilled() throws Exception {
+        long id = ingest("legacy.txt", "Stored before the normalized columns existed", "Legacy Author").getId();
+        jdbcTemplate.update("UPDATE files SET author_normalized = NULL, content_type_normalized = NULL WHERE id = ?", id);
+
+        assertThat(metadataBackfill.backfill()).isPositive();
+        Document backfilled = documentRepository.findById(id).orElseThrow();
+        assertThat(backfilled.getAuthorNormalized()).isEqualTo("legacy author");
+        assertThat(backfilled.getContentTypeNormalized()).isEqualTo("text/plain");
+        assertThat(listedIds("legacy author", "text/plain", null, null)).contains(id);
+    }
+
+    @Test
+    void facetsCountIngestedDocumentsAndMatchARebuild() throws Exception {
+        facetService.rebuild();
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        ingest("lapwing.txt", "Lapwing nest counts", tag + "-Lapwing");
+        ingest("lapwing-2.txt", "More lapwing nest counts", tag + "-lapwing");
+        ingest("curlew.txt", "Curlew sightings", tag + "-Curlew");
+
+        FacetsDTO facets = facetService.facets(tag + "-lapwing", "TEXT/PLAIN", LocalDate.now(), null, 10);
+        assertThat(facets.getTotal()).isEqualTo(2);
+        assertThat(facets.getContentTypes()).contains(new FacetsDTO.FacetCount("text/plain", 2));
+        assertThat(facets.getUploadDays()).containsExactly(new FacetsDTO.FacetCount(LocalDate.now().toString(), 2));
+        FacetsDTO byPrefix = facetService.facets(tag + "*", null, null, null, 10);
+        assertThat(byPrefix.getTotal()).isEqualTo(3);
+
+        facetService.rebuild();
+        assertThat(facetService.facets(tag + "*", null, null, null, 10)).isEqualTo(byPrefix);
+    }
+
+    @Test
+    void concurrentUploadsAreCommittedTogetherAndDuplicatesFailAlone() throws Exception {
+        // A longer wait than the default, so that every upload lands in one micro-batch
+        Duration maxWait = (Duration) ReflectionTestUtils.getField(groupCommitter, "maxWait");
+        ReflectionTestUtils.setField(groupCommitter, "maxWait", Duration.ofMillis(500));
+        String tag = UUID.randomUUID().toString();
+        int texts = 4;
+        ExecutorService uploaders = Executors.newFixedThreadPool(texts * 2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<DocumentMetadataDTO>> uploads = new ArrayList<>();
+            for (int i = 0; i < texts * 2; i++) {
+                String text = "Dunlin roost count " + (i % texts) + " " + tag;
+                String filename = "dunlin-" + i + ".txt";
+                uploads.add(uploaders.submit(() -> {
+                    start.await();
+                    return ingest(filename, text, "ringer");
+                }));
+            }
+            start.countDown();
+            List<Document> stored = new ArrayList<>();
+            for (Future<DocumentMetadataDTO> upload : uploads) {
+                stored.add(documentRepository.findById(upload.get(30, TimeUnit.SECONDS).getId()).orElseThrow());
+            }
+
+            // Each identical pair is stored once, plus a duplicate of it
+            assertThat(stored).filteredOn(document -> document.getDuplicateOfId() == null).hasSize(texts);
+            assertThat(stored).filteredOn(document -> document.getDuplicateOfId() != null).hasSize(texts);
+            assertThat(meterRegistry.get(PipelineMetrics.COMMIT_BATCH).summary().max()).isGreaterThan(1);
+        } finally {
+            uploaders.shutdownNow();
+            ReflectionTestUtils.setField(groupCommitter, "maxWait", maxWait);
+        }
+    }
+
+    @Test
+    void committerFailuresFailTheirCallersAndCommitsTimeOutInsteadOfHanging() throws Exception {
+        // An Error escaping a micro-batch reaches its caller and leaves the committer running
+        assertThatThrownBy(() -> groupCommitter.commit(new Document(), document -> {
+            throw new StackOverflowError("committer probe");
+        })).isInstanceOf(StackOverflowError.class);
+        assertThat(ingest("after-error.txt", "Stored after the committer failed", "commit-tester").getId()).isNotNull();
+
+        Duration timeout = (Duration) ReflectionTestUtils.getField(groupCommitter, "timeout");
+        ReflectionTestUtils.setField(groupCommitter, "timeout", Duration.ofMillis(300));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertThatThrownBy(() -> groupCommitter.commit(new Document(), document -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("stalled commit");
+            })).isInstanceOf(CustomExceptions.IngestionCommitTimeoutException.class).hasMessageContaining("may still be stored");
+            // Queued behind the stalled batch, so withdrawn before any committer took it
+            assertThatThrownBy(() -> groupCommitter.commit(new Document(), document -> {
+                throw new AssertionError("a withdrawn document was committed");
+            })).isInstanceOf(CustomExceptions.IngestionCommitTimeoutException.class).hasMessageContaining("it was not stored");
+        } finally {
+            release.countDown();
+            ReflectionTestUtils.setField(groupCommitter, "timeout", timeout);
+        }
+        assertThat(ingest("after-timeout.txt", "Stored after the stalled commit", "commit-tester").getId()).isNotNull();
+    }
+
+    @Test
+    void aDocumentWhoseAfterCommitWorkFailsDoesNotKeepTheRestOfItsBatchOutOfTheIndex() throws Exception {
+        Duration maxWait = (Duration) ReflectionTestUtils.getField(groupCommitter, "maxWait");
+        ReflectionTestUtils.setField(groupCommitter, "maxWait", Duration.ofMillis(500));
+        String tag = "kittiwake" + UUID.randomUUID().toString().replace("-", "");
+        ExecutorService uploaders = Executors.newFixedThreadPool(4);
+        try {
+            Document poisoned = new Document();
+            poisoned.setFilename("poisoned.txt");
+            poisoned.setContentType("text/plain");
+            poisoned.setAuthor("hook-tester");
+            poisoned.setContent("");
+            // First into the batch, so its failing hook runs before everyone else's
+            Future<Document> failing = uploaders.submit(() -> groupCommitter.commit(poisoned, document -> {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        throw new IllegalStateException("after-commit probe");
+                    }
+                });
+                return documentRepository.save(document);
+            }));
+            Thread.sleep(100);
+            List<Future<DocumentMetadataDTO>> uploads = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String text = "Cliff ledge count " + i + " " + tag;
+                String filename = "ledge-" + i + ".txt";
+                uploads.add(uploaders.submit(() -> ingest(filename, text, "hook-tester")));
+            }
+            List<Long> stored = new ArrayList<>();
+            for (Future<DocumentMetadataDTO> upload : uploads) {
+                stored.add(upload.get(30, TimeUnit.SECONDS).getId());
+            }
+
+            assertThatThrownBy(() -> failing.get(30, TimeUnit.SECONDS)).hasRootCauseMessage("after-commit probe");
+            assertThat(meterRegistry.get(PipelineMetrics.COMMIT_BATCH).summary().max()).isGreaterThan(1);
+            assertThat(documentService.searchDocumentsByKeyword(tag, PageRequest.of(0, 10)).getContent())
+                    .extracting(QAResponseDTO::getDocumentId).containsExactlyInAnyOrderElementsOf(stored);
+        } finally {
+            uploaders.shutdownNow();
+            ReflectionTestUtils.setField(groupCommitter, "maxWait", maxWait);
+        }
+    }
+
+    private List<Long> listedIds(String author, String contentType, LocalDate from, LocalDate to) {
+        return documentService.findDocuments(author, contentType, from, to, PageRequest.of(0, 50)).getContent().stream()
+                .map(DocumentMetadataDTO::getId).toList();
+    }
+
+    private DocumentMetadataDTO ingest(String filename, String text, String author) throws Exception {
+        try (SpooledUpload upload = uploadSpooler.spool(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), filename, "text/plain")) {
+            return documentService.ingestDocument(upload, author);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.docDemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExtractionCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void servesCommittedEntriesAndCountsHitsAndMisses() throws Exception {
+        ExtractionCache cache = cache(DataSize.ofMegabytes(1));
+        String text = "Extracted text, with ünïcode and 😀. ".repeat(100);
+
+        assertThat(cache.get("abc-pdf-1")).isNull();
+        cache.put("abc-pdf-1", text);
+        ExtractionCache.Entry aborted = cache.newEntry("def-pdf-1");
+        aborted.write("half an extraction");
+        aborted.abort();
+        StringWriter copied = new StringWriter();
+
+        assertThat(cache.get("abc-pdf-1")).isEqualTo(text);
+        assertThat(cache.copyTo("abc-pdf-1", copied)).isTrue();
+        assertThat(copied.toString()).isEqualTo(text);
+        assertThat(cache.get("def-pdf-1")).isNull();
+        assertThat(cache.hitRatio()).isEqualTo(0.5);
+        // Compressed on disk, and no temp files left behind
+        assertThat(cache.sizeInBytes()).isLessThan(text.length());
+        try (var files = Files.list(directory)) {
+            assertThat(files).extracting(file -> file.getFileName().toString()).containsExactly("abc-pdf-1.lz4");
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesAndKeepsOrderAcrossRestarts() throws Exception {
+        ExtractionCache cache = cache(DataSize.ofBytes(Long.MAX_VALUE));
+        for (int i = 0; i < 4; i++) {
+            cache.put("doc" + i + "-txt-1", i + " " + "lorem ipsum dolor ".repeat(50));
+            Files.setLastModifiedTime(directory.resolve("doc" + i + "-txt-1.lz4"), FileTime.fromMillis(1_000_000L * (i + 1)));
+        }
+        long entrySize = cache.sizeInBytes() / 4;
+
+        // Reloaded from disk with room for three: the oldest by modification time goes
+        ExtractionCache reloaded = cache(DataSize.ofBytes(entrySize * 3 + entrySize / 2));
+        assertThat(reloaded.entryCount()).isEqualTo(3);
+        assertThat(reloaded.get("doc0-txt-1")).isNull();
+
+        // Reading doc1 makes doc2 the least recently used
+        assertThat(reloaded.get("doc1-txt-1")).startsWith("1 lorem");
+        reloaded.put("doc4-txt-1", "4 " + "lorem ipsum dolor ".repeat(50));
+        assertThat(reloaded.get("doc2-txt-1")).isNull();
+        assertThat(reloaded.get("doc1-txt-1")).isNotNull();
+        assertThat(reloaded.get("doc3-txt-1")).isNotNull();
+        assertThat(Files.exists(directory.resolve("doc2-txt-1.lz4"))).isFalse();
+    }
+
+    @Test
+    void damagedEntriesAreDroppedAsMissesBeforeAnythingIsCopied() throws Exception {
+        ExtractionCache cache = cache(DataSize.ofMegabytes(1));
+        String text = "Page text of a long report. ".repeat(2000);
+        cache.put("cut-pdf-1", text);
+        cache.put("flipped-pdf-1", text);
+        cache.put("read-pdf-1", text);
+        Path cut = directory.resolve("cut-pdf-1.lz4");
+        Path flipped = directory.resolve("flipped-pdf-1.lz4");
+        Path read = directory.resolve("read-pdf-1.lz4");
+        byte[] bytes = Files.readAllBytes(cut);
+        Files.write(cut, Arrays.copyOf(bytes, bytes.length / 2));
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(flipped, bytes);
+        Files.write(read, bytes);
+
+        for (String key : new String[]{"cut-pdf-1", "flipped-pdf-1"}) {
+            StringWriter copied = new StringWriter();
+            assertThat(cache.copyTo(key, copied)).isFalse();
+            assertThat(copied.toString()).isEmpty();
+            assertThat(cache.get(key)).isNull();
+        }
+        // Without a copyTo first, get() catches the damage while decoding
+        assertThat(cache.get("read-pdf-1")).isNull();
+        assertThat(cache.entryCount()).isZero();
+        assertThat(Files.exists(read)).isFalse();
+        // Deleted, so a restart does not load them again
+        assertThat(Files.exists(cut)).isFalse();
+        assertThat(Files.exists(flipped)).isFalse();
+
+        cache.put("cut-pdf-1", text);
+        assertThat(cache.get("cut-pdf-1")).isEqualTo(text);
+    }
+
+    private ExtractionCache cache(DataSize maxSize) throws Exception {
+        ExtractionCache cache = new ExtractionCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "cacheDir", directory.toString());
+        ReflectionTestUtils.setField(cache, "maxSize", maxSize);
+        cache.afterPropertiesSet();
+        return cache;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.extraction.ExtractorRegistry;
+import com.example.docDemo.extraction.PdfExtractor;
+import com.example.docDemo.extraction.TxtExtractor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.convert.support.ConfigurableConversionService;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestionSchedulerTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final ExtractorRegistry registry = new ExtractorRegistry();
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final IngestionScheduler scheduler = new IngestionScheduler();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    IngestionSchedulerTest() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("docdemo.extraction.default.threads", "1")
+                .withProperty("docdemo.ingestion.scheduler.throughput.pdf", "1MB");
+        environment.setConversionService((ConfigurableConversionService) ApplicationConversionService.getSharedInstance());
+        ReflectionTestUtils.setField(registry, "extractors", List.of(new TxtExtractor(), new PdfExtractor()));
+        ReflectionTestUtils.setField(registry, "environment", environment);
+        ReflectionTestUtils.setField(registry, "meterRegistry", meters);
+        registry.afterPropertiesSet();
+
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+
+        PipelineMetrics metrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", meters);
+        ReflectionTestUtils.setField(scheduler, "extractorRegistry", registry);
+        ReflectionTestUtils.setField(scheduler, "environment", environment);
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", meters);
+        ReflectionTestUtils.setField(scheduler, "metrics", metrics);
+        ReflectionTestUtils.setField(scheduler, "ingestionExecutor", executor);
+        ReflectionTestUtils.setField(scheduler, "fastLaneMaxEstimate", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(scheduler, "fastWeight", 4);
+        ReflectionTestUtils.setField(scheduler, "bulkWeight", 1);
+        ReflectionTestUtils.setField(scheduler, "fastQueueCapacity", 20);
+        ReflectionTestUtils.setField(scheduler, "bulkQueueCapacity", 2);
+        ReflectionTestUtils.setField(scheduler, "fastLaneReserved", 1);
+        ReflectionTestUtils.setField(scheduler, "heapHighWater", 0.85);
+        ReflectionTestUtils.setField(scheduler, "heapUsage", (DoubleSupplier) () -> 0.5);
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdown();
+        registry.destroy();
+    }
+
+    @Test
+    void estimatesCostFromSizeAndContentType() {
+        start(2, 2);
+        // Jobs never finish here, so the configured throughputs are not replaced by observed ones
+        Runnable work = () -> await(release);
+        assertThat(scheduler.submit(upload("small.pdf", "application/pdf", DataSize.ofKilobytes(200)), work))
+                .isEqualTo(IngestionScheduler.Lane.FAST);
+        assertThat(scheduler.submit(upload("notes.txt", "text/plain", DataSize.ofMegabytes(5)), work))
+                .isEqualTo(IngestionScheduler.Lane.FAST);
+        assertThat(scheduler.submit(upload("scan.pdf", "application/pdf", DataSize.ofMegabytes(50)), work))
+                .isEqualTo(IngestionScheduler.Lane.BULK);
+        assertThat(scheduler.estimate("application/pdf", DataSize.ofMegabytes(50).toBytes())).isEqualTo(50.0);
+    }
+
+    @Test
+    void smallJobsOvertakeQueuedBulkJobs() throws Exception {
+        start(2, 2);
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        Runnable bulk = () -> {
+            bulkStarted.countDown();
+            await(release);
+        };
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit(upload("scan-" + i + ".pdf", "application/pdf", DataSize.ofMegabytes(50)), bulk);
+        }
+        assertThat(bulkStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // One bulk job runs, the other two wait, and the second slot is kept for the fast lane
+        CountDownLatch fastDone = new CountDownLatch(1);
+        scheduler.submit(upload("notes.txt", "text/plain", DataSize.ofKilobytes(4)), fastDone::countDown);
+        assertThat(fastDone.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(scheduler.running(IngestionScheduler.Lane.BULK)).isEqualTo(1);
+        assertThat(scheduler.queued(IngestionScheduler.Lane.BULK)).isEqualTo(2);
+        assertThat(meters.get("docdemo.ingestion.lane.queued").tag("lane", "bulk").gauge().value()).isEqualTo(2);
+        assertThat(meters.get(PipelineMetrics.LANE_WAIT).tag("lane", "fast").timer().count()).isEqualTo(1);
+
+        assertThatThrownBy(() -> scheduler.submit(upload("more.pdf", "application/pdf", DataSize.ofMegabytes(50)), bulk))
+                .isInstanceOf(TaskRejectedException.class);
+    }
+
+    @Test
+    void concurrencyClimbsWhileJobsWaitAndHalvesUnderHeapPressure() {
+        start(1, 8);
+        int initial = scheduler.concurrencyLimit();
+        for (int i = 0; i < 20; i++) {
+            scheduler.submit(upload("notes-" + i + ".txt", "text/plain", DataSize.ofKilobytes(4)), () -> await(release));
+        }
+        scheduler.adjustConcurrency();
+        assertThat(scheduler.concurrencyLimit()).isEqualTo(Math.min(initial + 1, 8));
+
+        ReflectionTestUtils.setField(scheduler, "heapUsage", (DoubleSupplier) () -> 0.95);
+        int beforePressure = scheduler.concurrencyLimit();
+        scheduler.adjustConcurrency();
+        assertThat(scheduler.concurrencyLimit()).isEqualTo(Math.max(1, beforePressure / 2));
+    }
+
+    private void start(int minConcurrency, int maxConcurrency) {
+        ReflectionTestUtils.setField(scheduler, "minConcurrency", minConcurrency);
+        ReflectionTestUtils.setField(scheduler, "maxConcurrency", maxConcurrency);
+        scheduler.afterPropertiesSet();
+    }
+
+    private static SpooledUpload upload(String filename, String contentType, DataSize size) {
+        return new SpooledUpload(Path.of("unused", filename), filename, contentType, size.toBytes(), "hash");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
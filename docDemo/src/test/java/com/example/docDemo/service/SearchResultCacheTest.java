@@ -0,0 +1,57 @@
+package com.example.docDemo.service;
+
+import com.example.docDemo.dto.DocumentMetadataDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final SearchResultCache cache = new SearchResultCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    SearchResultCacheTest() {
+        ReflectionTestUtils.setField(cache, "meterRegistry", meters);
+        ReflectionTestUtils.setField(cache, "readYourWrites", new ReadYourWrites());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxWeightBytes", 1024L * 1024);
+        ReflectionTestUtils.setField(cache, "expireAfterWrite", Duration.ofMinutes(10));
+        cache.afterPropertiesSet();
+    }
+
+    @Test
+    void servesRepeatedQueriesFromCacheUntilDocumentsChange() {
+        PageRequest page = PageRequest.of(0, 10);
+        Page<DocumentMetadataDTO> first = load(SearchResultCache.normalize("Invoice"), page);
+        Page<DocumentMetadataDTO> second = load(SearchResultCache.normalize("INVOICE"), page);
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        load("invoice", PageRequest.of(1, 10));
+        assertThat(loads).hasValue(2);
+
+        cache.documentsChanged();
+        assertThat(load("invoice", page)).isNotSameAs(first);
+        assertThat(loads).hasValue(3);
+
+        assertThat(meters.get("cache.gets").tags("cache", "documentResults", "result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meters.get("cache.gets").tags("cache", "documentResults", "result", "miss").functionCounter().count()).isEqualTo(3);
+    }
+
+    private Page<DocumentMetadataDTO> load(String query, PageRequest page) {
+        return cache.get(cache.key("search", page, query), () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(List.of(new DocumentMetadataDTO(1L, "a.txt", "text/plain", "alice", null)), page, 1);
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.docDemo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadSpoolerTest {
+
+    private static final long FILE_SIZE = 50L * 1024 * 1024;
+    private static final int CONCURRENT_UPLOADS = 4;
+
+    private final UploadSpooler spooler = new UploadSpooler();
+
+    @Test
+    void heapAllocatedPerUploadDoesNotGrowWithFileSize() throws Exception {
+        ReflectionTestUtils.setField(spooler, "spoolDir", "");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENT_UPLOADS);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_UPLOADS; i++) {
+                results.add(pool.submit(() -> {
+                    long before = threads.getCurrentThreadAllocatedBytes();
+                    try (SpooledUpload upload = spooler.spool(new PatternInputStream(FILE_SIZE), "big.txt", "text/plain")) {
+                        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+                        return new long[]{allocated, upload.getSize(), Files.size(upload.getPath())};
+                    }
+                }));
+            }
+            for (Future<long[]> result : results) {
+                long[] measured = result.get();
+                // A 50 MB copy through the spooler should only cost its fixed buffer and bookkeeping
+                assertThat(measured[0]).isLessThan(2L * 1024 * 1024);
+                assertThat(measured[1]).isEqualTo(FILE_SIZE);
+                assertThat(measured[2]).isEqualTo(FILE_SIZE);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void closingDeletesTheSpooledFile() throws Exception {
+        ReflectionTestUtils.setField(spooler, "spoolDir", "");
+        SpooledUpload upload = spooler.spool(new PatternInputStream(1024), "small.txt", "text/plain");
+        assertThat(upload.getPath()).exists();
+        upload.close();
+        assertThat(upload.getPath()).doesNotExist();
+    }
+
+    @Test
+    void computesSha256OfTheUploadedBytes() throws Exception {
+        ReflectionTestUtils.setField(spooler, "spoolDir", "");
+        try (SpooledUpload upload = spooler.spool(new ByteArrayInputStream("abc".getBytes(StandardCharsets.US_ASCII)), "abc.txt", "text/plain")) {
+            assertThat(upload.getContentHash()).isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        }
+    }
+
+    /** Produces {@code size} bytes without holding them in memory. */
+    private static final class PatternInputStream extends InputStream {
+
+        private long remaining;
+
+        PatternInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining == 0) return -1;
+            remaining--;
+            return 'a' + (int) (remaining % 26);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (remaining == 0) return -1;
+            int count = (int) Math.min(length, remaining);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) ('a' + (int) ((remaining - i) % 26));
+            }
+            remaining -= count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.docDemo.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkedTextSpoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void cutsTextIntoBoundedChunksAtWhitespace() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) text.append("word").append(i).append(' ');
+        List<String> chunks = new ArrayList<>();
+
+        ChunkedTextSpool spool = new ChunkedTextSpool(tempDir, 256);
+        try (spool) {
+            // Written in odd-sized pieces, as extractors do
+            for (int i = 0; i < text.length(); i += 37) {
+                spool.write(text.toString(), i, Math.min(37, text.length() - i));
+            }
+        }
+        spool.forEachChunk((index, chunk) -> chunks.add(chunk));
+        spool.discard();
+
+        assertThat(String.join("", chunks)).isEqualTo(text.toString());
+        assertThat(spool.chunkCount()).isEqualTo(chunks.size()).isGreaterThan(10);
+        assertThat(spool.length()).isEqualTo(text.length());
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(256));
+        assertThat(chunks.subList(0, chunks.size() - 1)).allSatisfy(chunk -> assertThat(chunk).endsWith(" "));
+        assertThat(tempDir).isEmptyDirectory();
+    }
+
+    @Test
+    void hardCutsNeverSplitASurrogatePair() throws Exception {
+        String text = "a" + "😀".repeat(300);
+        List<String> chunks = new ArrayList<>();
+
+        ChunkedTextSpool spool = new ChunkedTextSpool(tempDir, 64);
+        try (spool) {
+            spool.write(text);
+        }
+        spool.forEachChunk((index, chunk) -> chunks.add(chunk));
+        spool.discard();
+
+        assertThat(String.join("", chunks)).isEqualTo(text);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1))).isFalse());
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.docDemo.storage;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentCodecTest {
+
+    @ParameterizedTest
+    @EnumSource(ContentCodec.class)
+    void roundTripsTextAndCompressesRepetitiveContent(ContentCodec codec) {
+        String text = "Quarterly invoice report, naïve café – 東京. ".repeat(2_000);
+        byte[] stored = codec.encode(text, 3);
+        assertThat(codec.decode(stored)).isEqualTo(text);
+        assertThat(stored.length).isLessThan(text.length() / 5);
+        assertThat(codec.decode(codec.encode("", 3))).isEmpty();
+    }
+}